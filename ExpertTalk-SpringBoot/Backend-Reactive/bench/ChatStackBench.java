@@ -0,0 +1,286 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Side-by-side load test of the servlet backend (port 5045) and this module (port 5046) on the same database and the
+ * same chat session. Per stack it measures:
+ *
+ *   fan-out  - one STOMP client SENDs to /app/sendMessage on /ws-native at a fixed rate while N clients subscribed to
+ *              /topic/session/{id} receive every message; latency is send to receive, throughput counts deliveries
+ *   history  - C concurrent clients GET /api/chat/sessions/{id}/messages; requests per second and latency
+ *
+ * and, when the process ids are given, the CPU time each server used per phase (from /proc, Linux only).
+ *
+ *   java bench/ChatStackBench.java --session=ID --token=JWT [--subscribers=50] [--messages=2000]
+ *        [--rate=200] [--clients=32] [--requests=200] [--servlet-pid=PID] [--reactive-pid=PID] [--only=servlet|reactive]
+ *
+ * The token must belong to a participant of the session; every connection authenticates with it, so messages are sent as
+ * that participant. Start the servlet backend with --ratelimit.enabled=false, otherwise its per-connection STOMP and
+ * REST limits cap both phases.
+ */
+public class ChatStackBench {
+
+    private static final Pattern CONTENT_NANOS = Pattern.compile("\"content\":\"bench:(\\d+)\"");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        long sessionId = Long.parseLong(required(options, "session"));
+        String token = required(options, "token");
+        int subscribers = Integer.parseInt(options.getOrDefault("subscribers", "50"));
+        int messages = Integer.parseInt(options.getOrDefault("messages", "2000"));
+        int rate = Integer.parseInt(options.getOrDefault("rate", "200"));
+        int clients = Integer.parseInt(options.getOrDefault("clients", "32"));
+        int requests = Integer.parseInt(options.getOrDefault("requests", "200"));
+
+        Map<String, Integer> ports = new LinkedHashMap<>();
+        ports.put("servlet", 5045);
+        ports.put("reactive", 5046);
+        if (options.containsKey("only")) {
+            ports.keySet().retainAll(List.of(options.get("only")));
+        }
+
+        System.out.printf(Locale.ROOT, "session %d, %d subscribers, %d messages at %d/s, %d history clients x %d requests%n%n",
+                sessionId, subscribers, messages, rate, clients, requests);
+        System.out.printf(Locale.ROOT, "%-9s %-8s %10s %9s %9s %9s %9s %8s %9s%n",
+                "stack", "phase", "ops/s", "p50 ms", "p99 ms", "max ms", "lost", "errors", "cpu s");
+        for (Map.Entry<String, Integer> stack : ports.entrySet()) {
+            String pid = options.get(stack.getKey() + "-pid");
+            fanOut(stack.getKey(), stack.getValue(), pid, sessionId, token, subscribers, messages, rate);
+            history(stack.getKey(), stack.getValue(), pid, sessionId, token, clients, requests);
+        }
+        System.out.println();
+        System.out.println("Fan-out ops/s counts deliveries (messages x subscribers) over the time from first send to last receive.");
+    }
+
+    private static void fanOut(String stack, int port, String pid, long sessionId, String token,
+                               int subscribers, int messages, int rate) throws Exception {
+        HttpClient http = HttpClient.newHttpClient();
+        URI uri = URI.create("ws://localhost:" + port + "/ws-native");
+        String topic = "/topic/session/" + sessionId;
+        String connect = "CONNECT\naccept-version:1.2\nhost:localhost\nAuthorization:Bearer " + token + "\n\n\0";
+
+        long[][] latencies = new long[subscribers][messages];
+        int[] received = new int[subscribers];
+        CountDownLatch subscribed = new CountDownLatch(subscribers);
+        CountDownLatch done = new CountDownLatch(subscribers);
+        AtomicLong lastReceive = new AtomicLong();
+        AtomicInteger disconnected = new AtomicInteger();
+        List<WebSocket> sockets = new ArrayList<>();
+        for (int i = 0; i < subscribers; i++) {
+            int index = i;
+            WebSocket socket = http.newWebSocketBuilder().buildAsync(uri, new FrameListener(frame -> {
+                if (frame.startsWith("RECEIPT")) {
+                    subscribed.countDown();
+                } else if (frame.startsWith("MESSAGE")) {
+                    Matcher m = CONTENT_NANOS.matcher(frame);
+                    if (m.find() && received[index] < messages) {
+                        long now = System.nanoTime();
+                        latencies[index][received[index]++] = now - Long.parseLong(m.group(1));
+                        lastReceive.accumulateAndGet(now, Math::max);
+                        if (received[index] == messages) {
+                            done.countDown();
+                        }
+                    }
+                }
+            }, disconnected::incrementAndGet)).join();
+            socket.sendText(connect, true).join();
+            socket.sendText("SUBSCRIBE\nid:sub-0\ndestination:" + topic + "\nreceipt:subscribed\n\n\0", true).join();
+            sockets.add(socket);
+        }
+        if (!subscribed.await(30, TimeUnit.SECONDS)) {
+            throw new IllegalStateException(stack + ": subscriptions were not confirmed");
+        }
+
+        WebSocket sender = http.newWebSocketBuilder().buildAsync(uri, new FrameListener(frame -> { }, () -> { })).join();
+        sender.sendText(connect, true).join();
+
+        double cpuBefore = cpuSeconds(pid);
+        long intervalNanos = 1_000_000_000L / rate;
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            long due = start + i * intervalNanos;
+            while (System.nanoTime() < due) {
+                Thread.onSpinWait();
+            }
+            String body = "{\"sessionId\":" + sessionId + ",\"content\":\"bench:" + System.nanoTime() + "\"}";
+            sender.sendText("SEND\ndestination:/app/sendMessage\ncontent-type:application/json\n\n" + body + "\0", true).join();
+        }
+        done.await(30, TimeUnit.SECONDS);
+        double cpu = cpuSeconds(pid) - cpuBefore;
+
+        long total = 0;
+        List<Long> all = new ArrayList<>();
+        for (int i = 0; i < subscribers; i++) {
+            total += received[i];
+            for (int j = 0; j < received[i]; j++) {
+                all.add(latencies[i][j]);
+            }
+        }
+        double seconds = Math.max(1, lastReceive.get() - start) / 1e9;
+        report(stack, "fan-out", total / seconds, all, (long) subscribers * messages - total, 0, cpu);
+
+        if (disconnected.get() > 0) {
+            System.out.printf(Locale.ROOT, "%-9s %-8s %d subscribers were disconnected by the server (send buffer full)%n",
+                    stack, "", disconnected.get());
+        }
+
+        // Sockets the server already closed fail here, which is fine
+        sender.sendClose(WebSocket.NORMAL_CLOSURE, "").handle((ws, e) -> null).join();
+        for (WebSocket socket : sockets) {
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "").handle((ws, e) -> null).join();
+        }
+    }
+
+    private static void history(String stack, int port, String pid, long sessionId, String token,
+                                int clients, int requests) throws Exception {
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/chat/sessions/" + sessionId + "/messages"))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(30))
+                .build();
+        // Warm-up, and a check that the token is accepted before timing anything
+        HttpResponse<Void> probe = http.send(request, HttpResponse.BodyHandlers.discarding());
+        if (probe.statusCode() != 200) {
+            throw new IllegalStateException(stack + ": GET messages returned " + probe.statusCode());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        double cpuBefore = cpuSeconds(pid);
+        long start = System.nanoTime();
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            results.add(pool.submit(() -> {
+                // Latencies, with the error count in the last slot
+                long[] out = new long[requests + 1];
+                for (int i = 0; i < requests; i++) {
+                    long t0 = System.nanoTime();
+                    try {
+                        if (http.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode() != 200) {
+                            out[requests]++;
+                        }
+                    } catch (Exception e) {
+                        out[requests]++;
+                    }
+                    out[i] = System.nanoTime() - t0;
+                }
+                return out;
+            }));
+        }
+        List<Long> all = new ArrayList<>();
+        long errors = 0;
+        for (Future<long[]> result : results) {
+            long[] out = result.get();
+            for (int i = 0; i < requests; i++) {
+                all.add(out[i]);
+            }
+            errors += out[requests];
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double cpu = cpuSeconds(pid) - cpuBefore;
+        pool.shutdown();
+        report(stack, "history", all.size() / seconds, all, 0, errors, cpu);
+    }
+
+    private static void report(String stack, String phase, double opsPerSecond, List<Long> latencies, long lost, long errors, double cpu) {
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf(Locale.ROOT, "%-9s %-8s %10.0f %9.2f %9.2f %9.2f %9d %8d %9s%n", stack, phase, opsPerSecond,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6,
+                lost, errors, Double.isNaN(cpu) ? "-" : String.format(Locale.ROOT, "%.2f", cpu));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+
+    // utime + stime of the process, in seconds; NaN when no pid was given or /proc is not there
+    private static double cpuSeconds(String pid) {
+        if (pid == null) {
+            return Double.NaN;
+        }
+        try {
+            String stat = Files.readString(Path.of("/proc", pid, "stat"));
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            // Fields 14 and 15 of stat, counted after the command name
+            return (Long.parseLong(fields[11]) + Long.parseLong(fields[12])) / 100.0;
+        } catch (Exception e) {
+            return Double.NaN;
+        }
+    }
+
+    private static String required(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing --" + name + "=...; options are " + Arrays.asList(
+                    "session", "token", "subscribers", "messages", "rate", "clients", "requests",
+                    "servlet-pid", "reactive-pid", "only"));
+        }
+        return value;
+    }
+
+    // Reassembles STOMP frames from WebSocket text messages, which may arrive in parts
+    private static class FrameListener implements WebSocket.Listener {
+        private final Consumer<String> onFrame;
+        private final Runnable onClose;
+        private final StringBuilder buffer = new StringBuilder();
+
+        FrameListener(Consumer<String> onFrame, Runnable onClose) {
+            this.onFrame = onFrame;
+            this.onClose = onClose;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            onClose.run();
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            buffer.append(data);
+            int end;
+            while ((end = buffer.indexOf("\0")) >= 0) {
+                String frame = buffer.substring(0, end).stripLeading();
+                buffer.delete(0, end + 1);
+                if (!frame.isEmpty()) {
+                    onFrame.accept(frame);
+                }
+            }
+            webSocket.request(1);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
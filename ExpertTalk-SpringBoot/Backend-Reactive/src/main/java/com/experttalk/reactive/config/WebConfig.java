@@ -0,0 +1,54 @@
+package com.experttalk.reactive.config;
+
+import com.experttalk.reactive.websocket.StompWebSocketHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.reactive.CorsWebFilter;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
+import org.springframework.web.reactive.socket.server.support.WebSocketHandlerAdapter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+public class WebConfig {
+
+    @Value("${cors.allowed-origins}")
+    private String allowedOrigins;
+
+    // Same CORS rules as the servlet backend's security chain, ahead of the token check so preflights get through
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public CorsWebFilter corsWebFilter() {
+        CorsConfiguration configuration = new CorsConfiguration();
+        configuration.setAllowedOrigins(Arrays.asList(allowedOrigins.split(",")));
+        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
+        configuration.setAllowedHeaders(Arrays.asList("*"));
+        configuration.setAllowCredentials(true);
+
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/api/**", configuration);
+        return new CorsWebFilter(source);
+    }
+
+    @Bean
+    public HandlerMapping webSocketMapping(StompWebSocketHandler stompWebSocketHandler) {
+        SimpleUrlHandlerMapping mapping = new SimpleUrlHandlerMapping(Map.of("/ws-native", stompWebSocketHandler), -1);
+        // Any origin may open the socket, as on the servlet endpoint
+        CorsConfiguration anyOrigin = new CorsConfiguration();
+        anyOrigin.setAllowedOriginPatterns(List.of("*"));
+        mapping.setCorsConfigurations(Map.of("/ws-native", anyOrigin));
+        return mapping;
+    }
+
+    @Bean
+    public WebSocketHandlerAdapter webSocketHandlerAdapter() {
+        return new WebSocketHandlerAdapter();
+    }
+}
@@ -0,0 +1,440 @@
+package com.experttalk.reactive.controller;
+
+import com.experttalk.reactive.model.ChatSession;
+import com.experttalk.reactive.model.Message;
+import com.experttalk.reactive.model.SessionStatus;
+import com.experttalk.reactive.model.User;
+import com.experttalk.reactive.repository.ChatSessionRepository;
+import com.experttalk.reactive.repository.MessageRepository;
+import com.experttalk.reactive.repository.UserRepository;
+import com.experttalk.reactive.security.JwtUtil;
+import com.experttalk.reactive.service.ChatSignalService;
+import com.experttalk.reactive.service.ExpertCapacityService;
+import com.experttalk.reactive.service.MessageSequenceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Same routes, status codes and JSON as the servlet backend's ChatController, without ever blocking an event loop
+@RestController
+@RequestMapping("/api/chat")
+@CrossOrigin(origins = "http://localhost:3000")
+public class ChatController {
+
+    @Autowired
+    private ChatSessionRepository chatSessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ExpertCapacityService expertCapacityService;
+
+    @Autowired
+    private MessageSequenceService messageSequenceService;
+
+    @Autowired
+    private ChatSignalService chatSignalService;
+
+    @PostMapping("/start")
+    public Mono<ResponseEntity<Object>> startChatSession(@RequestBody StartChatDto dto, @RequestHeader("Authorization") String authHeader) {
+        Long userId = getUserIdFromToken(authHeader);
+        if (userId == null) {
+            return Mono.just(ResponseEntity.badRequest().body(new MessageResponse("Invalid user token")));
+        }
+
+        // Store paid duration; the expert's capacity is checked and the session inserted in one statement
+        int duration = dto.getDuration() != null ? dto.getDuration() : 60;
+        return userRepository.existsById(userId).flatMap(userExists -> {
+            if (!userExists) {
+                return Mono.just(ResponseEntity.badRequest().body((Object) new MessageResponse("User not found")));
+            }
+            return userRepository.findById(dto.getExpertId())
+                    .filter(User::isExpert)
+                    .flatMap(expert -> expertCapacityService.startSession(userId, expert, duration)
+                            .map(sessionId -> ResponseEntity.ok((Object) new SessionResponse(sessionId)))
+                            .defaultIfEmpty(ResponseEntity.status(409).body(new MessageResponse("This expert is busy with other sessions. Please try again shortly."))))
+                    .defaultIfEmpty(ResponseEntity.badRequest().body(new MessageResponse("Expert not found")));
+        }).onErrorResume(ex -> Mono.just(ResponseEntity.badRequest().body(new MessageResponse("Failed to start chat: " + ex.getMessage()))));
+    }
+
+    @GetMapping("/sessions")
+    public Mono<ResponseEntity<List<ChatSessionDto>>> getUserSessions(@RequestHeader("Authorization") String authHeader) {
+        Long userId = getUserIdFromToken(authHeader);
+        if (userId == null) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        return chatSessionRepository.findByUserIdOrExpertIdOrderByStartTimeDesc(userId).collectList()
+                .flatMap(sessions -> convertToChatSessionDtos(sessions, userId))
+                .map(ResponseEntity::ok)
+                .onErrorResume(ex -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+
+    @GetMapping("/sessions/{sessionId}/info")
+    public Mono<ResponseEntity<ChatSessionDto>> getSessionInfo(@PathVariable Long sessionId, @RequestHeader("Authorization") String authHeader) {
+        Long userId = getUserIdFromToken(authHeader);
+        if (userId == null) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        return participantSession(sessionId, userId)
+                .flatMap(session -> convertToChatSessionDtos(List.of(session), userId))
+                .map(dtos -> ResponseEntity.ok(dtos.get(0)))
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorResume(ex -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+
+    @PostMapping("/sessions/{sessionId}/messages")
+    public Mono<ResponseEntity<Object>> sendMessage(@PathVariable Long sessionId, @RequestBody SendMessageDto dto, @RequestHeader("Authorization") String authHeader) {
+        Long userId = getUserIdFromToken(authHeader);
+        if (userId == null) {
+            return Mono.just(ResponseEntity.badRequest().body(new MessageResponse("Invalid user token")));
+        }
+
+        return participantSession(sessionId, userId).flatMap(session -> {
+            if (session.getStatus() != SessionStatus.ACTIVE) {
+                return Mono.just(ResponseEntity.badRequest().body((Object) new MessageResponse("Session is not active")));
+            }
+
+            Message message = new Message();
+            message.setChatSessionId(sessionId);
+            message.setSenderId(userId);
+            message.setContent(dto.getContent());
+            message.setIsRead(false);
+
+            return Mono.zip(messageSequenceService.append(message), senderName(userId, ""))
+                    .map(saved -> ResponseEntity.ok((Object) convertToMessageDto(saved.getT1(), saved.getT2())));
+        }).defaultIfEmpty(ResponseEntity.notFound().build())
+          .onErrorResume(ex -> {
+              System.err.println("Error sending message: " + ex.getMessage());
+              return Mono.just(ResponseEntity.badRequest().body(new MessageResponse("Failed to send message: " + ex.getMessage())));
+          });
+    }
+
+    @GetMapping("/sessions/{sessionId}/messages")
+    public Mono<ResponseEntity<List<MessageDto>>> getSessionMessages(@PathVariable Long sessionId, @RequestHeader("Authorization") String authHeader) {
+        Long userId = getUserIdFromToken(authHeader);
+        if (userId == null) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        return participantSession(sessionId, userId)
+                .flatMap(session -> Mono.zip(messageRepository.findByChatSessionIdOrderBySentAtAsc(sessionId).collectList(), participantNames(session)))
+                .flatMap(loaded -> {
+                    List<MessageDto> messageDtos = loaded.getT1().stream()
+                            .map(m -> convertToMessageDto(m, loaded.getT2().getOrDefault(m.getSenderId(), "")))
+                            .toList();
+                    // Mark messages as read (simplified - mark all as read), in one statement
+                    return messageRepository.markRead(sessionId, userId).thenReturn(ResponseEntity.ok(messageDtos));
+                })
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorResume(ex -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+
+    @GetMapping("/sessions/{sessionId}/messages/resume")
+    public Mono<ResponseEntity<ResumeResponse>> resumeSessionMessages(@PathVariable Long sessionId, @RequestParam(defaultValue = "0") long afterSeq,
+                                                                      @RequestHeader("Authorization") String authHeader) {
+        Long userId = getUserIdFromToken(authHeader);
+        if (userId == null) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        // Only what the client has not seen yet; there is no recent-message buffer here, the indexed range query is the source
+        return participantSession(sessionId, userId).flatMap(session -> messageRepository.lastSeq(sessionId).flatMap(lastSeq -> {
+            if (afterSeq >= lastSeq) {
+                return Mono.just(ResponseEntity.ok(new ResumeResponse(lastSeq, List.of())));
+            }
+            return Mono.zip(messageRepository.findByChatSessionIdAndSeqGreaterThanOrderBySeqAsc(sessionId, afterSeq)
+                            .takeWhile(m -> m.getSeq() <= lastSeq).collectList(), participantNames(session))
+                    .map(loaded -> ResponseEntity.ok(new ResumeResponse(lastSeq, loaded.getT1().stream()
+                            .map(m -> convertToMessageDto(m, loaded.getT2().getOrDefault(m.getSenderId(), "")))
+                            .toList())));
+        })).defaultIfEmpty(ResponseEntity.notFound().build())
+          .onErrorResume(ex -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+
+    @PostMapping("/sessions/{sessionId}/end")
+    public Mono<ResponseEntity<Object>> endChatSession(@PathVariable Long sessionId, @RequestHeader("Authorization") String authHeader) {
+        Long userId = getUserIdFromToken(authHeader);
+        if (userId == null) {
+            return Mono.just(ResponseEntity.badRequest().body(new MessageResponse("Invalid user token")));
+        }
+
+        return participantSession(sessionId, userId).flatMap(session -> {
+            session.setEndTime(LocalDateTime.now());
+            session.setStatus(SessionStatus.COMPLETED);
+
+            // Calculate duration and total amount
+            long minutes = ChronoUnit.MINUTES.between(session.getStartTime(), session.getEndTime());
+            session.setDurationMinutes((int) Math.max(1, minutes)); // Minimum 1 minute
+
+            // Ledger entries, rollups and leaderboards are caught up by the servlet backend's sweeps of completed sessions
+            return userRepository.findById(session.getExpertId())
+                    .filter(expert -> expert.getHourlyRate() != null)
+                    .doOnNext(expert -> session.setTotalAmount(expert.getHourlyRate()
+                            .multiply(BigDecimal.valueOf(session.getDurationMinutes()))
+                            .divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP)))
+                    .then(chatSessionRepository.save(session))
+                    .doOnNext(saved -> chatSignalService.sessionEnded(sessionId))
+                    .map(saved -> ResponseEntity.ok((Object) new EndSessionResponse(saved.getTotalAmount(), saved.getDurationMinutes())));
+        }).defaultIfEmpty(ResponseEntity.notFound().build())
+          .onErrorResume(ex -> Mono.just(ResponseEntity.badRequest().body(new MessageResponse("Failed to end session: " + ex.getMessage()))));
+    }
+
+    private Long getUserIdFromToken(String authHeader) {
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            String token = authHeader.substring(7);
+            return jwtUtil.extractUserId(token);
+        }
+        return null;
+    }
+
+    // Empty unless the session exists and the caller takes part in it, so both cases answer 404
+    private Mono<ChatSession> participantSession(Long sessionId, Long userId) {
+        return chatSessionRepository.findById(sessionId).filter(session -> session.isParticipant(userId));
+    }
+
+    private Mono<String> senderName(Long userId, String fallback) {
+        return userRepository.findById(userId).map(User::getName).defaultIfEmpty(fallback);
+    }
+
+    // Only the two participants can send, so their names are resolved once instead of per message
+    private Mono<Map<Long, String>> participantNames(ChatSession session) {
+        return userRepository.findAllById(List.of(session.getUserId(), session.getExpertId())).collectMap(User::getId, User::getName);
+    }
+
+    // Names and message summaries for all sessions are two queries, run concurrently, however many sessions there are
+    private Mono<List<ChatSessionDto>> convertToChatSessionDtos(List<ChatSession> sessions, Long currentUserId) {
+        if (sessions.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        Set<Long> userIds = new HashSet<>();
+        List<Long> sessionIds = sessions.stream().map(ChatSession::getId).toList();
+        sessions.forEach(s -> {
+            userIds.add(s.getUserId());
+            userIds.add(s.getExpertId());
+        });
+
+        Mono<Map<Long, String>> names = userRepository.findAllById(userIds).collectMap(User::getId, User::getName);
+        Mono<Map<Long, MessageRepository.SessionMessageSummary>> summaries = messageRepository.summarize(sessionIds, currentUserId)
+                .collectMap(MessageRepository.SessionMessageSummary::chatSessionId);
+        return Mono.zip(names, summaries).flatMap(loaded -> Flux.fromIterable(sessions)
+                .concatMap(session -> convertToChatSessionDto(session, loaded.getT1(), loaded.getT2().get(session.getId())))
+                .collectList());
+    }
+
+    private Mono<ChatSessionDto> convertToChatSessionDto(ChatSession session, Map<Long, String> names,
+                                                         MessageRepository.SessionMessageSummary summary) {
+        ChatSessionDto dto = new ChatSessionDto();
+        dto.setId(session.getId());
+        dto.setStartTime(session.getStartTime());
+        dto.setEndTime(session.getEndTime());
+        dto.setStatus(session.getStatus().ordinal());
+        dto.setTotalAmount(session.getTotalAmount());
+        dto.setUserName(names.get(session.getUserId()));
+        dto.setExpertName(names.get(session.getExpertId()));
+        dto.setLastMessage(summary != null ? summary.lastMessage() : null);
+        dto.setUnreadCount(summary != null && summary.unreadCount() != null ? summary.unreadCount().intValue() : 0);
+
+        // Calculate timer information
+        if (session.getStatus() != SessionStatus.ACTIVE || session.getStartTime() == null) {
+            dto.setRemainingSeconds(0);
+            dto.setIsExpired(true);
+            return Mono.just(dto);
+        }
+
+        long elapsedMinutes = ChronoUnit.MINUTES.between(session.getStartTime(), LocalDateTime.now());
+        long maxDurationMinutes = session.getDurationMinutes() != null ? session.getDurationMinutes() : 60; // Use paid duration
+        long remainingMinutes = Math.max(0, maxDurationMinutes - elapsedMinutes);
+        dto.setRemainingSeconds((int) (remainingMinutes * 60));
+        dto.setIsExpired(remainingMinutes <= 0);
+        if (remainingMinutes > 0) {
+            return Mono.just(dto);
+        }
+
+        // If expired, mark session as completed
+        session.setEndTime(LocalDateTime.now());
+        session.setStatus(SessionStatus.COMPLETED);
+        session.setDurationMinutes((int) Math.max(1, elapsedMinutes));
+        dto.setStatus(SessionStatus.COMPLETED.ordinal());
+        return chatSessionRepository.save(session).thenReturn(dto);
+    }
+
+    private MessageDto convertToMessageDto(Message message, String senderName) {
+        MessageDto dto = new MessageDto();
+        dto.setId(message.getId());
+        dto.setSeq(message.getSeq());
+        dto.setContent(message.getContent());
+        dto.setSentAt(message.getSentAt());
+        dto.setIsRead(message.getIsRead());
+        dto.setSenderId(message.getSenderId());
+        dto.setSenderName(senderName);
+        return dto;
+    }
+
+    // DTOs
+    public static class StartChatDto {
+        private Long expertId;
+        private Integer duration; // Duration in minutes
+
+        public Long getExpertId() { return expertId; }
+        public void setExpertId(Long expertId) { this.expertId = expertId; }
+
+        public Integer getDuration() { return duration; }
+        public void setDuration(Integer duration) { this.duration = duration; }
+    }
+
+    public static class SendMessageDto {
+        private String content;
+
+        public String getContent() { return content; }
+        public void setContent(String content) { this.content = content; }
+    }
+
+    public static class SessionResponse {
+        private Long sessionId;
+
+        public SessionResponse(Long sessionId) { this.sessionId = sessionId; }
+
+        public Long getSessionId() { return sessionId; }
+        public void setSessionId(Long sessionId) { this.sessionId = sessionId; }
+    }
+
+    public static class EndSessionResponse {
+        private BigDecimal totalAmount;
+        private Integer duration;
+
+        public EndSessionResponse(BigDecimal totalAmount, Integer duration) {
+            this.totalAmount = totalAmount;
+            this.duration = duration;
+        }
+
+        public BigDecimal getTotalAmount() { return totalAmount; }
+        public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+
+        public Integer getDuration() { return duration; }
+        public void setDuration(Integer duration) { this.duration = duration; }
+    }
+
+    public static class MessageResponse {
+        private String message;
+
+        public MessageResponse(String message) { this.message = message; }
+
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+    }
+
+    public static class ChatSessionDto {
+        private Long id;
+        private LocalDateTime startTime;
+        private LocalDateTime endTime;
+        private Integer status;
+        private BigDecimal totalAmount;
+        private String userName;
+        private String expertName;
+        private String lastMessage;
+        private Integer unreadCount;
+        private Integer remainingSeconds;
+        private Boolean isExpired;
+
+        // Getters and Setters
+        public Long getId() { return id; }
+        public void setId(Long id) { this.id = id; }
+
+        public LocalDateTime getStartTime() { return startTime; }
+        public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
+
+        public LocalDateTime getEndTime() { return endTime; }
+        public void setEndTime(LocalDateTime endTime) { this.endTime = endTime; }
+
+        public Integer getStatus() { return status; }
+        public void setStatus(Integer status) { this.status = status; }
+
+        public BigDecimal getTotalAmount() { return totalAmount; }
+        public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+
+        public String getUserName() { return userName; }
+        public void setUserName(String userName) { this.userName = userName; }
+
+        public String getExpertName() { return expertName; }
+        public void setExpertName(String expertName) { this.expertName = expertName; }
+
+        public String getLastMessage() { return lastMessage; }
+        public void setLastMessage(String lastMessage) { this.lastMessage = lastMessage; }
+
+        public Integer getUnreadCount() { return unreadCount; }
+        public void setUnreadCount(Integer unreadCount) { this.unreadCount = unreadCount; }
+
+        public Integer getRemainingSeconds() { return remainingSeconds; }
+        public void setRemainingSeconds(Integer remainingSeconds) { this.remainingSeconds = remainingSeconds; }
+
+        public Boolean getIsExpired() { return isExpired; }
+        public void setIsExpired(Boolean isExpired) { this.isExpired = isExpired; }
+    }
+
+    public static class ResumeResponse {
+        private Long lastSeq;
+        private List<MessageDto> messages;
+
+        public ResumeResponse(Long lastSeq, List<MessageDto> messages) {
+            this.lastSeq = lastSeq;
+            this.messages = messages;
+        }
+
+        public Long getLastSeq() { return lastSeq; }
+        public void setLastSeq(Long lastSeq) { this.lastSeq = lastSeq; }
+
+        public List<MessageDto> getMessages() { return messages; }
+        public void setMessages(List<MessageDto> messages) { this.messages = messages; }
+    }
+
+    public static class MessageDto {
+        private Long id;
+        private Long seq;
+        private String content;
+        private LocalDateTime sentAt;
+        private Boolean isRead;
+        private Long senderId;
+        private String senderName;
+
+        // Getters and Setters
+        public Long getId() { return id; }
+        public void setId(Long id) { this.id = id; }
+
+        public Long getSeq() { return seq; }
+        public void setSeq(Long seq) { this.seq = seq; }
+
+        public String getContent() { return content; }
+        public void setContent(String content) { this.content = content; }
+
+        public LocalDateTime getSentAt() { return sentAt; }
+        public void setSentAt(LocalDateTime sentAt) { this.sentAt = sentAt; }
+
+        public Boolean getIsRead() { return isRead; }
+        public void setIsRead(Boolean isRead) { this.isRead = isRead; }
+
+        public Long getSenderId() { return senderId; }
+        public void setSenderId(Long senderId) { this.senderId = senderId; }
+
+        public String getSenderName() { return senderName; }
+        public void setSenderName(String senderName) { this.senderName = senderName; }
+    }
+}
@@ -0,0 +1,179 @@
+package com.experttalk.reactive.controller;
+
+import com.experttalk.reactive.model.Message;
+import com.experttalk.reactive.model.SessionStatus;
+import com.experttalk.reactive.repository.ChatSessionRepository;
+import com.experttalk.reactive.security.StompPrincipal;
+import com.experttalk.reactive.service.ChatSignalService;
+import com.experttalk.reactive.service.MessageSequenceService;
+import com.experttalk.reactive.service.TopicBroker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import java.time.LocalDateTime;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// The /app destinations of the servlet backend's WebSocketChatController, dispatched by StompWebSocketHandler
+@Component
+public class WebSocketChatController {
+
+    private static final Pattern SIGNAL_DESTINATION = Pattern.compile("/app/session/(\\d+)/(typing|read)");
+
+    @Autowired
+    private TopicBroker topicBroker;
+
+    @Autowired
+    private ChatSessionRepository chatSessionRepository;
+
+    @Autowired
+    private MessageSequenceService messageSequenceService;
+
+    @Autowired
+    private ChatSignalService chatSignalService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /** Handles one SEND frame of the given user; unknown destinations are ignored, as they are by the servlet backend. */
+    public Mono<Void> handle(String destination, String body, StompPrincipal sender) {
+        try {
+            if ("/app/sendMessage".equals(destination)) {
+                return sendMessage(objectMapper.readValue(body, ChatMessage.class), sender);
+            }
+            if ("/app/endSession".equals(destination)) {
+                return endSession(objectMapper.readValue(body, EndSessionMessage.class), sender);
+            }
+            Matcher signal = destination != null ? SIGNAL_DESTINATION.matcher(destination) : null;
+            if (signal != null && signal.matches()) {
+                Long sessionId = Long.valueOf(signal.group(1));
+                if (signal.group(2).equals("typing")) {
+                    TypingSignal typing = objectMapper.readValue(body, TypingSignal.class);
+                    return chatSignalService.typing(sessionId, sender.userId(), Boolean.TRUE.equals(typing.getTyping()));
+                }
+                ReadSignal read = objectMapper.readValue(body, ReadSignal.class);
+                return read.getSeq() != null ? chatSignalService.read(sessionId, sender.userId(), read.getSeq()) : Mono.empty();
+            }
+        } catch (Exception e) {
+            System.err.println("Error in WebSocket message: " + e.getMessage());
+        }
+        return Mono.empty();
+    }
+
+    // The sender is always the connection's authenticated user, never an id from the payload
+    private Mono<Void> sendMessage(ChatMessage chatMessage, StompPrincipal sender) {
+        // Check if session is active and the sender takes part in it before saving
+        return chatSessionRepository.findById(chatMessage.getSessionId())
+                .filter(session -> session.getStatus() == SessionStatus.ACTIVE && session.isParticipant(sender.userId()))
+                .switchIfEmpty(Mono.fromRunnable(() -> System.out.println("Session not active or not a participant, ignoring message")))
+                .flatMap(session -> {
+                    Message message = new Message();
+                    message.setChatSessionId(chatMessage.getSessionId());
+                    message.setSenderId(sender.userId());
+                    message.setContent(chatMessage.getContent());
+                    message.setIsRead(false);
+                    return messageSequenceService.append(message);
+                })
+                .doOnNext(savedMessage -> {
+                    ChatMessageResponse response = new ChatMessageResponse();
+                    response.setId(savedMessage.getId());
+                    response.setSeq(savedMessage.getSeq());
+                    response.setSenderId(savedMessage.getSenderId());
+                    response.setSenderName(sender.displayName());
+                    response.setContent(savedMessage.getContent());
+                    response.setSentAt(savedMessage.getSentAt());
+                    response.setSessionId(chatMessage.getSessionId());
+
+                    // Send to session topic
+                    topicBroker.publish("/topic/session/" + chatMessage.getSessionId(), response);
+                })
+                .onErrorResume(e -> {
+                    System.err.println("Error in WebSocket message: " + e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Mono<Void> endSession(EndSessionMessage endSessionMessage, StompPrincipal user) {
+        if (endSessionMessage.getSessionId() == null) {
+            return Mono.empty();
+        }
+        return chatSessionRepository.findById(endSessionMessage.getSessionId())
+                .filter(session -> session.isParticipant(user.userId()))
+                .doOnNext(session -> {
+                    endSessionMessage.setEndedBy(user.userId());
+                    // Subscribers are all on this instance, so the notice goes straight to the topic rather than through an outbox
+                    topicBroker.publish("/topic/session/" + endSessionMessage.getSessionId() + "/end", endSessionMessage);
+                    chatSignalService.sessionEnded(endSessionMessage.getSessionId());
+                })
+                .then();
+    }
+
+    public static class TypingSignal {
+        private Boolean typing;
+
+        public Boolean getTyping() { return typing; }
+        public void setTyping(Boolean typing) { this.typing = typing; }
+    }
+
+    public static class ReadSignal {
+        private Long seq;
+
+        public Long getSeq() { return seq; }
+        public void setSeq(Long seq) { this.seq = seq; }
+    }
+
+    public static class EndSessionMessage {
+        private Long sessionId;
+        private Long endedBy;
+
+        public Long getSessionId() { return sessionId; }
+        public void setSessionId(Long sessionId) { this.sessionId = sessionId; }
+
+        public Long getEndedBy() { return endedBy; }
+        public void setEndedBy(Long endedBy) { this.endedBy = endedBy; }
+    }
+
+    public static class ChatMessage {
+        private Long sessionId;
+        private String content;
+
+        public Long getSessionId() { return sessionId; }
+        public void setSessionId(Long sessionId) { this.sessionId = sessionId; }
+
+        public String getContent() { return content; }
+        public void setContent(String content) { this.content = content; }
+    }
+
+    public static class ChatMessageResponse {
+        private Long id;
+        private Long seq;
+        private Long sessionId;
+        private Long senderId;
+        private String senderName;
+        private String content;
+        private LocalDateTime sentAt;
+
+        public Long getId() { return id; }
+        public void setId(Long id) { this.id = id; }
+
+        public Long getSeq() { return seq; }
+        public void setSeq(Long seq) { this.seq = seq; }
+
+        public Long getSessionId() { return sessionId; }
+        public void setSessionId(Long sessionId) { this.sessionId = sessionId; }
+
+        public Long getSenderId() { return senderId; }
+        public void setSenderId(Long senderId) { this.senderId = senderId; }
+
+        public String getSenderName() { return senderName; }
+        public void setSenderName(String senderName) { this.senderName = senderName; }
+
+        public String getContent() { return content; }
+        public void setContent(String content) { this.content = content; }
+
+        public LocalDateTime getSentAt() { return sentAt; }
+        public void setSentAt(LocalDateTime sentAt) { this.sentAt = sentAt; }
+    }
+}
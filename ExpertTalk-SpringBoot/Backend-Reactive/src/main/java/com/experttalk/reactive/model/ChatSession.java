@@ -0,0 +1,62 @@
+package com.experttalk.reactive.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Table("chat_sessions")
+public class ChatSession {
+    @Id
+    private Long id;
+
+    @Column("user_id")
+    private Long userId;
+
+    @Column("expert_id")
+    private Long expertId;
+
+    @Column("start_time")
+    private LocalDateTime startTime;
+
+    @Column("end_time")
+    private LocalDateTime endTime;
+
+    // Stored by name, like the servlet backend's @Enumerated(EnumType.STRING)
+    private SessionStatus status = SessionStatus.ACTIVE;
+
+    @Column("duration_minutes")
+    private Integer durationMinutes;
+
+    @Column("total_amount")
+    private BigDecimal totalAmount;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public Long getExpertId() { return expertId; }
+    public void setExpertId(Long expertId) { this.expertId = expertId; }
+
+    public LocalDateTime getStartTime() { return startTime; }
+    public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
+
+    public LocalDateTime getEndTime() { return endTime; }
+    public void setEndTime(LocalDateTime endTime) { this.endTime = endTime; }
+
+    public SessionStatus getStatus() { return status; }
+    public void setStatus(SessionStatus status) { this.status = status; }
+
+    public Integer getDurationMinutes() { return durationMinutes; }
+    public void setDurationMinutes(Integer durationMinutes) { this.durationMinutes = durationMinutes; }
+
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+
+    public boolean isParticipant(Long participantId) {
+        return participantId != null && (participantId.equals(userId) || participantId.equals(expertId));
+    }
+}
@@ -0,0 +1,50 @@
+package com.experttalk.reactive.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+import java.time.LocalDateTime;
+
+@Table("messages")
+public class Message {
+    @Id
+    private Long id;
+
+    @Column("chat_session_id")
+    private Long chatSessionId;
+
+    @Column("sender_id")
+    private Long senderId;
+
+    // Position within the chat session, assigned by ChatService
+    private Long seq;
+
+    private String content;
+
+    @Column("sent_at")
+    private LocalDateTime sentAt;
+
+    @Column("is_read")
+    private Boolean isRead = false;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getChatSessionId() { return chatSessionId; }
+    public void setChatSessionId(Long chatSessionId) { this.chatSessionId = chatSessionId; }
+
+    public Long getSenderId() { return senderId; }
+    public void setSenderId(Long senderId) { this.senderId = senderId; }
+
+    public Long getSeq() { return seq; }
+    public void setSeq(Long seq) { this.seq = seq; }
+
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+
+    public LocalDateTime getSentAt() { return sentAt; }
+    public void setSentAt(LocalDateTime sentAt) { this.sentAt = sentAt; }
+
+    public Boolean getIsRead() { return isRead; }
+    public void setIsRead(Boolean isRead) { this.isRead = isRead; }
+}
@@ -0,0 +1,8 @@
+package com.experttalk.reactive.model;
+
+public enum SessionStatus {
+    ACTIVE,
+    COMPLETED,
+    CANCELLED,
+    TIMEOUT
+}
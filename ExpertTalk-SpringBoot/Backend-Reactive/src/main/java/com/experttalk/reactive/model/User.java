@@ -0,0 +1,46 @@
+package com.experttalk.reactive.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+import java.math.BigDecimal;
+
+// Read-only view of the columns the chat API needs; users are created and edited through the servlet backend
+@Table("users")
+public class User {
+    // users.user_type holds the ordinal of the servlet backend's UserType (USER, EXPERT, ADMIN)
+    public static final int EXPERT = 1;
+
+    @Id
+    private Long id;
+
+    private String name;
+
+    @Column("user_type")
+    private Integer userType;
+
+    @Column("hourly_rate")
+    private BigDecimal hourlyRate;
+
+    @Column("max_concurrent_sessions")
+    private Integer maxConcurrentSessions;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public Integer getUserType() { return userType; }
+    public void setUserType(Integer userType) { this.userType = userType; }
+
+    public BigDecimal getHourlyRate() { return hourlyRate; }
+    public void setHourlyRate(BigDecimal hourlyRate) { this.hourlyRate = hourlyRate; }
+
+    public Integer getMaxConcurrentSessions() { return maxConcurrentSessions; }
+    public void setMaxConcurrentSessions(Integer maxConcurrentSessions) { this.maxConcurrentSessions = maxConcurrentSessions; }
+
+    public boolean isExpert() {
+        return userType != null && userType == EXPERT;
+    }
+}
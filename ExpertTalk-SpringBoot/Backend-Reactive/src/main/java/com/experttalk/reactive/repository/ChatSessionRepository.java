@@ -0,0 +1,14 @@
+package com.experttalk.reactive.repository;
+
+import com.experttalk.reactive.model.ChatSession;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface ChatSessionRepository extends R2dbcRepository<ChatSession, Long> {
+    @Query("SELECT * FROM chat_sessions WHERE user_id = :userId OR expert_id = :userId ORDER BY start_time DESC")
+    Flux<ChatSession> findByUserIdOrExpertIdOrderByStartTimeDesc(@Param("userId") Long userId);
+}
@@ -0,0 +1,34 @@
+package com.experttalk.reactive.repository;
+
+import com.experttalk.reactive.model.Message;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.util.Collection;
+
+@Repository
+public interface MessageRepository extends R2dbcRepository<Message, Long> {
+    Flux<Message> findByChatSessionIdOrderBySentAtAsc(Long chatSessionId);
+    Flux<Message> findByChatSessionIdAndSeqGreaterThanOrderBySeqAsc(Long chatSessionId, Long seq);
+
+    @Query("SELECT COALESCE(MAX(seq), 0) FROM messages WHERE chat_session_id = :sessionId")
+    Mono<Long> lastSeq(@Param("sessionId") Long sessionId);
+
+    // Last message and unread count of many sessions in one round trip, instead of loading every message of each
+    @Query("SELECT s.id AS chat_session_id, " +
+           "(SELECT m.content FROM messages m WHERE m.chat_session_id = s.id ORDER BY m.seq DESC, m.id DESC LIMIT 1) AS last_message, " +
+           "(SELECT COUNT(*) FROM messages m WHERE m.chat_session_id = s.id AND m.sender_id <> :viewerId AND m.is_read = false) AS unread_count " +
+           "FROM chat_sessions s WHERE s.id IN (:sessionIds)")
+    Flux<SessionMessageSummary> summarize(@Param("sessionIds") Collection<Long> sessionIds, @Param("viewerId") Long viewerId);
+
+    @Modifying
+    @Query("UPDATE messages SET is_read = true WHERE chat_session_id = :sessionId AND sender_id <> :readerId AND is_read = false")
+    Mono<Integer> markRead(@Param("sessionId") Long sessionId, @Param("readerId") Long readerId);
+
+    record SessionMessageSummary(Long chatSessionId, String lastMessage, Long unreadCount) {
+    }
+}
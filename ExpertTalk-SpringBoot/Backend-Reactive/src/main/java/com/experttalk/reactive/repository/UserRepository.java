@@ -0,0 +1,9 @@
+package com.experttalk.reactive.repository;
+
+import com.experttalk.reactive.model.User;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserRepository extends R2dbcRepository<User, Long> {
+}
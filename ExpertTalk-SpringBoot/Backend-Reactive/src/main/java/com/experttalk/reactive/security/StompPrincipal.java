@@ -0,0 +1,12 @@
+package com.experttalk.reactive.security;
+
+import java.security.Principal;
+
+// The user behind a STOMP connection, resolved once on CONNECT, as in the servlet backend
+public record StompPrincipal(Long userId, String displayName, String role) implements Principal {
+
+    @Override
+    public String getName() {
+        return String.valueOf(userId);
+    }
+}
@@ -0,0 +1,244 @@
+package com.experttalk.reactive.service;
+
+import com.experttalk.reactive.model.SessionStatus;
+import com.experttalk.reactive.repository.ChatSessionRepository;
+import com.experttalk.reactive.repository.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Typing indicators and read receipts, with the same behaviour as the servlet backend's ChatSignalService: in-memory
+ * state only, at most one frame per session per publish interval on its signals topic, and read watermarks written back
+ * to messages.is_read every flush interval. State for a session is dropped when it ends here, or after it has been idle
+ * for a while, since sessions ended through the servlet backend are not announced to this module. A read seq is clamped
+ * to the session's last message, looked up only when it is past the last one seen.
+ */
+@Service
+public class ChatSignalService {
+
+    private static final String MARK_READ_SQL =
+            "UPDATE messages SET is_read = true WHERE chat_session_id = :sessionId AND sender_id <> :readerId AND seq <= :seq AND is_read = false";
+
+    private final TopicBroker topicBroker;
+    private final ChatSessionRepository chatSessionRepository;
+    private final MessageRepository messageRepository;
+    private final DatabaseClient databaseClient;
+    private final long typingTtlMillis;
+    private final long idleMillis;
+
+    private final Map<Long, SessionSignals> sessions = new ConcurrentHashMap<>();
+    private final Set<Long> dirtySessions = ConcurrentHashMap.newKeySet();
+
+    // (session, reader) -> highest seq read since the last flush
+    private final Map<ReadKey, Long> pendingReads = new ConcurrentHashMap<>();
+
+    private final Counter typingSignals;
+    private final Counter readSignals;
+    private final Counter rejectedSignals;
+    private final Counter framesSent;
+    private final Counter readsFlushed;
+
+    @Autowired
+    public ChatSignalService(TopicBroker topicBroker, ChatSessionRepository chatSessionRepository,
+                             MessageRepository messageRepository, DatabaseClient databaseClient, MeterRegistry meterRegistry,
+                             @Value("${chat.signals.typing-ttl-ms:5000}") long typingTtlMillis,
+                             @Value("${chat.signals.idle-minutes:30}") long idleMinutes) {
+        this.topicBroker = topicBroker;
+        this.chatSessionRepository = chatSessionRepository;
+        this.messageRepository = messageRepository;
+        this.databaseClient = databaseClient;
+        this.typingTtlMillis = typingTtlMillis;
+        this.idleMillis = Duration.ofMinutes(idleMinutes).toMillis();
+        this.typingSignals = meterRegistry.counter("chat.signals.received", "type", "typing");
+        this.readSignals = meterRegistry.counter("chat.signals.received", "type", "read");
+        this.rejectedSignals = meterRegistry.counter("chat.signals.rejected");
+        this.framesSent = meterRegistry.counter("chat.signals.frames");
+        this.readsFlushed = meterRegistry.counter("chat.signals.reads.flushed");
+        meterRegistry.gaugeMapSize("chat.signals.pending.reads", List.of(), pendingReads);
+    }
+
+    public static String topic(Long sessionId) {
+        return "/topic/session/" + sessionId + "/signals";
+    }
+
+    public Mono<Void> typing(Long sessionId, Long participantId, boolean typing) {
+        return signalsFor(sessionId, participantId).doOnNext(signals -> {
+            typingSignals.increment();
+            if (signals.setTyping(participantId, typing, System.currentTimeMillis())) {
+                dirtySessions.add(sessionId);
+            }
+        }).then();
+    }
+
+    public Mono<Void> read(Long sessionId, Long readerId, long seq) {
+        return signalsFor(sessionId, readerId).flatMap(signals -> {
+            readSignals.increment();
+            // The client's seq is untrusted; marking past the last message would pre-mark messages not sent yet
+            Mono<Long> upTo = seq <= signals.lastSeq() ? Mono.just(seq)
+                    : messageRepository.lastSeq(sessionId).map(last -> Math.min(seq, signals.seenLastSeq(last)));
+            return upTo.filter(clamped -> clamped > 0).doOnNext(clamped -> {
+                if (signals.advanceRead(readerId, clamped)) {
+                    pendingReads.merge(new ReadKey(sessionId, readerId), clamped, Math::max);
+                    dirtySessions.add(sessionId);
+                }
+            });
+        }).then();
+    }
+
+    public void sessionEnded(Long sessionId) {
+        // Pending watermarks stay queued for the next flush
+        sessions.remove(sessionId);
+        dirtySessions.remove(sessionId);
+    }
+
+    // Participants are checked against a copy loaded once per session, so signals cost no query after the first
+    private Mono<SessionSignals> signalsFor(Long sessionId, Long participantId) {
+        if (sessionId == null || participantId == null) {
+            rejectedSignals.increment();
+            return Mono.empty();
+        }
+        SessionSignals cached = sessions.get(sessionId);
+        Mono<SessionSignals> signals = cached != null ? Mono.just(cached) : chatSessionRepository.findById(sessionId)
+                .filter(session -> session.getStatus() == SessionStatus.ACTIVE)
+                .map(session -> sessions.computeIfAbsent(sessionId, id -> new SessionSignals(session.getUserId(), session.getExpertId())));
+        return signals.filter(s -> s.isParticipant(participantId))
+                .switchIfEmpty(Mono.fromRunnable(rejectedSignals::increment));
+    }
+
+    @Scheduled(fixedDelayString = "${chat.signals.publish-interval-ms:300}")
+    public void publish() {
+        long now = System.currentTimeMillis();
+        sessions.forEach((sessionId, signals) -> {
+            if (signals.expireTyping(now - typingTtlMillis)) {
+                dirtySessions.add(sessionId);
+            }
+        });
+
+        for (Long sessionId : List.copyOf(dirtySessions)) {
+            dirtySessions.remove(sessionId);
+            SessionSignals signals = sessions.get(sessionId);
+            if (signals != null) {
+                topicBroker.publish(topic(sessionId), signals.snapshot());
+                framesSent.increment();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.signals.eviction-interval-ms:60000}")
+    public void evictIdleSessions() {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        sessions.values().removeIf(signals -> signals.lastTouched < cutoff);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.signals.read-flush-ms:30000}")
+    public void flushReads() {
+        writeReads().subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        writeReads().block(Duration.ofSeconds(10));
+    }
+
+    private Mono<Void> writeReads() {
+        if (pendingReads.isEmpty()) {
+            return Mono.empty();
+        }
+        List<Map.Entry<ReadKey, Long>> updates = new ArrayList<>(pendingReads.size());
+        for (ReadKey key : List.copyOf(pendingReads.keySet())) {
+            Long seq = pendingReads.remove(key);
+            if (seq != null) {
+                updates.add(Map.entry(key, seq));
+            }
+        }
+        return Flux.fromIterable(updates)
+                .concatMap(u -> databaseClient.sql(MARK_READ_SQL)
+                        .bind("sessionId", u.getKey().sessionId())
+                        .bind("readerId", u.getKey().readerId())
+                        .bind("seq", u.getValue())
+                        .fetch().rowsUpdated())
+                .then(Mono.fromRunnable(() -> readsFlushed.increment(updates.size())))
+                .onErrorResume(e -> {
+                    // Put the watermarks back so the next flush retries them; the statements are idempotent
+                    updates.forEach(u -> pendingReads.merge(u.getKey(), u.getValue(), Math::max));
+                    System.err.println("[ERROR] Failed to flush " + updates.size() + " read watermarks: " + e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private record ReadKey(Long sessionId, Long readerId) {
+    }
+
+    private static class SessionSignals {
+        private final Long userId;
+        private final Long expertId;
+        // Participant id -> when they last said they were typing; absent when not typing
+        private final Map<Long, Long> typingSince = new LinkedHashMap<>();
+        private final Map<Long, Long> readSeq = new LinkedHashMap<>();
+        private volatile long lastTouched = System.currentTimeMillis();
+        private long lastSeq;
+
+        SessionSignals(Long userId, Long expertId) {
+            this.userId = userId;
+            this.expertId = expertId;
+        }
+
+        boolean isParticipant(Long participantId) {
+            return participantId.equals(userId) || participantId.equals(expertId);
+        }
+
+        synchronized boolean setTyping(Long participantId, boolean typing, long now) {
+            lastTouched = now;
+            if (typing) {
+                return typingSince.put(participantId, now) == null;
+            }
+            return typingSince.remove(participantId) != null;
+        }
+
+        synchronized boolean expireTyping(long cutoff) {
+            return typingSince.values().removeIf(since -> since < cutoff);
+        }
+
+        synchronized long lastSeq() {
+            return lastSeq;
+        }
+
+        synchronized long seenLastSeq(long seq) {
+            lastSeq = Math.max(lastSeq, seq);
+            return lastSeq;
+        }
+
+        synchronized boolean advanceRead(Long readerId, long seq) {
+            lastTouched = System.currentTimeMillis();
+            Long previous = readSeq.get(readerId);
+            if (previous != null && previous >= seq) {
+                return false;
+            }
+            readSeq.put(readerId, seq);
+            return true;
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            Map<String, Object> frame = new LinkedHashMap<>();
+            frame.put("typing", new ArrayList<>(typingSince.keySet()));
+            frame.put("read", new LinkedHashMap<>(readSeq));
+            return frame;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.experttalk.reactive.service;
+
+import com.experttalk.reactive.model.SessionStatus;
+import com.experttalk.reactive.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import java.time.LocalDateTime;
+
+/**
+ * Limits how many ACTIVE sessions an expert can have at once, with the same conditional insert as the servlet backend,
+ * so the limit holds across both stacks. There is no in-memory fast path here: the check is one statement on a
+ * non-blocking connection, and the counters would drift with every session the other stack starts or ends.
+ */
+@Service
+public class ExpertCapacityService {
+
+    private static final String RESERVE_SQL =
+            "INSERT INTO chat_sessions (user_id, expert_id, start_time, status, duration_minutes) " +
+            "SELECT :userId, :expertId, :startTime, :status, :duration FROM DUAL " +
+            "WHERE (SELECT COUNT(*) FROM chat_sessions WHERE expert_id = :expertId AND status = :status) < :limit";
+
+    private final DatabaseClient databaseClient;
+    private final int defaultMaxSessions;
+    private final Counter reserved;
+    private final Counter rejected;
+
+    @Autowired
+    public ExpertCapacityService(DatabaseClient databaseClient, MeterRegistry meterRegistry,
+                                 @Value("${chat.expert.max-concurrent-sessions:1}") int defaultMaxSessions) {
+        this.databaseClient = databaseClient;
+        this.defaultMaxSessions = defaultMaxSessions;
+        this.reserved = meterRegistry.counter("chat.capacity.reservations", "result", "reserved");
+        this.rejected = meterRegistry.counter("chat.capacity.reservations", "result", "busy-db");
+    }
+
+    /**
+     * Creates an ACTIVE session for the expert if they have capacity left.
+     * Emits the new session id, or completes empty when the expert is at their limit.
+     */
+    public Mono<Long> startSession(Long userId, User expert, int durationMinutes) {
+        return databaseClient.sql(RESERVE_SQL)
+                .bind("userId", userId)
+                .bind("expertId", expert.getId())
+                .bind("startTime", LocalDateTime.now())
+                .bind("status", SessionStatus.ACTIVE.name())
+                .bind("duration", durationMinutes)
+                .bind("limit", maxSessions(expert))
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .doOnNext(id -> reserved.increment())
+                .switchIfEmpty(Mono.fromRunnable(rejected::increment));
+    }
+
+    private int maxSessions(User expert) {
+        return expert.getMaxConcurrentSessions() != null && expert.getMaxConcurrentSessions() > 0
+                ? expert.getMaxConcurrentSessions() : defaultMaxSessions;
+    }
+}
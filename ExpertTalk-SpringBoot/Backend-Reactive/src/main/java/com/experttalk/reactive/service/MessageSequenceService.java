@@ -0,0 +1,61 @@
+package com.experttalk.reactive.service;
+
+import com.experttalk.reactive.model.Message;
+import com.experttalk.reactive.repository.MessageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import java.time.LocalDateTime;
+
+/**
+ * Gives every chat message the next per-session sequence number, exactly as the servlet backend does: the session's
+ * counter row in message_sequences is bumped in the same transaction as the insert, so both stacks can write to one
+ * session and the row lock still makes sequence order equal commit order.
+ */
+@Service
+public class MessageSequenceService {
+
+    private static final String NEXT_SEQ_SQL =
+            "UPDATE message_sequences SET last_seq = last_seq + 1 WHERE chat_session_id = :id";
+
+    // First message of a session: the counter row starts from whatever the session already holds
+    private static final String SEED_SEQ_SQL =
+            "INSERT INTO message_sequences (chat_session_id, last_seq) " +
+            "SELECT :id, COALESCE(MAX(seq), 0) FROM messages WHERE chat_session_id = :id";
+
+    private static final String CURRENT_SEQ_SQL = "SELECT last_seq FROM message_sequences WHERE chat_session_id = :id";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final MessageRepository messageRepository;
+
+    @Autowired
+    public MessageSequenceService(DatabaseClient databaseClient, TransactionalOperator transactionalOperator,
+                                  MessageRepository messageRepository) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+        this.messageRepository = messageRepository;
+    }
+
+    public Mono<Message> append(Message message) {
+        Long sessionId = message.getChatSessionId();
+        return nextSeq(sessionId)
+                .flatMap(updated -> updated > 0 ? Mono.just(updated)
+                        : databaseClient.sql(SEED_SEQ_SQL).bind("id", sessionId).fetch().rowsUpdated().then(nextSeq(sessionId)))
+                .then(databaseClient.sql(CURRENT_SEQ_SQL).bind("id", sessionId)
+                        .map(row -> row.get(0, Long.class)).one())
+                .flatMap(seq -> {
+                    message.setSeq(seq);
+                    // Stamped under the row lock so sent_at never disagrees with the sequence order
+                    message.setSentAt(LocalDateTime.now());
+                    return messageRepository.save(message);
+                })
+                .as(transactionalOperator::transactional);
+    }
+
+    private Mono<Long> nextSeq(Long sessionId) {
+        return databaseClient.sql(NEXT_SEQ_SQL).bind("id", sessionId).fetch().rowsUpdated();
+    }
+}
@@ -0,0 +1,72 @@
+package com.experttalk.reactive.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory /topic broker, the counterpart of the servlet backend's simple broker. A payload is serialized once per
+ * publish and handed to every subscriber of the destination through a multicast sink. The sink never buffers:
+ * back-pressure is applied per subscriber, by the bounded outbound queue of its WebSocket connection, so one slow
+ * client cannot hold up delivery to the others.
+ */
+@Service
+public class TopicBroker {
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+    private final Counter published;
+
+    @Autowired
+    public TopicBroker(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.published = meterRegistry.counter("chat.fanout.published");
+        meterRegistry.gaugeMapSize("chat.fanout.topics", List.of(), topics);
+    }
+
+    public Flux<String> subscribe(String destination) {
+        return Flux.defer(() -> {
+            // Counted under the map's per-key lock, so a topic is never dropped between lookup and subscription
+            Topic topic = topics.compute(destination, (d, existing) -> {
+                Topic t = existing != null ? existing : new Topic();
+                t.subscribers++;
+                return t;
+            });
+            return topic.sink.asFlux().doFinally(signal -> topics.computeIfPresent(destination,
+                    (d, t) -> --t.subscribers == 0 ? null : t));
+        });
+    }
+
+    public void publish(String destination, Object payload) {
+        Topic topic = topics.get(destination);
+        if (topic == null) {
+            return;
+        }
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            System.err.println("[ERROR] Could not serialize payload for " + destination + ": " + e.getMessage());
+            return;
+        }
+        // Sinks take one emitter at a time; publishers on different event loops take turns per topic
+        synchronized (topic) {
+            topic.sink.tryEmitNext(body);
+        }
+        published.increment();
+    }
+
+    private static class Topic {
+        // Best effort: delivers to subscribers with outstanding demand and never queues for the ones without
+        private final Sinks.Many<String> sink = Sinks.many().multicast().directBestEffort();
+        private int subscribers;
+    }
+}
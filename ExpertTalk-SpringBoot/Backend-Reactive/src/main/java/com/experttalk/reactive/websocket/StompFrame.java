@@ -0,0 +1,111 @@
+package com.experttalk.reactive.websocket;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The subset of STOMP 1.2 text frames the chat clients use (CONNECT, SUBSCRIBE, UNSUBSCRIBE, SEND, DISCONNECT in;
+ * CONNECTED, MESSAGE, RECEIPT, ERROR out). Bodies are read up to the NUL terminator; content-length is not needed
+ * because every payload here is JSON text.
+ */
+public record StompFrame(String command, Map<String, String> headers, String body) {
+
+    public String header(String name) {
+        return headers.get(name);
+    }
+
+    /**
+     * Splits buffered text into complete frames, leaving an incomplete trailing frame in the buffer.
+     * Heart-beat end-of-lines between frames are skipped.
+     */
+    public static List<StompFrame> parse(StringBuilder buffer) {
+        List<StompFrame> frames = new ArrayList<>();
+        int start = 0;
+        while (true) {
+            while (start < buffer.length() && (buffer.charAt(start) == '\n' || buffer.charAt(start) == '\r')) {
+                start++;
+            }
+            int end = buffer.indexOf("\0", start);
+            if (end < 0) {
+                break;
+            }
+            frames.add(parseOne(buffer.substring(start, end)));
+            start = end + 1;
+        }
+        buffer.delete(0, start);
+        return frames;
+    }
+
+    private static StompFrame parseOne(String text) {
+        int headerEnd = text.indexOf("\n\n");
+        int bodyStart = headerEnd + 2;
+        int crlfEnd = text.indexOf("\r\n\r\n");
+        if (crlfEnd >= 0 && (headerEnd < 0 || crlfEnd < headerEnd)) {
+            headerEnd = crlfEnd;
+            bodyStart = crlfEnd + 4;
+        }
+        if (headerEnd < 0) {
+            headerEnd = text.length();
+            bodyStart = text.length();
+        }
+        String[] lines = text.substring(0, headerEnd).split("\r?\n");
+        Map<String, String> headers = new LinkedHashMap<>();
+        boolean connect = lines[0].equals("CONNECT") || lines[0].equals("STOMP");
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0) {
+                // The first occurrence of a repeated header wins; CONNECT headers are not escaped
+                String name = connect ? lines[i].substring(0, colon) : unescape(lines[i].substring(0, colon));
+                String value = connect ? lines[i].substring(colon + 1) : unescape(lines[i].substring(colon + 1));
+                headers.putIfAbsent(name, value);
+            }
+        }
+        return new StompFrame(lines[0].trim(), headers, text.substring(Math.min(bodyStart, text.length())));
+    }
+
+    public static String connected() {
+        // Heart-beats are declined, as on the servlet endpoint, which has no broker task scheduler
+        return "CONNECTED\nversion:1.2\nheart-beat:0,0\n\n\0";
+    }
+
+    public static String message(String destination, String subscription, long messageId, String body) {
+        return "MESSAGE\ndestination:" + escape(destination) + "\ncontent-type:application/json\nsubscription:" + escape(subscription)
+                + "\nmessage-id:" + messageId + "\n\n" + body + "\0";
+    }
+
+    public static String receipt(String receiptId) {
+        return "RECEIPT\nreceipt-id:" + escape(receiptId) + "\n\n\0";
+    }
+
+    public static String error(String message) {
+        return "ERROR\nmessage:" + escape(message) + "\n\n\0";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r").replace(":", "\\c");
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                sb.append(switch (next) {
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    case 'c' -> ':';
+                    default -> next;
+                });
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,217 @@
+package com.experttalk.reactive.websocket;
+
+import com.experttalk.reactive.controller.WebSocketChatController;
+import com.experttalk.reactive.repository.ChatSessionRepository;
+import com.experttalk.reactive.repository.UserRepository;
+import com.experttalk.reactive.security.JwtUtil;
+import com.experttalk.reactive.security.StompPrincipal;
+import com.experttalk.reactive.service.TopicBroker;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * STOMP over a plain WebSocket on /ws-native, with the destinations of the servlet backend's broker: clients SUBSCRIBE
+ * to /topic/** and SEND to /app/**. Every connection writes through its own bounded queue; frames are only pulled off
+ * it as fast as the socket accepts them, and a connection whose queue fills up is closed instead of buffering without
+ * limit, the same outcome as the servlet endpoint's send-buffer limit. As there, CONNECT must carry a valid token in
+ * its Authorization header, and the user it names sends every later frame of the connection; a session's topics can
+ * only be subscribed to by its participants, and the admin topics by admins.
+ */
+@Component
+public class StompWebSocketHandler implements WebSocketHandler {
+
+    private static final Pattern SESSION_TOPIC = Pattern.compile("/topic/session/(\\d{1,18})(/end|/signals)?");
+
+    private final TopicBroker topicBroker;
+    private final WebSocketChatController webSocketChatController;
+    private final JwtUtil jwtUtil;
+    private final UserRepository userRepository;
+    private final ChatSessionRepository chatSessionRepository;
+    private final int sendBufferFrames;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Counter slowConsumers;
+
+    @Autowired
+    public StompWebSocketHandler(TopicBroker topicBroker, WebSocketChatController webSocketChatController, JwtUtil jwtUtil,
+                                 UserRepository userRepository, ChatSessionRepository chatSessionRepository, MeterRegistry meterRegistry,
+                                 @Value("${chat.fanout.send-buffer-frames:256}") int sendBufferFrames) {
+        this.topicBroker = topicBroker;
+        this.webSocketChatController = webSocketChatController;
+        this.jwtUtil = jwtUtil;
+        this.userRepository = userRepository;
+        this.chatSessionRepository = chatSessionRepository;
+        this.sendBufferFrames = sendBufferFrames;
+        this.slowConsumers = meterRegistry.counter("chat.fanout.slow.consumers");
+        meterRegistry.gauge("chat.fanout.connections", connections);
+    }
+
+    @Override
+    public Mono<Void> handle(WebSocketSession session) {
+        Connection connection = new Connection(session);
+        connections.incrementAndGet();
+
+        Mono<Void> input = session.receive()
+                .map(WebSocketMessage::getPayloadAsText)
+                // One frame at a time, so a client's SENDs are handled in the order it sent them
+                .concatMap(text -> {
+                    connection.buffer.append(text);
+                    return Flux.fromIterable(StompFrame.parse(connection.buffer));
+                })
+                .concatMap(frame -> onFrame(connection, frame))
+                .then()
+                .doFinally(signal -> {
+                    connection.close();
+                    connections.decrementAndGet();
+                });
+
+        // Completes once the outbound queue is completed (DISCONNECT or the client going away) and drained
+        Mono<Void> output = session.send(connection.outbound.asFlux().map(session::textMessage)).then(session.close());
+
+        return Mono.when(input, output);
+    }
+
+    private Mono<Void> onFrame(Connection connection, StompFrame frame) {
+        String receipt = frame.header("receipt");
+        if ((frame.command().equals("SEND") || frame.command().equals("SUBSCRIBE")) && connection.principal == null) {
+            connection.emit(StompFrame.error("Not authenticated"));
+            connection.close();
+            return Mono.empty();
+        }
+        Mono<Void> handled = switch (frame.command()) {
+            case "CONNECT", "STOMP" -> authenticate(frame.header("Authorization"))
+                    .doOnNext(principal -> {
+                        connection.principal = principal;
+                        connection.emit(StompFrame.connected());
+                    })
+                    .switchIfEmpty(Mono.fromRunnable(() -> {
+                        connection.emit(StompFrame.error("Invalid or missing token"));
+                        connection.close();
+                    }))
+                    .then();
+            case "SUBSCRIBE" -> subscribe(connection, frame.header("id"), frame.header("destination"));
+            case "UNSUBSCRIBE" -> {
+                Disposable subscription = frame.header("id") != null ? connection.subscriptions.remove(frame.header("id")) : null;
+                if (subscription != null) {
+                    subscription.dispose();
+                }
+                yield Mono.empty();
+            }
+            case "SEND" -> webSocketChatController.handle(frame.header("destination"), frame.body(), connection.principal);
+            case "DISCONNECT" -> {
+                if (receipt != null) {
+                    connection.emit(StompFrame.receipt(receipt));
+                }
+                connection.close();
+                yield Mono.empty();
+            }
+            default -> {
+                connection.emit(StompFrame.error("Unsupported frame " + frame.command()));
+                yield Mono.empty();
+            }
+        };
+        if (receipt == null || frame.command().equals("DISCONNECT")) {
+            return handled;
+        }
+        return handled.then(Mono.fromRunnable(() -> connection.emit(StompFrame.receipt(receipt))));
+    }
+
+    // The current name rather than the one in the token, looked up once for the whole connection
+    private Mono<StompPrincipal> authenticate(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ") || !jwtUtil.validateToken(authHeader.substring(7))) {
+            return Mono.empty();
+        }
+        Claims claims = jwtUtil.extractAllClaims(authHeader.substring(7));
+        Long userId = Long.valueOf(claims.get("userId").toString());
+        return userRepository.findById(userId).map(user -> new StompPrincipal(userId, user.getName(), String.valueOf(claims.get("role"))));
+    }
+
+    private Mono<Void> subscribe(Connection connection, String id, String destination) {
+        if (id == null || destination == null || !destination.startsWith("/topic/")) {
+            connection.emit(StompFrame.error("SUBSCRIBE needs an id and a /topic destination"));
+            return Mono.empty();
+        }
+        return maySubscribe(connection.principal, destination).doOnNext(allowed -> {
+            if (!allowed) {
+                connection.emit(StompFrame.error("Not allowed to subscribe to " + destination));
+                connection.close();
+                return;
+            }
+            Disposable subscription = topicBroker.subscribe(destination)
+                    .subscribe(body -> connection.emit(StompFrame.message(destination, id, connection.nextMessageId(), body)));
+            Disposable previous = connection.subscriptions.put(id, subscription);
+            if (previous != null) {
+                previous.dispose();
+            }
+        }).then();
+    }
+
+    // Same rules as the servlet backend: session topics for participants, admin topics for admins, nothing else
+    private Mono<Boolean> maySubscribe(StompPrincipal principal, String destination) {
+        if (destination.startsWith("/topic/admin/")) {
+            return Mono.just("Admin".equals(principal.role()));
+        }
+        Matcher session = SESSION_TOPIC.matcher(destination);
+        if (!session.matches()) {
+            return Mono.just(false);
+        }
+        return chatSessionRepository.findById(Long.valueOf(session.group(1)))
+                .map(chatSession -> chatSession.isParticipant(principal.userId()))
+                .defaultIfEmpty(false);
+    }
+
+    private class Connection {
+        private final WebSocketSession session;
+        private final Sinks.Many<String> outbound;
+        private final StringBuilder buffer = new StringBuilder();
+        private final Map<String, Disposable> subscriptions = new ConcurrentHashMap<>();
+        // Set by CONNECT; frames are handled one at a time, so later frames of the connection always see it
+        private volatile StompPrincipal principal;
+        private long messageIds;
+
+        Connection(WebSocketSession session) {
+            this.session = session;
+            this.outbound = Sinks.many().unicast().onBackpressureBuffer(Queues.<String>get(sendBufferFrames).get());
+        }
+
+        synchronized long nextMessageId() {
+            return messageIds++;
+        }
+
+        // Frames come from this connection's input and from any publisher's thread, so emits are serialized here
+        synchronized void emit(String frame) {
+            Sinks.EmitResult result = outbound.tryEmitNext(frame);
+            if (result == Sinks.EmitResult.FAIL_OVERFLOW) {
+                slowConsumers.increment();
+                System.err.println("[ERROR] Closing WebSocket " + session.getId() + ": more than " + sendBufferFrames + " frames queued");
+                close();
+                session.close(CloseStatus.POLICY_VIOLATION).subscribe();
+            }
+        }
+
+        void close() {
+            subscriptions.values().forEach(Disposable::dispose);
+            subscriptions.clear();
+            synchronized (this) {
+                outbound.tryEmitComplete();
+            }
+        }
+    }
+}
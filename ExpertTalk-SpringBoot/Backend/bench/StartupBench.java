@@ -0,0 +1,145 @@
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time-to-first-request and resident memory of the API at startup, for the regular boot jar and the fast-start build
+ * (Spring AOT, then AOT plus the AppCDS archive). Each run starts a fresh JVM, polls the public category list until it
+ * gets any HTTP response (so the first query is included), reads VmRSS/VmHWM from /proc at that moment and stops the process.
+ *
+ *   mvn -Pfast-start package -DskipTests
+ *   java bench/StartupBench.java [runs] [--classpath=extra.jar] [-- extra JVM options]
+ *
+ * The application needs its database as usual; --classpath appends entries (a JDBC driver, say) to every mode.
+ */
+public class StartupBench {
+
+    private static final URI PROBE = URI.create("http://localhost:5045/api/categories");
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(120);
+
+    public static void main(String[] args) throws Exception {
+        int runs = 5;
+        String extraClasspath = null;
+        List<String> jvmOptions = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--")) {
+                jvmOptions.addAll(Arrays.asList(args).subList(i + 1, args.length));
+                break;
+            } else if (args[i].startsWith("--classpath=")) {
+                extraClasspath = args[i].substring("--classpath=".length());
+            } else {
+                runs = Integer.parseInt(args[i]);
+            }
+        }
+
+        String bootJar = findBootJar();
+        String fastStartJar = "target/fast-start/expert-talk-api.jar";
+        Map<String, List<String>> modes = new LinkedHashMap<>();
+        modes.put("jar", launch(bootJar, "org.springframework.boot.loader.launch.JarLauncher", extraClasspath, List.of()));
+        modes.put("aot", launch(fastStartJar, "com.experttalk.ExpertTalkApiApplication", extraClasspath,
+                List.of("-Dspring.aot.enabled=true")));
+        modes.put("aot+cds", launch(fastStartJar, "com.experttalk.ExpertTalkApiApplication", extraClasspath,
+                List.of("-Dspring.aot.enabled=true", "-XX:SharedArchiveFile=target/fast-start/app.jsa", "-Xlog:cds=error")));
+
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        System.out.printf(Locale.ROOT, "%-8s %4s %14s %10s %10s %7s%n", "mode", "run", "first req ms", "RSS MB", "peak MB", "status");
+        Map<String, List<double[]>> results = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> mode : modes.entrySet()) {
+            List<String> command = new ArrayList<>();
+            command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(jvmOptions);
+            command.addAll(mode.getValue());
+            for (int run = 1; run <= runs; run++) {
+                double[] sample = run(http, command);
+                results.computeIfAbsent(mode.getKey(), k -> new ArrayList<>()).add(sample);
+                System.out.printf(Locale.ROOT, "%-8s %4d %14.0f %10.1f %10.1f %7.0f%n", mode.getKey(), run, sample[0], sample[1], sample[2], sample[3]);
+            }
+        }
+
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%-8s %14s %10s %10s%n", "median", "first req ms", "RSS MB", "peak MB");
+        results.forEach((mode, samples) -> System.out.printf(Locale.ROOT, "%-8s %14.0f %10.1f %10.1f%n",
+                mode, median(samples, 0), median(samples, 1), median(samples, 2)));
+    }
+
+    private static List<String> launch(String jar, String mainClass, String extraClasspath, List<String> options) {
+        if (!new File(jar).isFile()) {
+            throw new IllegalStateException(jar + " not found; build it with mvn -Pfast-start package first");
+        }
+        List<String> command = new ArrayList<>(options);
+        command.add("-cp");
+        command.add(extraClasspath != null ? jar + File.pathSeparator + extraClasspath : jar);
+        command.add(mainClass);
+        return command;
+    }
+
+    // Returns {milliseconds to first response, RSS MB, peak RSS MB, HTTP status}
+    private static double[] run(HttpClient http, List<String> command) throws Exception {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        try {
+            HttpRequest request = HttpRequest.newBuilder(PROBE).timeout(Duration.ofSeconds(5)).GET().build();
+            long deadline = start + STARTUP_TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue() + ": " + String.join(" ", command));
+                }
+                try {
+                    int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    double millis = (System.nanoTime() - start) / 1e6;
+                    return new double[] {millis, memoryMb(process.pid(), "VmRSS"), memoryMb(process.pid(), "VmHWM"), status};
+                } catch (ConnectException | java.net.http.HttpTimeoutException e) {
+                    Thread.sleep(20);
+                }
+            }
+            throw new IllegalStateException("No response from " + PROBE + " within " + STARTUP_TIMEOUT);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static double memoryMb(long pid, String field) throws IOException {
+        Path status = Path.of("/proc", String.valueOf(pid), "status");
+        if (!Files.exists(status)) {
+            return Double.NaN;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith(field + ":")) {
+                return Long.parseLong(line.replaceAll("\\D", "")) / 1024.0;
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static String findBootJar() throws IOException {
+        try (var files = Files.list(Path.of("target"))) {
+            return files.map(Path::toString)
+                    .filter(name -> name.matches(".*/expert-talk-api-[^/]*\\.jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("Boot jar not found in target; run mvn package first"));
+        }
+    }
+
+    private static double median(List<double[]> samples, int index) {
+        double[] values = samples.stream().mapToDouble(s -> s[index]).sorted().toArray();
+        return values[values.length / 2];
+    }
+}
@@ -0,0 +1,122 @@
+import com.experttalk.controller.WebSocketChatController.ChatMessage;
+import com.experttalk.controller.WebSocketChatController.ChatMessageResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Encode and decode cost, and payload size, of the chat STOMP payloads under the codecs /ws-native can negotiate.
+ * The mappers are built the way the application builds them (Jackson2ObjectMapperBuilder), and "transcode" is the
+ * extra work the server does per broker message for a CBOR or Smile session: parse the JSON payload, write it again.
+ *
+ *   mvn -q compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java -cp target/classes:$(cat target/cp.txt) bench/StompCodecBench.java [messages]
+ */
+public class StompCodecBench {
+
+    private static final String[] NAMES = {"Priya Sharma", "Dr. Arjun Mehta", "Rahul Verma", "Adv. Neha Kapoor"};
+    private static final String[] WORDS = ("thanks for joining the session today I reviewed your documents and the main issue is "
+            + "the clause about termination notice you should ask for thirty days in writing before signing anything else "
+            + "also keep copies of every payment receipt and email exchange with the landlord").split(" ");
+
+    private static final int ROUNDS = 5;
+
+    private static long sink;
+
+    public static void main(String[] args) throws Exception {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        Map<String, ObjectMapper> codecs = new LinkedHashMap<>();
+        codecs.put("json", Jackson2ObjectMapperBuilder.json().build());
+        codecs.put("cbor", Jackson2ObjectMapperBuilder.cbor().build());
+        codecs.put("smile", Jackson2ObjectMapperBuilder.smile().build());
+        ObjectMapper json = codecs.get("json");
+
+        System.out.printf(Locale.ROOT, "%-20s %-10s %-6s %10s %12s %12s %12s%n",
+                "type", "content", "codec", "B/msg", "encode ns", "decode ns", "transcode ns");
+        for (int contentChars : new int[] {20, 120, 600, 2000}) {
+            List<ChatMessage> requests = new ArrayList<>(messages);
+            List<ChatMessageResponse> responses = new ArrayList<>(messages);
+            for (int i = 0; i < messages; i++) {
+                requests.add(request(i, contentChars));
+                responses.add(response(i, contentChars));
+            }
+            for (Map.Entry<String, ObjectMapper> codec : codecs.entrySet()) {
+                run("ChatMessage", contentChars, codec.getKey(), codec.getValue(), json, requests, ChatMessage.class);
+                run("ChatMessageResponse", contentChars, codec.getKey(), codec.getValue(), json, responses, ChatMessageResponse.class);
+            }
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private static <T> void run(String type, int contentChars, String name, ObjectMapper mapper, ObjectMapper json,
+                                List<T> values, Class<T> valueType) throws Exception {
+        List<byte[]> encoded = new ArrayList<>(values.size());
+        List<byte[]> jsonEncoded = new ArrayList<>(values.size());
+        for (T value : values) {
+            encoded.add(mapper.writeValueAsBytes(value));
+            jsonEncoded.add(json.writeValueAsBytes(value));
+        }
+        double bytes = encoded.stream().mapToInt(b -> b.length).average().orElse(0);
+
+        // Best of several rounds; the first rounds double as JIT warm-up
+        double encodeNs = Double.MAX_VALUE;
+        double decodeNs = Double.MAX_VALUE;
+        double transcodeNs = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (T value : values) {
+                sink += mapper.writeValueAsBytes(value).length;
+            }
+            encodeNs = Math.min(encodeNs, (double) (System.nanoTime() - start) / values.size());
+
+            start = System.nanoTime();
+            for (byte[] payload : encoded) {
+                sink += mapper.readValue(payload, valueType).hashCode();
+            }
+            decodeNs = Math.min(decodeNs, (double) (System.nanoTime() - start) / values.size());
+
+            if (mapper != json) {
+                start = System.nanoTime();
+                for (byte[] payload : jsonEncoded) {
+                    sink += mapper.writeValueAsBytes(json.readTree(payload)).length;
+                }
+                transcodeNs = Math.min(transcodeNs, (double) (System.nanoTime() - start) / values.size());
+            }
+        }
+        System.out.printf(Locale.ROOT, "%-20s %-10s %-6s %10.1f %12.0f %12.0f %12s%n", type, contentChars + " chars", name,
+                bytes, encodeNs, decodeNs, mapper != json ? String.format(Locale.ROOT, "%.0f", transcodeNs) : "-");
+    }
+
+    private static ChatMessage request(int i, int contentChars) {
+        ChatMessage message = new ChatMessage();
+        message.setSessionId(4000L + i % 7);
+        message.setContent(content(i, contentChars));
+        return message;
+    }
+
+    private static ChatMessageResponse response(int i, int contentChars) {
+        ChatMessageResponse response = new ChatMessageResponse();
+        response.setId(180000L + i);
+        response.setSessionId(4000L + i % 7);
+        response.setSenderId(200L + i % 9);
+        response.setSenderName(NAMES[i % NAMES.length]);
+        response.setContent(content(i, contentChars));
+        response.setSentAt(LocalDateTime.of(2024, 5, 14, 10, 30).plusSeconds(i * 7L));
+        return response;
+    }
+
+    private static String content(int seed, int chars) {
+        StringBuilder sb = new StringBuilder(chars + 16);
+        for (int i = seed; sb.length() < chars; i = i * 31 + 7) {
+            sb.append(WORDS[Math.floorMod(i, WORDS.length)]).append(' ');
+        }
+        return sb.substring(0, chars);
+    }
+}
@@ -0,0 +1,112 @@
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+/**
+ * Bytes on the wire and CPU per message for chat frames on /ws, with and without permessage-deflate.
+ * Frames are built the way the simple broker sends a ChatMessageResponse through the SockJS WebSocket transport, and
+ * compressed the way Tomcat does it (raw deflate, default level, SYNC_FLUSH, trailing 00 00 FF FF dropped).
+ *
+ *   java bench/WebSocketCompressionBench.java [messages-per-size]
+ */
+public class WebSocketCompressionBench {
+
+    private static final String[] NAMES = {"Priya Sharma", "Dr. Arjun Mehta", "Rahul Verma", "Adv. Neha Kapoor"};
+    private static final String[] WORDS = ("thanks for joining the session today I reviewed your documents and the main issue is "
+            + "the clause about termination notice you should ask for thirty days in writing before signing anything else "
+            + "also keep copies of every payment receipt and email exchange with the landlord").split(" ");
+
+    public static void main(String[] args) {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        System.out.printf(Locale.ROOT, "%-10s %-20s %10s %10s %8s %12s%n", "payload", "mode", "raw B/msg", "wire B/msg", "ratio", "ns/msg");
+        for (int contentChars : new int[] {0, 20, 120, 600, 2000}) {
+            List<byte[]> frames = frames(messages, contentChars);
+            double raw = frames.stream().mapToInt(f -> f.length).average().orElse(0);
+            print(contentChars, "uncompressed", raw, raw + header(raw), 0);
+            run(contentChars, "deflate", frames, raw, true);
+            run(contentChars, "deflate no-takeover", frames, raw, false);
+        }
+    }
+
+    private static void run(int contentChars, String mode, List<byte[]> frames, double raw, boolean contextTakeover) {
+        // Warm-up pass so the JIT has compiled the deflate path before we time it
+        compress(frames, contextTakeover);
+        long start = System.nanoTime();
+        long wireBytes = compress(frames, contextTakeover);
+        long elapsed = System.nanoTime() - start;
+        double payload = (double) wireBytes / frames.size();
+        print(contentChars, mode, raw, payload + header(payload), (double) elapsed / frames.size());
+    }
+
+    private static long compress(List<byte[]> frames, boolean contextTakeover) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        byte[] out = new byte[64 * 1024];
+        long total = 0;
+        for (byte[] frame : frames) {
+            deflater.setInput(frame);
+            int written = deflater.deflate(out, 0, out.length, Deflater.SYNC_FLUSH);
+            total += written - 4;
+            if (!contextTakeover) {
+                deflater.reset();
+            }
+        }
+        deflater.end();
+        return total;
+    }
+
+    // Server-to-client frames are unmasked: 2 bytes of header, 4 more past 125 bytes of payload
+    private static int header(double payload) {
+        return payload > 125 ? 4 : 2;
+    }
+
+    private static void print(int contentChars, String mode, double raw, double wire, double nanos) {
+        String payload = contentChars == 0 ? "heartbeat" : contentChars + " chars";
+        System.out.printf(Locale.ROOT, "%-10s %-20s %10.1f %10.1f %7.0f%% %12s%n", payload, mode, raw, wire, 100 * wire / (raw + header(raw)),
+                nanos > 0 ? String.format(Locale.ROOT, "%.0f", nanos) : "-");
+    }
+
+    private static List<byte[]> frames(int count, int contentChars) {
+        List<byte[]> frames = new ArrayList<>(count);
+        LocalDateTime sentAt = LocalDateTime.of(2024, 5, 14, 10, 30);
+        for (int i = 0; i < count; i++) {
+            if (contentChars == 0) {
+                // STOMP heartbeat inside a SockJS array frame
+                frames.add("a[\"\\n\"]".getBytes(StandardCharsets.UTF_8));
+                continue;
+            }
+            long sessionId = 4000 + i % 7;
+            String json = "{\"id\":" + (180000 + i) + ",\"sessionId\":" + sessionId + ",\"senderId\":" + (200 + i % 9)
+                    + ",\"senderName\":\"" + NAMES[i % NAMES.length] + "\",\"content\":\"" + content(i, contentChars)
+                    + "\",\"sentAt\":\"" + sentAt.plusSeconds(i * 7L) + "\"}";
+            String stomp = "MESSAGE\ndestination:/topic/session/" + sessionId + "\ncontent-type:application/json\nsubscription:sub-0\n"
+                    + "message-id:" + Integer.toHexString(i * 31) + "-" + i + "\ncontent-length:" + json.length() + "\n\n" + json + "\u0000";
+            frames.add(("a[" + sockJsQuote(stomp) + "]").getBytes(StandardCharsets.UTF_8));
+        }
+        return frames;
+    }
+
+    private static String content(int seed, int chars) {
+        StringBuilder sb = new StringBuilder(chars + 16);
+        for (int i = seed; sb.length() < chars; i = i * 31 + 7) {
+            sb.append(WORDS[Math.floorMod(i, WORDS.length)]).append(' ');
+        }
+        return sb.substring(0, chars);
+    }
+
+    private static String sockJsQuote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 32).append('"');
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\u0000' -> sb.append("\\u0000");
+                default -> sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
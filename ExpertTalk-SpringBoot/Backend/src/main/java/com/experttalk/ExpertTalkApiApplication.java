@@ -2,8 +2,10 @@ package com.experttalk;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ExpertTalkApiApplication {
     public static void main(String[] args) {
         SpringApplication.run(ExpertTalkApiApplication.class, args);
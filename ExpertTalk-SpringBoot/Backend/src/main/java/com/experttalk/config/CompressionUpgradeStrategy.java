@@ -0,0 +1,170 @@
+package com.experttalk.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.websocket.Decoder;
+import jakarta.websocket.Encoder;
+import jakarta.websocket.Extension;
+import jakarta.websocket.HandshakeResponse;
+import jakarta.websocket.server.HandshakeRequest;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.server.standard.TomcatRequestUpgradeStrategy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies our permessage-deflate policy to the extensions a client offers during the WebSocket handshake.
+ * Tomcat negotiates compression on its own whenever a client asks for it and accepts whatever context-takeover terms
+ * the client proposes; this strategy can switch it off or add the no-context-takeover parameters (RFC 7692, section 7.1.1),
+ * which trade compression ratio on repetitive chat frames for not carrying a sliding window between messages.
+ */
+@Component
+public class CompressionUpgradeStrategy extends TomcatRequestUpgradeStrategy {
+
+    static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+    private static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+    private static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+
+    private final boolean enabled;
+    private final boolean serverContextTakeover;
+    private final boolean clientContextTakeover;
+
+    private final Counter compressed;
+    private final Counter uncompressed;
+
+    @Autowired
+    public CompressionUpgradeStrategy(MeterRegistry meterRegistry,
+                                      @Value("${websocket.compression.enabled:true}") boolean enabled,
+                                      @Value("${websocket.compression.server-context-takeover:true}") boolean serverContextTakeover,
+                                      @Value("${websocket.compression.client-context-takeover:true}") boolean clientContextTakeover) {
+        this.enabled = enabled;
+        this.serverContextTakeover = serverContextTakeover;
+        this.clientContextTakeover = clientContextTakeover;
+        this.compressed = meterRegistry.counter("websocket.handshakes", "compression", "deflate");
+        this.uncompressed = meterRegistry.counter("websocket.handshakes", "compression", "none");
+    }
+
+    @Override
+    protected void upgradeHttpToWebSocket(HttpServletRequest request, HttpServletResponse response,
+                                          ServerEndpointConfig endpointConfig, Map<String, String> pathParams) throws Exception {
+        super.upgradeHttpToWebSocket(request, response, new PolicyEndpointConfig(endpointConfig), pathParams);
+    }
+
+    List<Extension> applyPolicy(List<Extension> requested) {
+        List<Extension> result = new ArrayList<>(requested.size());
+        for (Extension extension : requested) {
+            if (!PERMESSAGE_DEFLATE.equals(extension.getName())) {
+                result.add(extension);
+            } else if (enabled) {
+                result.add(withContextTakeoverPolicy(extension));
+            }
+        }
+        return result;
+    }
+
+    private Extension withContextTakeoverPolicy(Extension offer) {
+        List<Extension.Parameter> parameters = new ArrayList<>(offer.getParameters());
+        if (!serverContextTakeover && !hasParameter(parameters, SERVER_NO_CONTEXT_TAKEOVER)) {
+            parameters.add(new Parameter(SERVER_NO_CONTEXT_TAKEOVER));
+        }
+        // The server may ask this of any client that offers the extension at all
+        if (!clientContextTakeover && !hasParameter(parameters, CLIENT_NO_CONTEXT_TAKEOVER)) {
+            parameters.add(new Parameter(CLIENT_NO_CONTEXT_TAKEOVER));
+        }
+        return new Extension() {
+            @Override
+            public String getName() { return offer.getName(); }
+
+            @Override
+            public List<Parameter> getParameters() { return parameters; }
+        };
+    }
+
+    private boolean hasParameter(List<Extension.Parameter> parameters, String name) {
+        return parameters.stream().anyMatch(p -> name.equals(p.getName()));
+    }
+
+    private static class Parameter implements Extension.Parameter {
+        private final String name;
+
+        Parameter(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() { return name; }
+
+        @Override
+        public String getValue() { return null; }
+    }
+
+    // Spring builds a fresh endpoint config per handshake; this wraps it so only extension negotiation changes
+    private class PolicyEndpointConfig extends ServerEndpointConfig.Configurator implements ServerEndpointConfig {
+
+        private final ServerEndpointConfig delegate;
+        private final ServerEndpointConfig.Configurator configurator;
+
+        PolicyEndpointConfig(ServerEndpointConfig delegate) {
+            this.delegate = delegate;
+            this.configurator = delegate.getConfigurator();
+        }
+
+        @Override
+        public List<Extension> getNegotiatedExtensions(List<Extension> installed, List<Extension> requested) {
+            List<Extension> negotiated = configurator.getNegotiatedExtensions(installed, applyPolicy(requested));
+            boolean deflate = negotiated.stream().anyMatch(e -> PERMESSAGE_DEFLATE.equals(e.getName()));
+            (deflate ? compressed : uncompressed).increment();
+            return negotiated;
+        }
+
+        @Override
+        public String getNegotiatedSubprotocol(List<String> supported, List<String> requested) {
+            return configurator.getNegotiatedSubprotocol(supported, requested);
+        }
+
+        @Override
+        public boolean checkOrigin(String originHeaderValue) {
+            return configurator.checkOrigin(originHeaderValue);
+        }
+
+        @Override
+        public void modifyHandshake(ServerEndpointConfig sec, HandshakeRequest request, HandshakeResponse response) {
+            configurator.modifyHandshake(sec, request, response);
+        }
+
+        @Override
+        public <T> T getEndpointInstance(Class<T> endpointClass) throws InstantiationException {
+            return configurator.getEndpointInstance(endpointClass);
+        }
+
+        @Override
+        public Class<?> getEndpointClass() { return delegate.getEndpointClass(); }
+
+        @Override
+        public String getPath() { return delegate.getPath(); }
+
+        @Override
+        public List<String> getSubprotocols() { return delegate.getSubprotocols(); }
+
+        @Override
+        public List<Extension> getExtensions() { return delegate.getExtensions(); }
+
+        @Override
+        public ServerEndpointConfig.Configurator getConfigurator() { return this; }
+
+        @Override
+        public List<Class<? extends Encoder>> getEncoders() { return delegate.getEncoders(); }
+
+        @Override
+        public List<Class<? extends Decoder>> getDecoders() { return delegate.getDecoders(); }
+
+        @Override
+        public Map<String, Object> getUserProperties() { return delegate.getUserProperties(); }
+    }
+}
@@ -0,0 +1,246 @@
+package com.experttalk.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lets clients on the native /ws-native endpoint pick a binary payload codec (CBOR or Smile) with the content-type
+ * header of their STOMP CONNECT frame. Broker messages are still produced as JSON and transcoded once per codec on
+ * the way out, and the frames of those sessions are sent as binary WebSocket messages. SockJS clients, and anyone who
+ * asks for something we do not know, stay on JSON.
+ */
+@Component
+public class StompCodecNegotiator implements HandshakeInterceptor, ChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    public enum Codec {
+        JSON(MimeTypeUtils.APPLICATION_JSON),
+        CBOR(new MimeType("application", "cbor")),
+        SMILE(new MimeType("application", "x-jackson-smile"));
+
+        private final MimeType mimeType;
+
+        Codec(MimeType mimeType) {
+            this.mimeType = mimeType;
+        }
+
+        public MimeType getMimeType() {
+            return mimeType;
+        }
+
+        static Codec of(String contentType) {
+            if (contentType == null || contentType.isBlank()) {
+                return JSON;
+            }
+            try {
+                MimeType requested = MimeTypeUtils.parseMimeType(contentType);
+                for (Codec codec : values()) {
+                    if (codec.mimeType.equalsTypeAndSubtype(requested)) {
+                        return codec;
+                    }
+                }
+            } catch (IllegalArgumentException ignored) {
+                // Malformed content-type, fall back to JSON like any other unknown codec
+            }
+            return JSON;
+        }
+    }
+
+    static final String NATIVE_ATTRIBUTE = "stomp.native";
+
+    private final ObjectMapper jsonMapper;
+    private final Map<Codec, ObjectMapper> mappers = new EnumMap<>(Codec.class);
+    private final MeterRegistry meterRegistry;
+
+    // STOMP session id (the same as the WebSocket session id) -> negotiated codec, for native sessions only
+    private final Map<String, Codec> sessionCodecs = new ConcurrentHashMap<>();
+
+    // The simple broker hands every subscriber the same payload array, so remembering the last one encodes a fan-out once
+    private final Map<Codec, AtomicReference<Transcoded>> lastTranscoded = new EnumMap<>(Codec.class);
+
+    @Autowired
+    public StompCodecNegotiator(ObjectMapper jsonMapper, MeterRegistry meterRegistry) {
+        this.jsonMapper = jsonMapper;
+        this.meterRegistry = meterRegistry;
+        mappers.put(Codec.CBOR, Jackson2ObjectMapperBuilder.cbor().build());
+        mappers.put(Codec.SMILE, Jackson2ObjectMapperBuilder.smile().build());
+        for (Codec codec : mappers.keySet()) {
+            lastTranscoded.put(codec, new AtomicReference<>());
+        }
+    }
+
+    /**
+     * Converters for inbound SEND frames whose content-type is CBOR or Smile. They only match on an explicit
+     * content-type, so anything sent without one still goes through the default JSON converter.
+     */
+    public void addMessageConverters(List<MessageConverter> converters) {
+        mappers.forEach((codec, mapper) -> {
+            MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter(codec.getMimeType());
+            converter.setObjectMapper(mapper);
+            converter.setStrictContentTypeMatch(true);
+            converters.add(converter);
+        });
+    }
+
+    /** Reader for an inbound payload of the given content-type, matching the converters above; JSON when there is none. */
+    ObjectMapper mapperFor(MimeType contentType) {
+        for (Map.Entry<Codec, ObjectMapper> entry : mappers.entrySet()) {
+            if (contentType != null && entry.getKey().getMimeType().equalsTypeAndSubtype(contentType)) {
+                return entry.getValue();
+            }
+        }
+        return jsonMapper;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        attributes.put(NATIVE_ATTRIBUTE, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor != null && accessor.getCommand() == StompCommand.CONNECT) {
+            negotiate(accessor);
+        }
+        return message;
+    }
+
+    /**
+     * Interceptor for the client outbound channel that re-encodes broker JSON payloads for sessions on a binary codec.
+     */
+    public ChannelInterceptor outboundInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                return encodeForSession(message);
+            }
+        };
+    }
+
+    private Message<?> encodeForSession(Message<?> message) {
+        SimpMessageHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, SimpMessageHeaderAccessor.class);
+        if (accessor == null || accessor.getMessageType() != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        Codec codec = sessionCodecs.get(accessor.getSessionId());
+        MimeType contentType = accessor.getContentType();
+        if (codec == null || codec == Codec.JSON || !(message.getPayload() instanceof byte[] payload)
+                || contentType == null || !MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            return message;
+        }
+
+        byte[] encoded = transcode(payload, codec);
+        if (encoded == null) {
+            return message;
+        }
+        MessageHeaderAccessor outbound = MessageHeaderAccessor.getMutableAccessor(message);
+        outbound.setContentType(codec.getMimeType());
+        return MessageBuilder.createMessage(encoded, outbound.getMessageHeaders());
+    }
+
+    private void negotiate(StompHeaderAccessor accessor) {
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (attributes == null || !Boolean.TRUE.equals(attributes.get(NATIVE_ATTRIBUTE))) {
+            return;
+        }
+        Codec codec = Codec.of(accessor.getFirstNativeHeader("content-type"));
+        sessionCodecs.put(accessor.getSessionId(), codec);
+        meterRegistry.counter("stomp.codec.sessions", "codec", codec.name().toLowerCase()).increment();
+        System.out.println("[DEBUG] STOMP session " + accessor.getSessionId() + " negotiated " + codec.getMimeType());
+    }
+
+    private byte[] transcode(byte[] json, Codec codec) {
+        AtomicReference<Transcoded> cache = lastTranscoded.get(codec);
+        Transcoded last = cache.get();
+        if (last != null && last.source == json) {
+            return last.encoded;
+        }
+        try {
+            byte[] encoded = mappers.get(codec).writeValueAsBytes(jsonMapper.readTree(json));
+            cache.set(new Transcoded(json, encoded));
+            return encoded;
+        } catch (IOException e) {
+            System.err.println("[ERROR] Failed to encode STOMP payload as " + codec.getMimeType() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        sessionCodecs.remove(event.getSessionId());
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                // The STOMP handler keeps the session it is given here and sends every frame through it
+                super.afterConnectionEstablished(Boolean.TRUE.equals(session.getAttributes().get(NATIVE_ATTRIBUTE))
+                        ? new BinaryFrameSession(session) : session);
+            }
+        };
+    }
+
+    // Spring only emits binary frames for application/octet-stream, so binary codec payloads would be mangled as text
+    private class BinaryFrameSession extends WebSocketSessionDecorator {
+
+        BinaryFrameSession(WebSocketSession session) {
+            super(session);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            Codec codec = sessionCodecs.get(getId());
+            if (message instanceof TextMessage text && codec != null && codec != Codec.JSON) {
+                message = new BinaryMessage(text.asBytes());
+            }
+            super.sendMessage(message);
+        }
+    }
+
+    private record Transcoded(byte[] source, byte[] encoded) {
+    }
+}
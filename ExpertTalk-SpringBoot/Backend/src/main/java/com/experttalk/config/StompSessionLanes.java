@@ -0,0 +1,121 @@
+package com.experttalk.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ordered processing for inbound chat frames. SEND frames to /app/sendMessage and /app/endSession are handed to one of
+ * a fixed set of single-threaded lanes, picked by hashing the chat session id of their payload, so the frames of one
+ * session are stored and broadcast in the order they arrived while other sessions proceed on the other lanes (the broker
+ * preserves publish order, so subscribers receive them in that order too). Every
+ * other inbound frame, and any chat frame without a readable session id, runs on the shared pool as before. A lane
+ * holds at most queue-capacity frames; past that the frame is refused and the client gets an ERROR frame.
+ */
+@Component
+public class StompSessionLanes {
+
+    private static final Set<String> LANE_DESTINATIONS = Set.of("/app/sendMessage", "/app/endSession");
+
+    private final StompCodecNegotiator stompCodecNegotiator;
+    private final List<ThreadPoolExecutor> lanes = new ArrayList<>();
+    private final Counter rejected;
+
+    @Autowired
+    public StompSessionLanes(StompCodecNegotiator stompCodecNegotiator, MeterRegistry meterRegistry,
+                             @Value("${websocket.inbound.lanes:0}") int laneCount,
+                             @Value("${websocket.inbound.lane-queue-capacity:256}") int queueCapacity) {
+        this.stompCodecNegotiator = stompCodecNegotiator;
+        int count = laneCount > 0 ? laneCount : Runtime.getRuntime().availableProcessors() * 2;
+        for (int i = 0; i < count; i++) {
+            String name = "stomp-lane-" + i;
+            ThreadPoolExecutor lane = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.AbortPolicy());
+            lanes.add(lane);
+            meterRegistry.gauge("stomp.lanes.queue.depth", Tags.of("lane", String.valueOf(i)), lane, pool -> pool.getQueue().size());
+        }
+        this.rejected = meterRegistry.counter("stomp.lanes.rejected");
+        System.out.println("[DEBUG] Inbound chat frames ordered on " + count + " lane(s)");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.forEach(ThreadPoolExecutor::shutdown);
+    }
+
+    /**
+     * Executor for the client inbound channel: the same unbounded pool Spring would create, except that chat frames
+     * go to their session's lane.
+     */
+    public ThreadPoolTaskExecutor inboundExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor() {
+            @Override
+            public void execute(Runnable task) {
+                ThreadPoolExecutor lane = laneFor(task);
+                if (lane == null) {
+                    super.execute(task);
+                    return;
+                }
+                try {
+                    lane.execute(task);
+                } catch (RejectedExecutionException e) {
+                    rejected.increment();
+                    throw e;
+                }
+            }
+        };
+        executor.setCorePoolSize(Runtime.getRuntime().availableProcessors() * 2);
+        executor.setThreadNamePrefix("clientInboundChannel-");
+        return executor;
+    }
+
+    // Only the @MessageMapping handler's task is ordered; the broker handlers ignore /app destinations anyway
+    private ThreadPoolExecutor laneFor(Runnable task) {
+        if (!(task instanceof MessageHandlingRunnable handling)
+                || !(handling.getMessageHandler() instanceof SimpAnnotationMethodMessageHandler)) {
+            return null;
+        }
+        Message<?> message = handling.getMessage();
+        SimpMessageHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, SimpMessageHeaderAccessor.class);
+        if (accessor == null || accessor.getDestination() == null || !LANE_DESTINATIONS.contains(accessor.getDestination())
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return null;
+        }
+        Long sessionId = sessionId(payload, accessor.getContentType());
+        return sessionId != null ? lanes.get(Math.floorMod(Long.hashCode(sessionId), lanes.size())) : null;
+    }
+
+    private Long sessionId(byte[] payload, MimeType contentType) {
+        try {
+            JsonNode id = stompCodecNegotiator.mapperFor(contentType).readTree(payload).get("sessionId");
+            return id != null && id.canConvertToLong() ? id.asLong() : null;
+        } catch (IOException e) {
+            // The handler reports the unreadable payload itself
+            return null;
+        }
+    }
+}
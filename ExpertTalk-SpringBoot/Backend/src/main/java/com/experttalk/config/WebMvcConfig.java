@@ -0,0 +1,27 @@
+package com.experttalk.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Replaces spring.jpa.open-in-view: an open EntityManager holds its JDBC connection until the request completes,
+        // which for the async auth endpoints would include the whole wait for a BCrypt worker. The async read endpoints
+        // query on the read pool, where the request's EntityManager is not bound anyway.
+        OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
+        interceptor.setEntityManagerFactory(entityManagerFactory);
+        registry.addWebRequestInterceptor(interceptor)
+                .excludePathPatterns("/api/auth/login", "/api/auth/register", "/api/auth/profile/change-password",
+                        "/api/chat/sessions", "/api/chat/sessions/*/messages", "/api/admin/stats", "/api/admin/sessions");
+    }
+}
@@ -1,25 +1,82 @@
 package com.experttalk.config;
 
+import com.experttalk.security.StompAuthInterceptor;
+import com.experttalk.security.StompRateLimitInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Autowired
+    private StompAuthInterceptor stompAuthInterceptor;
+
+    @Autowired
+    private StompRateLimitInterceptor stompRateLimitInterceptor;
+
+    @Autowired
+    private CompressionUpgradeStrategy compressionUpgradeStrategy;
+
+    @Autowired
+    private StompCodecNegotiator stompCodecNegotiator;
+
+    @Autowired
+    private StompSessionLanes stompSessionLanes;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic");
         config.setApplicationDestinationPrefixes("/app");
+        // The lanes order a session's messages on the way in; this keeps that order on each subscriber's way out
+        config.setPreservePublishOrder(true);
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
+                .setHandshakeHandler(new DefaultHandshakeHandler(compressionUpgradeStrategy))
+                .addInterceptors(stompRateLimitInterceptor)
                 .withSockJS();
+
+        // Native WebSocket clients can negotiate CBOR or Smile payloads on CONNECT, see StompCodecNegotiator
+        registry.addEndpoint("/ws-native")
+                .setAllowedOriginPatterns("*")
+                .setHandshakeHandler(new DefaultHandshakeHandler(compressionUpgradeStrategy))
+                .addInterceptors(stompRateLimitInterceptor, stompCodecNegotiator);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Authentication first, so rate limits are keyed by the connection's user
+        registration.interceptors(stompAuthInterceptor, stompRateLimitInterceptor, stompCodecNegotiator);
+        // Chat frames of one session are handled in order, one at a time, see StompSessionLanes
+        registration.taskExecutor(stompSessionLanes.inboundExecutor());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompCodecNegotiator.outboundInterceptor());
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(stompCodecNegotiator);
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        stompCodecNegotiator.addMessageConverters(messageConverters);
+        return true;
     }
 }
\ No newline at end of file
@@ -1,22 +1,64 @@
 package com.experttalk.controller;
 
+import com.experttalk.dto.AdminDTOs.CacheRegionStats;
+import com.experttalk.dto.AdminDTOs.LeaderboardEntry;
+import com.experttalk.dto.AdminDTOs.PageResponse;
+import com.experttalk.dto.AdminDTOs.RollupStats;
 import com.experttalk.model.*;
 import com.experttalk.repository.*;
+import com.experttalk.service.AdminEventPublisher;
+import com.experttalk.service.ExpertLeaderboardService;
+import com.experttalk.service.ReadQueryService;
+import com.experttalk.service.SessionEndService;
+import com.experttalk.service.SessionExportService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+// Admin-only, so it is created on the first admin request rather than at startup
 @RestController
+@Lazy
 @RequestMapping("/api/admin")
 @CrossOrigin(origins = "http://localhost:3000")
 public class AdminController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final Set<String> USER_SORT_FIELDS = Set.of("id", "name", "email", "userType", "createdAt");
+    private static final Set<String> SESSION_SORT_FIELDS = Set.of("id", "startTime", "endTime", "durationMinutes", "totalAmount");
+    private static final Duration MAX_HOURLY_ROLLUP_RANGE = Duration.ofDays(31);
+    private static final Duration MAX_DAILY_ROLLUP_RANGE = Duration.ofDays(366);
+
     @Autowired
     private UserRepository userRepository;
     
@@ -33,112 +75,135 @@ public class AdminController {
     private InquiryRepository inquiryRepository;
     
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private SessionRollupRepository sessionRollupRepository;
+    
+    @Autowired
+    private AdminEventPublisher adminEventPublisher;
     
     @Autowired
     private PasswordEncoder passwordEncoder;
+    
+    @Autowired
+    private SessionExportService sessionExportService;
+    
+    @Autowired
+    private ExpertLeaderboardService leaderboardService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private SessionEndService sessionEndService;
+
+    @Autowired
+    private ReadQueryService readQueryService;
+
+    // Entity writes and their dashboard events commit together, so the outbox never misses or invents a change
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${export.request-timeout:30m}")
+    private Duration exportTimeout;
 
     @GetMapping("/stats")
-    public ResponseEntity<DashboardStats> getDashboardStats() {
+    public CompletableFuture<ResponseEntity<DashboardStats>> getDashboardStats() {
         try {
             System.out.println("[DEBUG] Fetching dashboard stats...");
-            DashboardStats stats = new DashboardStats();
-            
-            // Count all users by type
-            Long totalUsers = userRepository.countByUserType(UserType.USER);
-            if (totalUsers == null) totalUsers = 0L;
-            stats.setTotalUsers(totalUsers);
-            System.out.println("[DEBUG] Total users: " + totalUsers);
-            
-            Long totalExperts = userRepository.countByUserType(UserType.EXPERT);
-            if (totalExperts == null) totalExperts = 0L;
-            stats.setTotalExperts(totalExperts);
-            System.out.println("[DEBUG] Total experts: " + totalExperts);
-            
-            Long totalSessions = chatSessionRepository.count();
-            stats.setTotalSessions(totalSessions);
-            System.out.println("[DEBUG] Total sessions: " + totalSessions);
-            
-            Long activeSessions = 0L;
-            try {
-                activeSessions = chatSessionRepository.countByStatus(SessionStatus.ACTIVE);
-            } catch (Exception e) {
-                System.out.println("[DEBUG] Could not count active sessions: " + e.getMessage());
-            }
-            stats.setActiveSessions(activeSessions);
-            System.out.println("[DEBUG] Active sessions: " + activeSessions);
             
-            BigDecimal totalRevenue = BigDecimal.ZERO;
-            try {
-                totalRevenue = chatSessionRepository.findAll().stream()
+            // The figures are independent, so they are queried side by side; each one falls back to zero on its own
+            CompletableFuture<Long> totalUsers = dashboardStat("Total users", () -> userRepository.countByUserType(UserType.USER), 0L);
+            CompletableFuture<Long> totalExperts = dashboardStat("Total experts", () -> userRepository.countByUserType(UserType.EXPERT), 0L);
+            CompletableFuture<Long> totalSessions = dashboardStat("Total sessions", chatSessionRepository::count, 0L);
+            CompletableFuture<Long> activeSessions = dashboardStat("Active sessions", () -> chatSessionRepository.countByStatus(SessionStatus.ACTIVE), 0L);
+            CompletableFuture<BigDecimal> totalRevenue = dashboardStat("Total revenue", () -> chatSessionRepository.findAll().stream()
                     .filter(s -> s.getTotalAmount() != null)
                     .map(ChatSession::getTotalAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            } catch (Exception e) {
-                System.out.println("[DEBUG] Could not calculate revenue: " + e.getMessage());
-            }
-            stats.setTotalRevenue(totalRevenue);
-            System.out.println("[DEBUG] Total revenue: " + totalRevenue);
-            
-            Long totalCategories = categoryRepository.count();
-            stats.setTotalCategories(totalCategories);
-            System.out.println("[DEBUG] Total categories: " + totalCategories);
+                    .reduce(BigDecimal.ZERO, BigDecimal::add), BigDecimal.ZERO);
+            CompletableFuture<Long> totalCategories = dashboardStat("Total categories", categoryRepository::count, 0L);
+            CompletableFuture<Long> completedSessions = dashboardStat("Completed sessions", () -> chatSessionRepository.countByStatus(SessionStatus.COMPLETED), 0L);
+            CompletableFuture<Long> pendingExperts = dashboardStat("Pending experts", () -> userRepository.countByUserTypeAndIsApproved(UserType.EXPERT, false), 0L);
+            // Summed over every message shard
+            CompletableFuture<Long> totalMessages = dashboardStat("Total messages", messageRepository::count, 0L);
             
-            Long completedSessions = 0L;
-            try {
-                completedSessions = chatSessionRepository.countByStatus(SessionStatus.COMPLETED);
-            } catch (Exception e) {
-                System.out.println("[DEBUG] Could not count completed sessions: " + e.getMessage());
-            }
-            stats.setCompletedSessions(completedSessions);
-            System.out.println("[DEBUG] Completed sessions: " + completedSessions);
+            CompletableFuture<DashboardStats> stats = CompletableFuture.allOf(totalUsers, totalExperts, totalSessions, activeSessions,
+                    totalRevenue, totalCategories, completedSessions, pendingExperts, totalMessages).thenApply(done -> {
+                DashboardStats result = new DashboardStats();
+                result.setTotalUsers(totalUsers.join());
+                result.setTotalExperts(totalExperts.join());
+                result.setTotalSessions(totalSessions.join());
+                result.setActiveSessions(activeSessions.join());
+                result.setTotalRevenue(totalRevenue.join());
+                result.setTotalCategories(totalCategories.join());
+                result.setCompletedSessions(completedSessions.join());
+                result.setPendingExperts(pendingExperts.join());
+                result.setTotalMessages(totalMessages.join());
+                System.out.println("[DEBUG] Dashboard stats fetched successfully");
+                return result;
+            });
             
-            Long pendingExperts = 0L;
-            try {
-                pendingExperts = userRepository.countByUserTypeAndIsApproved(UserType.EXPERT, false);
-            } catch (Exception e) {
-                System.out.println("[DEBUG] Could not count pending experts: " + e.getMessage());
-            }
-            stats.setPendingExperts(pendingExperts);
-            System.out.println("[DEBUG] Pending experts: " + pendingExperts);
-            
-            System.out.println("[DEBUG] Dashboard stats fetched successfully");
-            return ResponseEntity.ok(stats);
+            return readQueryService.within(ReadQueryService.Endpoint.ADMIN_STATS, stats)
+                    .thenApply(ResponseEntity::ok)
+                    .exceptionally(this::dashboardStatsFailed);
         } catch (Exception e) {
-            System.err.println("[ERROR] Failed to fetch dashboard stats: " + e.getMessage());
-            e.printStackTrace();
-            // Return default stats instead of error
-            DashboardStats defaultStats = new DashboardStats();
-            defaultStats.setTotalUsers(0L);
-            defaultStats.setTotalExperts(0L);
-            defaultStats.setTotalSessions(0L);
-            defaultStats.setActiveSessions(0L);
-            defaultStats.setTotalRevenue(BigDecimal.ZERO);
-            defaultStats.setTotalCategories(0L);
-            defaultStats.setCompletedSessions(0L);
-            defaultStats.setPendingExperts(0L);
-            return ResponseEntity.ok(defaultStats);
+            return CompletableFuture.completedFuture(dashboardStatsFailed(e));
         }
     }
+    
+    private <T> CompletableFuture<T> dashboardStat(String label, Supplier<T> query, T fallback) {
+        return readQueryService.submit(query).handle((value, ex) -> {
+            if (ex != null) {
+                System.out.println("[DEBUG] Could not fetch " + label.toLowerCase() + ": " + ReadQueryService.unwrap(ex).getMessage());
+                return fallback;
+            }
+            System.out.println("[DEBUG] " + label + ": " + value);
+            return value != null ? value : fallback;
+        });
+    }
+    
+    private ResponseEntity<DashboardStats> dashboardStatsFailed(Throwable e) {
+        if (ReadQueryService.isUnavailable(e)) {
+            return unavailable();
+        }
+        System.err.println("[ERROR] Failed to fetch dashboard stats: " + e.getMessage());
+        e.printStackTrace();
+        // Return default stats instead of error
+        DashboardStats defaultStats = new DashboardStats();
+        defaultStats.setTotalUsers(0L);
+        defaultStats.setTotalExperts(0L);
+        defaultStats.setTotalSessions(0L);
+        defaultStats.setActiveSessions(0L);
+        defaultStats.setTotalRevenue(BigDecimal.ZERO);
+        defaultStats.setTotalCategories(0L);
+        defaultStats.setCompletedSessions(0L);
+        defaultStats.setPendingExperts(0L);
+        defaultStats.setTotalMessages(0L);
+        return ResponseEntity.ok(defaultStats);
+    }
+    
+    // The read pool is full or the endpoint's deadline passed; the client should simply retry
+    private <T> ResponseEntity<T> unavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").build();
+    }
 
     @GetMapping("/users")
-    public ResponseEntity<List<Map<String, Object>>> getAllUsers() {
+    public ResponseEntity<PageResponse<UserRepository.AdminUserView>> getAllUsers(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "id,desc") String sort,
+            @RequestParam(required = false) Integer userType,
+            @RequestParam(required = false) Boolean isApproved,
+            @RequestParam(required = false) Long categoryId) {
         try {
-            List<User> users = userRepository.findAll();
-            List<Map<String, Object>> userDtos = users.stream().map(user -> {
-                Map<String, Object> dto = new HashMap<>();
-                dto.put("id", user.getId());
-                dto.put("name", user.getName());
-                dto.put("email", user.getEmail());
-                dto.put("userType", user.getUserType().name());
-                dto.put("categoryId", user.getCategoryId());
-                dto.put("isApproved", user.getIsApproved());
-                dto.put("createdAt", user.getCreatedAt());
-                return dto;
-            }).collect(Collectors.toList());
-            return ResponseEntity.ok(userDtos);
+            UserType type = userType != null ? UserType.fromValue(userType) : null;
+            Pageable pageable = PageRequest.of(Math.max(0, page), Math.min(Math.max(1, size), MAX_PAGE_SIZE),
+                    parseSort(sort, USER_SORT_FIELDS, "id"));
+            Page<UserRepository.AdminUserView> users = userRepository.findAdminUsers(type, isApproved, categoryId, pageable);
+            return ResponseEntity.ok(new PageResponse<>(users));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
-            return ResponseEntity.ok(new ArrayList<>());
+            System.err.println("[ERROR] Failed to fetch users: " + e.getMessage());
+            return ResponseEntity.ok(new PageResponse<>(Page.empty()));
         }
     }
     
@@ -158,28 +223,152 @@ public class AdminController {
     }
 
     @GetMapping("/sessions")
-    public ResponseEntity<List<SessionDto>> getAllSessions() {
+    public CompletableFuture<ResponseEntity<PageResponse<SessionDto>>> getAllSessions(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "startTime,desc") String sort,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long expertId,
+            @RequestParam(required = false) Long userId) {
+        SessionStatus sessionStatus;
+        Pageable pageable;
         try {
-            System.out.println("[DEBUG] Fetching all sessions...");
-            List<ChatSession> sessions;
-            try {
-                sessions = chatSessionRepository.findAllByOrderByStartTimeDesc();
-            } catch (Exception e) {
-                System.out.println("[DEBUG] findAllByOrderByStartTimeDesc failed, using findAll");
-                sessions = chatSessionRepository.findAll();
-                sessions.sort((a, b) -> b.getStartTime().compareTo(a.getStartTime()));
-            }
-            System.out.println("[DEBUG] Found " + sessions.size() + " sessions");
-            List<SessionDto> sessionDtos = sessions.stream().map(this::convertToSessionDto).collect(Collectors.toList());
-            System.out.println("[DEBUG] Converted to " + sessionDtos.size() + " session DTOs");
-            return ResponseEntity.ok(sessionDtos);
+            sessionStatus = status != null && !status.isBlank() ? SessionStatus.valueOf(status.trim().toUpperCase()) : null;
+            pageable = PageRequest.of(Math.max(0, page), Math.min(Math.max(1, size), MAX_PAGE_SIZE),
+                    parseSort(sort, SESSION_SORT_FIELDS, "startTime"));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        
+        try {
+            CompletableFuture<PageResponse<SessionDto>> response = readQueryService.submit(() -> chatSessionRepository.findAll(
+                    ChatSessionSpecifications.adminFilter(sessionStatus, from, to, expertId, userId), pageable))
+                    .thenCompose(sessions -> {
+                        System.out.println("[DEBUG] Found " + sessions.getNumberOfElements() + " of " + sessions.getTotalElements() + " sessions");
+                        return convertToSessionDtosAsync(sessions.getContent()).thenApply(dtos -> new PageResponse<>(sessions, dtos));
+                    });
+            return readQueryService.within(ReadQueryService.Endpoint.ADMIN_SESSIONS, response)
+                    .thenApply(ResponseEntity::ok)
+                    .exceptionally(this::sessionsFailed);
         } catch (Exception e) {
-            System.err.println("[ERROR] Failed to fetch sessions: " + e.getMessage());
-            e.printStackTrace();
-            return ResponseEntity.ok(new ArrayList<>());
+            return CompletableFuture.completedFuture(sessionsFailed(e));
         }
     }
     
+    private ResponseEntity<PageResponse<SessionDto>> sessionsFailed(Throwable e) {
+        if (ReadQueryService.isUnavailable(e)) {
+            return unavailable();
+        }
+        System.err.println("[ERROR] Failed to fetch sessions: " + e.getMessage());
+        e.printStackTrace();
+        return ResponseEntity.ok(new PageResponse<>(Page.empty()));
+    }
+    
+    @GetMapping("/export/sessions")
+    public ResponseEntity<StreamingResponseBody> exportSessions(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            NativeWebRequest webRequest) {
+        boolean csv = format.equalsIgnoreCase("csv");
+        if (!csv && !format.equalsIgnoreCase("ndjson")) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // A full export outlives the global async timeout, so only this request's streaming gets the longer one
+        WebAsyncUtils.getAsyncManager(webRequest).registerCallableInterceptor(SessionExportService.class, new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                ((AsyncWebRequest) request).setTimeout(exportTimeout.toMillis());
+            }
+        });
+        
+        // Rows are written straight to the response as the cursor advances, so memory stays flat for any history size
+        StreamingResponseBody body = out -> {
+            if (csv) {
+                sessionExportService.writeCsv(out, from, to);
+            } else {
+                sessionExportService.writeNdjson(out, from, to);
+            }
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"sessions." + (csv ? "csv" : "ndjson") + "\"")
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : new MediaType("application", "x-ndjson"))
+                .body(body);
+    }
+    
+    @GetMapping("/cache/stats")
+    public ResponseEntity<List<CacheRegionStats>> getCacheStats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<CacheRegionStats> regions = new ArrayList<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region != null) {
+                regions.add(new CacheRegionStats(regionName, region.getHitCount(), region.getMissCount(), region.getPutCount()));
+            }
+        }
+        if (statistics.getQueryCacheHitCount() + statistics.getQueryCacheMissCount() > 0) {
+            regions.add(new CacheRegionStats("query-cache (all regions)", statistics.getQueryCacheHitCount(),
+                    statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount()));
+        }
+        return ResponseEntity.ok(regions);
+    }
+    
+    // Range queries read only the pre-aggregated buckets, never chat_sessions; from/to are rounded down to bucket boundaries
+    @GetMapping("/rollups")
+    public ResponseEntity<?> getRollups(
+            @RequestParam(defaultValue = "DAY") RollupGranularity granularity,
+            @RequestParam(defaultValue = "ALL") RollupDimension dimension,
+            @RequestParam(required = false) Long dimensionId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime[] range = rollupRange(granularity, from, to);
+        if (range == null) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Invalid or too large range for " + granularity + " rollups"));
+        }
+        List<SessionRollup> rows = sessionRollupRepository.findSeries(granularity, dimension,
+                dimension == RollupDimension.ALL ? null : dimensionId, range[0], range[1]);
+        Map<Long, String> names = rollupNames(dimension, rows.stream().map(SessionRollup::getDimensionId).collect(Collectors.toSet()));
+        List<RollupStats> series = new ArrayList<>(rows.size());
+        for (SessionRollup r : rows) {
+            series.add(new RollupStats(r.getBucketStart(), r.getDimensionId(), names.get(r.getDimensionId()), r.getSessionCount(),
+                    r.getCompletedCount(), r.getTotalMinutes(), r.getRevenue(), r.getMessageCount()));
+        }
+        return ResponseEntity.ok(series);
+    }
+    
+    @GetMapping("/rollups/totals")
+    public ResponseEntity<?> getRollupTotals(
+            @RequestParam(defaultValue = "DAY") RollupGranularity granularity,
+            @RequestParam(defaultValue = "CATEGORY") RollupDimension dimension,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime[] range = rollupRange(granularity, from, to);
+        if (range == null) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Invalid or too large range for " + granularity + " rollups"));
+        }
+        List<SessionRollupRepository.RollupTotals> rows = sessionRollupRepository.sumByDimensionId(granularity, dimension, range[0], range[1]);
+        Map<Long, String> names = rollupNames(dimension, rows.stream().map(SessionRollupRepository.RollupTotals::getDimensionId).collect(Collectors.toSet()));
+        List<RollupStats> totals = new ArrayList<>(rows.size());
+        for (SessionRollupRepository.RollupTotals t : rows) {
+            totals.add(new RollupStats(null, t.getDimensionId(), names.get(t.getDimensionId()), t.getSessionCount(),
+                    t.getCompletedCount(), t.getTotalMinutes(), t.getRevenue(), t.getMessageCount()));
+        }
+        totals.sort(Comparator.comparing(RollupStats::getRevenue, Comparator.nullsLast(Comparator.reverseOrder())));
+        return ResponseEntity.ok(totals);
+    }
+    
+    // Served from in-memory rankings; the same boards are pushed to ExpertLeaderboardService.TOPIC as they change
+    @GetMapping("/leaderboards")
+    public ResponseEntity<List<LeaderboardEntry>> getLeaderboard(
+            @RequestParam(defaultValue = "TODAY") ExpertLeaderboardService.Window window,
+            @RequestParam(defaultValue = "REVENUE") ExpertLeaderboardService.Metric metric,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(leaderboardService.top(window, metric, Math.max(1, Math.min(limit, MAX_PAGE_SIZE))));
+    }
+    
     @GetMapping("/categories")
     public ResponseEntity<List<CategoryDto>> getAllCategories() {
         try {
@@ -219,9 +408,11 @@ public class AdminController {
             category.setDescription(description.trim());
             category.setIcon(icon.trim());
             
-            Category savedCategory = categoryRepository.save(category);
-            CategoryDto categoryDto = convertToCategoryDto(savedCategory);
-            messagingTemplate.convertAndSend("/topic/admin/categories", Map.of("action", "create", "data", categoryDto));
+            CategoryDto categoryDto = transactionTemplate.execute(status -> {
+                CategoryDto dto = convertToCategoryDto(categoryRepository.save(category));
+                adminEventPublisher.publishCreate(AdminEventPublisher.CATEGORIES_TOPIC, dto.getId(), dto);
+                return dto;
+            });
             return ResponseEntity.ok(categoryDto);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("message", "Failed to create category: " + e.getMessage()));
@@ -237,9 +428,11 @@ public class AdminController {
                 cat.setName(category.getName());
                 cat.setDescription(category.getDescription());
                 cat.setIcon(category.getIcon());
-                Category savedCategory = categoryRepository.save(cat);
-                CategoryDto categoryDto = convertToCategoryDto(savedCategory);
-                messagingTemplate.convertAndSend("/topic/admin/categories", Map.of("action", "update", "data", categoryDto));
+                CategoryDto categoryDto = transactionTemplate.execute(status -> {
+                    CategoryDto dto = convertToCategoryDto(categoryRepository.save(cat));
+                    adminEventPublisher.publishUpdate(AdminEventPublisher.CATEGORIES_TOPIC, dto.getId(), dto);
+                    return dto;
+                });
                 return ResponseEntity.ok(categoryDto);
             }
             return ResponseEntity.notFound().build();
@@ -252,8 +445,10 @@ public class AdminController {
     public ResponseEntity<Void> deleteCategory(@PathVariable Long id) {
         try {
             if (categoryRepository.existsById(id)) {
-                categoryRepository.deleteById(id);
-                messagingTemplate.convertAndSend("/topic/admin/categories", Map.of("action", "delete", "id", id));
+                transactionTemplate.executeWithoutResult(status -> {
+                    categoryRepository.deleteById(id);
+                    adminEventPublisher.publishDelete(AdminEventPublisher.CATEGORIES_TOPIC, id);
+                });
                 return ResponseEntity.ok().build();
             }
             return ResponseEntity.notFound().build();
@@ -305,17 +500,12 @@ public class AdminController {
             user.setIsAvailable(true);
             user.setIsOnline(false);
             
-            User savedUser = userRepository.save(user);
-            
-            // Create response without password
-            Map<String, Object> response = new HashMap<>();
-            response.put("id", savedUser.getId());
-            response.put("name", savedUser.getName());
-            response.put("email", savedUser.getEmail());
-            response.put("userType", savedUser.getUserType().name());
-            response.put("isApproved", savedUser.getIsApproved());
-            
-            messagingTemplate.convertAndSend("/topic/admin/users", Map.of("action", "create", "data", response));
+            Map<String, Object> response = transactionTemplate.execute(status -> {
+                User savedUser = userRepository.save(user);
+                Map<String, Object> body = toUserResponse(savedUser);
+                adminEventPublisher.publishCreate(AdminEventPublisher.USERS_TOPIC, savedUser.getId(), body);
+                return body;
+            });
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("message", "Failed to create user: " + e.getMessage()));
@@ -394,20 +584,20 @@ public class AdminController {
                 if (userData.containsKey("isApproved")) {
                     user.setIsApproved((Boolean) userData.get("isApproved"));
                 }
+                if (userData.containsKey("maxConcurrentSessions")) {
+                    Object maxSessions = userData.get("maxConcurrentSessions");
+                    user.setMaxConcurrentSessions(maxSessions != null && !maxSessions.toString().isEmpty()
+                            ? Integer.valueOf(maxSessions.toString()) : null);
+                }
             }
             
-            User savedUser = userRepository.save(user);
-            System.out.println("[DEBUG] Saved user with type: " + savedUser.getUserType());
-            
-            // Create response without password
-            Map<String, Object> response = new HashMap<>();
-            response.put("id", savedUser.getId());
-            response.put("name", savedUser.getName());
-            response.put("email", savedUser.getEmail());
-            response.put("userType", savedUser.getUserType().name());
-            response.put("isApproved", savedUser.getIsApproved());
-            
-            messagingTemplate.convertAndSend("/topic/admin/users", Map.of("action", "update", "data", response));
+            Map<String, Object> response = transactionTemplate.execute(status -> {
+                User savedUser = userRepository.save(user);
+                System.out.println("[DEBUG] Saved user with type: " + savedUser.getUserType());
+                Map<String, Object> body = toUserResponse(savedUser);
+                adminEventPublisher.publishUpdate(AdminEventPublisher.USERS_TOPIC, savedUser.getId(), body);
+                return body;
+            });
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             System.err.println("[ERROR] Failed to update user: " + e.getMessage());
@@ -420,8 +610,10 @@ public class AdminController {
     public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
         try {
             if (userRepository.existsById(id)) {
-                userRepository.deleteById(id);
-                messagingTemplate.convertAndSend("/topic/admin/users", Map.of("action", "delete", "id", id));
+                transactionTemplate.executeWithoutResult(status -> {
+                    userRepository.deleteById(id);
+                    adminEventPublisher.publishDelete(AdminEventPublisher.USERS_TOPIC, id);
+                });
                 return ResponseEntity.ok().build();
             }
             return ResponseEntity.notFound().build();
@@ -436,13 +628,23 @@ public class AdminController {
             Optional<ChatSession> existingSession = chatSessionRepository.findById(id);
             if (existingSession.isPresent()) {
                 ChatSession s = existingSession.get();
+                // Leaving ACTIVE goes through the conditional end, so a concurrent end or expiry is not counted twice
+                if (s.getStatus() == SessionStatus.ACTIVE && session.getStatus() != null && session.getStatus() != SessionStatus.ACTIVE) {
+                    sessionEndService.endIfActive(s, session.getStatus(),
+                            session.getEndTime() != null ? session.getEndTime() : s.getEndTime(),
+                            session.getDurationMinutes() != null ? session.getDurationMinutes() : s.getDurationMinutes(),
+                            session.getTotalAmount() != null ? session.getTotalAmount() : s.getTotalAmount());
+                }
                 if (session.getEndTime() != null) s.setEndTime(session.getEndTime());
                 if (session.getStatus() != null) s.setStatus(session.getStatus());
                 if (session.getDurationMinutes() != null) s.setDurationMinutes(session.getDurationMinutes());
                 if (session.getTotalAmount() != null) s.setTotalAmount(session.getTotalAmount());
-                ChatSession savedSession = chatSessionRepository.save(s);
-                SessionDto sessionDto = convertToSessionDto(savedSession);
-                messagingTemplate.convertAndSend("/topic/admin/sessions", Map.of("action", "update", "data", sessionDto));
+                SessionDto sessionDto = transactionTemplate.execute(status -> {
+                    ChatSession savedSession = chatSessionRepository.save(s);
+                    SessionDto dto = convertToSessionDto(savedSession);
+                    adminEventPublisher.publishUpdate(AdminEventPublisher.SESSIONS_TOPIC, dto.getId(), dto);
+                    return dto;
+                });
                 return ResponseEntity.ok(sessionDto);
             }
             return ResponseEntity.notFound().build();
@@ -455,8 +657,13 @@ public class AdminController {
     public ResponseEntity<Void> deleteSession(@PathVariable Long id) {
         try {
             if (chatSessionRepository.existsById(id)) {
-                chatSessionRepository.deleteById(id);
-                messagingTemplate.convertAndSend("/topic/admin/sessions", Map.of("action", "delete", "id", id));
+                // Messages are on the session's shard, outside the session's transaction, and go first: on an unsharded
+                // database created before sharding, messages still have a foreign key to chat_sessions
+                messageRepository.deleteByChatSessionId(id);
+                transactionTemplate.executeWithoutResult(status -> {
+                    chatSessionRepository.deleteById(id);
+                    adminEventPublisher.publishDelete(AdminEventPublisher.SESSIONS_TOPIC, id);
+                });
                 return ResponseEntity.ok().build();
             }
             return ResponseEntity.notFound().build();
@@ -495,39 +702,110 @@ public class AdminController {
         }
     }
     
+    // Only whitelisted properties may be sorted on, anything else falls back to the default
+    private Sort parseSort(String sort, Set<String> allowedFields, String defaultField) {
+        String[] parts = sort.split(",");
+        String field = allowedFields.contains(parts[0].trim()) ? parts[0].trim() : defaultField;
+        boolean ascending = parts.length > 1 && parts[1].trim().equalsIgnoreCase("asc");
+        return ascending ? Sort.by(field).ascending() : Sort.by(field).descending();
+    }
+    
+    // Defaults to the last day of hourly or the last week of daily buckets; null when the range is inverted or too large
+    private LocalDateTime[] rollupRange(RollupGranularity granularity, LocalDateTime from, LocalDateTime to) {
+        ChronoUnit unit = granularity == RollupGranularity.HOUR ? ChronoUnit.HOURS : ChronoUnit.DAYS;
+        LocalDateTime end = (to != null ? to : LocalDateTime.now().plus(1, unit)).truncatedTo(unit);
+        LocalDateTime start = (from != null ? from : end.minus(granularity == RollupGranularity.HOUR ? 24 : 7, unit)).truncatedTo(unit);
+        Duration maxRange = granularity == RollupGranularity.HOUR ? MAX_HOURLY_ROLLUP_RANGE : MAX_DAILY_ROLLUP_RANGE;
+        if (!start.isBefore(end) || Duration.between(start, end).compareTo(maxRange) > 0) {
+            return null;
+        }
+        return new LocalDateTime[] {start, end};
+    }
+    
+    private Map<Long, String> rollupNames(RollupDimension dimension, Set<Long> ids) {
+        Map<Long, String> names = new HashMap<>();
+        if (ids.isEmpty() || dimension == RollupDimension.ALL) {
+            return names;
+        }
+        if (dimension == RollupDimension.CATEGORY) {
+            categoryRepository.findAllById(ids).forEach(c -> names.put(c.getId(), c.getName()));
+        } else {
+            userRepository.findNamesByIdIn(ids).forEach(u -> names.put(u.getId(), u.getName()));
+        }
+        return names;
+    }
+    
     private SessionDto convertToSessionDto(ChatSession session) {
-        SessionDto dto = new SessionDto();
-        dto.setId(session.getId());
-        dto.setUserId(session.getUserId());
-        dto.setExpertId(session.getExpertId());
-        dto.setStartTime(session.getStartTime());
-        dto.setEndTime(session.getEndTime());
-        dto.setStatus(session.getStatus());
-        dto.setDurationMinutes(session.getDurationMinutes());
-        dto.setTotalAmount(session.getTotalAmount());
-        
-        // Get user and expert names safely
-        try {
-            userRepository.findById(session.getUserId()).ifPresent(user -> dto.setUserName(user.getName()));
-        } catch (Exception e) {
-            dto.setUserName("Unknown User");
+        return convertToSessionDtos(List.of(session)).get(0);
+    }
+    
+    // Resolves names and message counts for a whole page with two queries instead of three per session
+    private List<SessionDto> convertToSessionDtos(List<ChatSession> sessions) {
+        if (sessions.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return assembleSessionDtos(sessions, resolveSessionNames(sessions), countSessionMessages(sessions));
+    }
+    
+    // The same two queries, run side by side on the read pool
+    private CompletableFuture<List<SessionDto>> convertToSessionDtosAsync(List<ChatSession> sessions) {
+        if (sessions.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        CompletableFuture<Map<Long, String>> names = readQueryService.submit(() -> resolveSessionNames(sessions));
+        CompletableFuture<Map<Long, Long>> messageCounts = readQueryService.submit(() -> countSessionMessages(sessions));
+        return names.thenCombine(messageCounts, (n, c) -> assembleSessionDtos(sessions, n, c));
+    }
+    
+    private Map<Long, String> resolveSessionNames(List<ChatSession> sessions) {
+        Set<Long> userIds = new HashSet<>();
+        for (ChatSession session : sessions) {
+            userIds.add(session.getUserId());
+            userIds.add(session.getExpertId());
         }
         
+        Map<Long, String> names = new HashMap<>();
         try {
-            userRepository.findById(session.getExpertId()).ifPresent(expert -> dto.setExpertName(expert.getName()));
+            userRepository.findNamesByIdIn(userIds).forEach(u -> names.put(u.getId(), u.getName()));
         } catch (Exception e) {
-            dto.setExpertName("Unknown Expert");
+            System.out.println("[DEBUG] Could not resolve session user names: " + e.getMessage());
+        }
+        return names;
+    }
+    
+    private Map<Long, Long> countSessionMessages(List<ChatSession> sessions) {
+        List<Long> sessionIds = new ArrayList<>(sessions.size());
+        for (ChatSession session : sessions) {
+            sessionIds.add(session.getId());
         }
         
-        // Get message count safely
+        Map<Long, Long> messageCounts = new HashMap<>();
         try {
-            Long messageCount = messageRepository.countByChatSessionId(session.getId());
-            dto.setMessageCount(messageCount != null ? messageCount.intValue() : 0);
+            messageCounts.putAll(messageRepository.countByChatSessionIdIn(sessionIds));
         } catch (Exception e) {
-            dto.setMessageCount(0);
+            System.out.println("[DEBUG] Could not count session messages: " + e.getMessage());
         }
-        
-        return dto;
+        return messageCounts;
+    }
+    
+    private List<SessionDto> assembleSessionDtos(List<ChatSession> sessions, Map<Long, String> names, Map<Long, Long> messageCounts) {
+        List<SessionDto> dtos = new ArrayList<>(sessions.size());
+        for (ChatSession session : sessions) {
+            SessionDto dto = new SessionDto();
+            dto.setId(session.getId());
+            dto.setUserId(session.getUserId());
+            dto.setExpertId(session.getExpertId());
+            dto.setStartTime(session.getStartTime());
+            dto.setEndTime(session.getEndTime());
+            dto.setStatus(session.getStatus());
+            dto.setDurationMinutes(session.getDurationMinutes());
+            dto.setTotalAmount(session.getTotalAmount());
+            dto.setUserName(names.getOrDefault(session.getUserId(), "Unknown User"));
+            dto.setExpertName(names.getOrDefault(session.getExpertId(), "Unknown Expert"));
+            dto.setMessageCount(messageCounts.getOrDefault(session.getId(), 0L).intValue());
+            dtos.add(dto);
+        }
+        return dtos;
     }
     
     private CategoryDto convertToCategoryDto(Category category) {
@@ -548,6 +826,17 @@ public class AdminController {
         return dto;
     }
 
+    // Response without password
+    private Map<String, Object> toUserResponse(User user) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("id", user.getId());
+        response.put("name", user.getName());
+        response.put("email", user.getEmail());
+        response.put("userType", user.getUserType().name());
+        response.put("isApproved", user.getIsApproved());
+        return response;
+    }
+
     public static class DashboardStats {
         private Long totalUsers;
         private Long totalExperts;
@@ -558,6 +847,7 @@ public class AdminController {
         private Long totalCategories;
         private Long completedSessions;
         private Long pendingExperts;
+        private Long totalMessages;
 
         // Getters and Setters
         public Long getTotalUsers() { return totalUsers; }
@@ -586,6 +876,9 @@ public class AdminController {
         
         public Long getPendingExperts() { return pendingExperts; }
         public void setPendingExperts(Long pendingExperts) { this.pendingExperts = pendingExperts; }
+
+        public Long getTotalMessages() { return totalMessages; }
+        public void setTotalMessages(Long totalMessages) { this.totalMessages = totalMessages; }
     }
     
     public static class SessionDto {
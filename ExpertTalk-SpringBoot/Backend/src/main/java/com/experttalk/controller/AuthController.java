@@ -1,22 +1,32 @@
 package com.experttalk.controller;
 
 import com.experttalk.dto.AuthDTOs.*;
+import com.experttalk.model.Category;
 import com.experttalk.model.User;
 import com.experttalk.model.UserType;
 import com.experttalk.repository.CategoryRepository;
 import com.experttalk.repository.UserRepository;
 import com.experttalk.security.JwtUtil;
+import com.experttalk.service.PasswordHashingService;
+import com.experttalk.service.ReadQueryService;
+import com.experttalk.service.ResourceVersions;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -32,11 +42,20 @@ public class AuthController {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private ReadQueryService readQueryService;
+
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private ResourceVersions resourceVersions;
+
     @PostMapping("/register")
-    public ResponseEntity<?> register(@Valid @RequestBody RegisterDto registerDto) {
+    public CompletableFuture<ResponseEntity<?>> register(@Valid @RequestBody RegisterDto registerDto) {
         try {
             // Validation
             List<String> errors = new ArrayList<>();
@@ -70,37 +89,45 @@ public class AuthController {
             }
             
             if (!errors.isEmpty()) {
-                return ResponseEntity.badRequest().body(new ErrorResponse(errors));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(new ErrorResponse(errors)));
             }
 
             if (userRepository.existsByEmail(registerDto.getEmail())) {
-                return ResponseEntity.status(409).body(new MessageResponse("Email already exists. Please use a different email address."));
+                return CompletableFuture.completedFuture(ResponseEntity.status(409).body(new MessageResponse("Email already exists. Please use a different email address.")));
             }
 
-            User user = new User();
-            user.setName(registerDto.getName());
-            user.setEmail(registerDto.getEmail());
-            user.setPassword(passwordEncoder.encode(registerDto.getPassword()));
-            user.setPhone(registerDto.getPhone() != null ? registerDto.getPhone() : "");
-            user.setUserType(UserType.fromValue(registerDto.getUserType()));
-            user.setCategoryId(registerDto.getCategoryId());
-            user.setHourlyRate(registerDto.getHourlyRate());
-            user.setBio(registerDto.getBio() != null ? registerDto.getBio() : "");
-            user.setIsApproved(true); // Auto-approve for demo
-        user.setIsOnline(false); // User is not online until they login
-
-            userRepository.save(user);
-
-            return ResponseEntity.ok(new RegisterResponseDto(true, "Registration successful. Please login to continue.", false));
+            return passwordHashingService.encode(registerDto.getPassword()).thenCompose(hash -> afterHashing(() -> {
+                User user = new User();
+                user.setName(registerDto.getName());
+                user.setEmail(registerDto.getEmail());
+                user.setPassword(hash);
+                user.setPhone(registerDto.getPhone() != null ? registerDto.getPhone() : "");
+                user.setUserType(UserType.fromValue(registerDto.getUserType()));
+                user.setCategoryId(registerDto.getCategoryId());
+                user.setHourlyRate(registerDto.getHourlyRate());
+                user.setBio(registerDto.getBio() != null ? registerDto.getBio() : "");
+                user.setIsApproved(true); // Auto-approve for demo
+                user.setIsOnline(false); // User is not online until they login
+
+                userRepository.save(user);
+
+                return ResponseEntity.ok(new RegisterResponseDto(true, "Registration successful. Please login to continue.", false));
+            })).exceptionally(ex -> registrationFailed(unwrap(ex)));
+        } catch (PasswordHashingService.BusyException ex) {
+            return CompletableFuture.completedFuture(busyResponse());
         } catch (Exception ex) {
-            List<String> errors = new ArrayList<>();
-            errors.add("Registration failed: " + ex.getMessage());
-            return ResponseEntity.badRequest().body(new ErrorResponse(errors));
+            return CompletableFuture.completedFuture(registrationFailed(ex));
         }
     }
 
+    private ResponseEntity<?> registrationFailed(Throwable ex) {
+        List<String> errors = new ArrayList<>();
+        errors.add("Registration failed: " + ex.getMessage());
+        return ResponseEntity.badRequest().body(new ErrorResponse(errors));
+    }
+
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody LoginDto loginDto) {
+    public CompletableFuture<ResponseEntity<?>> login(@Valid @RequestBody LoginDto loginDto) {
         try {
             List<String> errors = new ArrayList<>();
             
@@ -115,37 +142,58 @@ public class AuthController {
             }
             
             if (!errors.isEmpty()) {
-                return ResponseEntity.badRequest().body(new ErrorResponse(errors));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(new ErrorResponse(errors)));
             }
 
             Optional<User> userOpt = userRepository.findByEmail(loginDto.getEmail());
             
-            if (userOpt.isEmpty() || !passwordEncoder.matches(loginDto.getPassword(), userOpt.get().getPassword())) {
-                return ResponseEntity.status(401).body(new MessageResponse("Invalid email or password. Please check your credentials."));
+            if (userOpt.isEmpty()) {
+                return CompletableFuture.completedFuture(invalidCredentials());
             }
 
             User user = userOpt.get();
-            
-            if (user.getUserType() == UserType.EXPERT && !user.getIsApproved()) {
-                return ResponseEntity.status(403).body(new MessageResponse("Your expert account is pending approval. Please wait for admin approval."));
-            }
 
-            // Update last login and online status
-            user.setIsOnline(true);
-            userRepository.save(user);
+            return passwordHashingService.verify(loginDto.getPassword(), user.getPassword()).thenCompose(verification -> afterHashing(() -> {
+                if (!verification.matched()) {
+                    return invalidCredentials();
+                }
+
+                if (user.getUserType() == UserType.EXPERT && !user.getIsApproved()) {
+                    return ResponseEntity.status(403).body(new MessageResponse("Your expert account is pending approval. Please wait for admin approval."));
+                }
+
+                // Stored hashes from before a cost increase are replaced transparently on the next successful login
+                if (verification.upgradedHash() != null) {
+                    user.setPassword(verification.upgradedHash());
+                }
+
+                // Update last login and online status
+                user.setIsOnline(true);
+                userRepository.save(user);
 
-            String role = getRoleName(user.getUserType());
-            String token = jwtUtil.generateToken(user.getId(), user.getEmail(), user.getName(), role);
-            UserDto userDto = convertToUserDto(user);
+                String role = getRoleName(user.getUserType());
+                String token = jwtUtil.generateToken(user.getId(), user.getEmail(), user.getName(), role);
+                UserDto userDto = convertToUserDto(user);
 
-            return ResponseEntity.ok(new AuthResponseDto(token, userDto));
+                return ResponseEntity.ok(new AuthResponseDto(token, userDto));
+            })).exceptionally(ex -> loginFailed(unwrap(ex)));
+        } catch (PasswordHashingService.BusyException ex) {
+            return CompletableFuture.completedFuture(busyResponse());
         } catch (Exception ex) {
-            List<String> errors = new ArrayList<>();
-            errors.add("Login failed: " + ex.getMessage());
-            return ResponseEntity.badRequest().body(new ErrorResponse(errors));
+            return CompletableFuture.completedFuture(loginFailed(ex));
         }
     }
 
+    private ResponseEntity<?> invalidCredentials() {
+        return ResponseEntity.status(401).body(new MessageResponse("Invalid email or password. Please check your credentials."));
+    }
+
+    private ResponseEntity<?> loginFailed(Throwable ex) {
+        List<String> errors = new ArrayList<>();
+        errors.add("Login failed: " + ex.getMessage());
+        return ResponseEntity.badRequest().body(new ErrorResponse(errors));
+    }
+
     @PostMapping("/logout")
     public ResponseEntity<?> logout(@RequestHeader("Authorization") String authHeader) {
         try {
@@ -168,16 +216,22 @@ public class AuthController {
     }
 
     @GetMapping("/me")
-    public ResponseEntity<?> getCurrentUser(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getCurrentUser(@RequestHeader("Authorization") String authHeader, WebRequest webRequest) {
         try {
             if (authHeader != null && authHeader.startsWith("Bearer ")) {
                 String token = authHeader.substring(7);
                 Long userId = jwtUtil.extractUserId(token);
+
+                // The user id comes from the token, so an unchanged profile is answered without a lookup
+                String etag = resourceVersions.etag("me", userId, resourceVersions.userGeneration(userId), resourceVersions.catalogGeneration());
+                if (webRequest.checkNotModified(etag)) {
+                    return null;
+                }
                 
                 Optional<User> userOpt = userRepository.findById(userId);
                 if (userOpt.isPresent()) {
                     UserDto userDto = convertToUserDto(userOpt.get());
-                    return ResponseEntity.ok(userDto);
+                    return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(userDto);
                 }
             }
             
@@ -256,7 +310,7 @@ public class AuthController {
     }
 
     @PutMapping("/profile/change-password")
-    public ResponseEntity<?> changePassword(@RequestBody Map<String, String> passwordData, @RequestHeader("Authorization") String authHeader) {
+    public CompletableFuture<ResponseEntity<?>> changePassword(@RequestBody Map<String, String> passwordData, @RequestHeader("Authorization") String authHeader) {
         try {
             if (authHeader != null && authHeader.startsWith("Bearer ")) {
                 String token = authHeader.substring(7);
@@ -264,7 +318,7 @@ public class AuthController {
                 
                 Optional<User> userOpt = userRepository.findById(userId);
                 if (!userOpt.isPresent()) {
-                    return ResponseEntity.notFound().build();
+                    return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
                 }
                 
                 User user = userOpt.get();
@@ -274,40 +328,48 @@ public class AuthController {
                 
                 // Validate input
                 if (currentPassword == null || currentPassword.trim().isEmpty()) {
-                    return ResponseEntity.badRequest().body(new MessageResponse("Current password is required"));
+                    return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(new MessageResponse("Current password is required")));
                 }
                 
                 if (newPassword == null || newPassword.trim().isEmpty()) {
-                    return ResponseEntity.badRequest().body(new MessageResponse("New password is required"));
+                    return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(new MessageResponse("New password is required")));
                 }
                 
                 // Validate new password strength
                 if (!isValidPassword(newPassword)) {
-                    return ResponseEntity.badRequest().body(new MessageResponse("Password must be 8+ chars with uppercase, lowercase, number & special character"));
+                    return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(new MessageResponse("Password must be 8+ chars with uppercase, lowercase, number & special character")));
                 }
                 
-                // Check current password
-                if (!passwordEncoder.matches(currentPassword, user.getPassword())) {
-                    return ResponseEntity.status(400).body(new MessageResponse("Current password is incorrect"));
-                }
-                
-                // Check if new password is same as current
-                if (passwordEncoder.matches(newPassword, user.getPassword())) {
-                    return ResponseEntity.badRequest().body(new MessageResponse("New password must be different from current password"));
-                }
-                
-                // Encrypt and save new password
-                user.setPassword(passwordEncoder.encode(newPassword));
-                userRepository.save(user);
-                
-                return ResponseEntity.ok(new MessageResponse("Password changed successfully"));
+                // All three BCrypt steps run as one task so the request holds a single hashing worker
+                String currentHash = user.getPassword();
+                return passwordHashingService.submit(() -> {
+                    // Check current password
+                    if (!passwordEncoder.matches(currentPassword, currentHash)) {
+                        return (ResponseEntity<?>) ResponseEntity.status(400).body(new MessageResponse("Current password is incorrect"));
+                    }
+
+                    // Check if new password is same as current
+                    if (passwordEncoder.matches(newPassword, currentHash)) {
+                        return ResponseEntity.badRequest().body(new MessageResponse("New password must be different from current password"));
+                    }
+
+                    // Encrypt and save new password
+                    user.setPassword(passwordEncoder.encode(newPassword));
+                    return null;
+                }).thenCompose(rejection -> rejection != null ? CompletableFuture.completedFuture(rejection) : afterHashing(() -> {
+                    userRepository.save(user);
+                    return ResponseEntity.ok(new MessageResponse("Password changed successfully"));
+                })).exceptionally(ex -> ResponseEntity.badRequest().body(new MessageResponse("Failed to change password: " + unwrap(ex).getMessage())));
             }
-            return ResponseEntity.badRequest().body(new MessageResponse("Invalid token"));
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(new MessageResponse("Invalid token")));
+        } catch (PasswordHashingService.BusyException e) {
+            return CompletableFuture.completedFuture(busyResponse());
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(new MessageResponse("Failed to change password: " + e.getMessage()));
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(new MessageResponse("Failed to change password: " + e.getMessage())));
         }
     }
 
+
     private UserDto convertToUserDto(User user) {
         UserDto dto = new UserDto();
         dto.setId(user.getId());
@@ -316,7 +378,9 @@ public class AuthController {
         dto.setPhone(user.getPhone());
         dto.setUserType(user.getUserType().getValue());
         dto.setCategoryId(user.getCategoryId());
-        dto.setCategoryName(user.getCategory() != null ? user.getCategory().getName() : null);
+        // Looked up by id rather than through the lazy association, which is not initializable outside open-in-view
+        dto.setCategoryName(user.getCategoryId() != null
+                ? categoryRepository.findById(user.getCategoryId()).map(Category::getName).orElse(null) : null);
         dto.setHourlyRate(user.getHourlyRate());
         dto.setBio(user.getBio());
         dto.setIsAvailable(user.getIsAvailable());
@@ -325,6 +389,25 @@ public class AuthController {
         return dto;
     }
 
+    // The database work after a hash moves to the query pool, so the hashing workers only ever run BCrypt
+    private CompletableFuture<ResponseEntity<?>> afterHashing(Supplier<ResponseEntity<?>> work) {
+        try {
+            return readQueryService.submit(work);
+        } catch (ReadQueryService.BusyException e) {
+            return CompletableFuture.completedFuture(busyResponse());
+        }
+    }
+
+    private ResponseEntity<?> busyResponse() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .body(new MessageResponse("Server is busy. Please try again in a moment."));
+    }
+
+    private Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
     private String getRoleName(UserType userType) {
         switch (userType) {
             case USER: return "User";
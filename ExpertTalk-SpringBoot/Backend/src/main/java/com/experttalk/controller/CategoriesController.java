@@ -5,9 +5,12 @@ import com.experttalk.model.User;
 import com.experttalk.model.UserType;
 import com.experttalk.repository.CategoryRepository;
 import com.experttalk.repository.UserRepository;
+import com.experttalk.service.ResourceVersions;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -22,22 +25,34 @@ public class CategoriesController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ResourceVersions resourceVersions;
+
     @GetMapping
-    public ResponseEntity<List<CategoryDto>> getAllCategories() {
+    public ResponseEntity<List<CategoryDto>> getAllCategories(WebRequest webRequest) {
+        // Unchanged catalog: answer 304 before any query runs
+        if (webRequest.checkNotModified(resourceVersions.etag("categories", resourceVersions.catalogGeneration()))) {
+            return null;
+        }
+
         List<Category> categories = categoryRepository.findAll();
         List<CategoryDto> categoryDtos = categories.stream()
                 .map(this::convertToCategoryDto)
                 .collect(Collectors.toList());
-        return ResponseEntity.ok(categoryDtos);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(categoryDtos);
     }
 
     @GetMapping("/{categoryId}/experts")
-    public ResponseEntity<List<ExpertDto>> getExpertsByCategory(@PathVariable Long categoryId) {
+    public ResponseEntity<List<ExpertDto>> getExpertsByCategory(@PathVariable Long categoryId, WebRequest webRequest) {
+        if (webRequest.checkNotModified(resourceVersions.etag("experts", categoryId, resourceVersions.catalogGeneration()))) {
+            return null;
+        }
+
         List<User> experts = userRepository.findAvailableExpertsByCategory(UserType.EXPERT, categoryId);
         List<ExpertDto> expertDtos = experts.stream()
                 .map(this::convertToExpertDto)
                 .collect(Collectors.toList());
-        return ResponseEntity.ok(expertDtos);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(expertDtos);
     }
 
     private CategoryDto convertToCategoryDto(Category category) {
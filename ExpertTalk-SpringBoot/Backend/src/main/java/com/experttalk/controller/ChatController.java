@@ -3,14 +3,30 @@ package com.experttalk.controller;
 import com.experttalk.model.*;
 import com.experttalk.repository.*;
 import com.experttalk.security.JwtUtil;
+import com.experttalk.service.ExpertCapacityService;
+import com.experttalk.service.MessageSequenceService;
+import com.experttalk.service.ReadQueryService;
+import com.experttalk.service.RecentMessageService;
+import com.experttalk.service.ResourceVersions;
+import com.experttalk.service.SessionEndService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @RestController
@@ -30,6 +46,24 @@ public class ChatController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private ExpertCapacityService expertCapacityService;
+
+    @Autowired
+    private SessionEndService sessionEndService;
+
+    @Autowired
+    private MessageSequenceService messageSequenceService;
+
+    @Autowired
+    private ReadQueryService readQueryService;
+
+    @Autowired
+    private RecentMessageService recentMessageService;
+
     @PostMapping("/start")
     public ResponseEntity<?> startChatSession(@RequestBody StartChatDto dto, @RequestHeader("Authorization") String authHeader) {
         try {
@@ -48,48 +82,90 @@ public class ChatController {
                 return ResponseEntity.badRequest().body(new MessageResponse("Expert not found"));
             }
 
-            ChatSession session = new ChatSession();
-            session.setUserId(userId);
-            session.setExpertId(dto.getExpertId());
-            session.setStartTime(LocalDateTime.now());
-            session.setStatus(SessionStatus.ACTIVE);
-            session.setDurationMinutes(dto.getDuration() != null ? dto.getDuration() : 60); // Store paid duration
-
-            chatSessionRepository.save(session);
+            // Store paid duration; the expert's capacity is reserved and the session inserted in one step
+            int duration = dto.getDuration() != null ? dto.getDuration() : 60;
+            Long sessionId = expertCapacityService.startSession(userId, expertOpt.get(), duration);
+            if (sessionId == null) {
+                return ResponseEntity.status(409).body(new MessageResponse("This expert is busy with other sessions. Please try again shortly."));
+            }
 
-            return ResponseEntity.ok(new SessionResponse(session.getId()));
+            return ResponseEntity.ok(new SessionResponse(sessionId));
         } catch (Exception ex) {
             return ResponseEntity.badRequest().body(new MessageResponse("Failed to start chat: " + ex.getMessage()));
         }
     }
 
     @GetMapping("/sessions")
-    public ResponseEntity<List<ChatSessionDto>> getUserSessions(@RequestHeader("Authorization") String authHeader) {
+    public CompletableFuture<ResponseEntity<List<ChatSessionDto>>> getUserSessions(@RequestHeader("Authorization") String authHeader) {
         try {
             Long userId = getUserIdFromToken(authHeader);
             if (userId == null) {
-                return ResponseEntity.badRequest().build();
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
             }
 
-            List<ChatSession> sessions = chatSessionRepository.findByUserIdOrExpertIdOrderByStartTimeDesc(userId);
-            List<ChatSessionDto> sessionDtos = sessions.stream()
-                    .map(s -> convertToChatSessionDto(s, userId))
-                    .collect(Collectors.toList());
+            // Every participant name comes from one query; sessions without a live buffer are summarized by one query per shard
+            CompletableFuture<List<ChatSessionDto>> sessionDtos = readQueryService
+                    .submit(() -> chatSessionRepository.findByUserIdOrExpertIdOrderByStartTimeDesc(userId))
+                    .thenCompose(sessions -> {
+                        Set<Long> participantIds = new HashSet<>();
+                        sessions.forEach(s -> {
+                            participantIds.add(s.getUserId());
+                            participantIds.add(s.getExpertId());
+                        });
+                        CompletableFuture<Map<Long, String>> names = readQueryService.submit(() -> resolveNames(participantIds));
+                        Map<Long, MessageSummary> buffered = new HashMap<>();
+                        List<Long> unbuffered = new ArrayList<>();
+                        sessions.forEach(s -> {
+                            MessageSummary summary = bufferedSummary(s.getId(), userId);
+                            if (summary != null) {
+                                buffered.put(s.getId(), summary);
+                            } else {
+                                unbuffered.add(s.getId());
+                            }
+                        });
+                        CompletableFuture<Map<Long, MessageRepository.SessionSummary>> stored = unbuffered.isEmpty()
+                                ? CompletableFuture.completedFuture(Map.of())
+                                : readQueryService.submit(() -> messageRepository.summarizeByChatSessionIdIn(unbuffered, userId));
+                        return stored.thenCombine(names, (storedMap, nameMap) -> {
+                            List<ChatSessionDto> dtos = new ArrayList<>(sessions.size());
+                            for (ChatSession session : sessions) {
+                                MessageSummary summary = buffered.get(session.getId());
+                                if (summary == null) {
+                                    MessageRepository.SessionSummary row = storedMap.get(session.getId());
+                                    summary = row != null ? new MessageSummary(row.lastMessage(), row.unreadCount(), null, 0)
+                                            : new MessageSummary(null, 0, null, 0);
+                                }
+                                dtos.add(convertToChatSessionDto(session, userId, nameMap, summary));
+                            }
+                            return dtos;
+                        });
+                    });
 
-            return ResponseEntity.ok(sessionDtos);
+            return readQueryService.within(ReadQueryService.Endpoint.CHAT_SESSIONS, sessionDtos)
+                    .thenApply(ResponseEntity::ok)
+                    .exceptionally(this::readFailed);
         } catch (Exception ex) {
-            return ResponseEntity.badRequest().build();
+            return CompletableFuture.completedFuture(readFailed(ex));
         }
     }
 
     @GetMapping("/sessions/{sessionId}/info")
-    public ResponseEntity<ChatSessionDto> getSessionInfo(@PathVariable Long sessionId, @RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<ChatSessionDto> getSessionInfo(@PathVariable Long sessionId, @RequestHeader("Authorization") String authHeader, WebRequest webRequest) {
         try {
             Long userId = getUserIdFromToken(authHeader);
             if (userId == null) {
                 return ResponseEntity.badRequest().build();
             }
 
+            // A snapshot from the last render is enough to authorize and answer 304 without loading the session
+            long generation = resourceVersions.sessionGeneration(sessionId);
+            ResourceVersions.SessionSnapshot snapshot = resourceVersions.sessionSnapshot(sessionId);
+            if (snapshot != null && snapshot.generation() == generation
+                    && (snapshot.userId().equals(userId) || snapshot.expertId().equals(userId))
+                    && webRequest.checkNotModified(sessionInfoEtag(sessionId, userId, snapshot))) {
+                return null;
+            }
+
             Optional<ChatSession> sessionOpt = chatSessionRepository.findById(sessionId);
             if (sessionOpt.isEmpty()) {
                 return ResponseEntity.notFound().build();
@@ -100,8 +176,14 @@ public class ChatController {
                 return ResponseEntity.notFound().build();
             }
 
+            // Versions are read before rendering, so a concurrent change can only make the ETag older than the body
+            snapshot = new ResourceVersions.SessionSnapshot(session.getUserId(), session.getExpertId(),
+                    session.getStatus() == SessionStatus.ACTIVE, session.getStartTime(), generation);
+            String etag = sessionInfoEtag(sessionId, userId, snapshot);
+
             ChatSessionDto sessionDto = convertToChatSessionDto(session, userId);
-            return ResponseEntity.ok(sessionDto);
+            resourceVersions.rememberSession(sessionId, snapshot);
+            return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache().cachePrivate()).body(sessionDto);
         } catch (Exception ex) {
             return ResponseEntity.badRequest().build();
         }
@@ -136,10 +218,11 @@ public class ChatController {
             message.setSentAt(LocalDateTime.now());
             message.setIsRead(false);
 
-            messageRepository.save(message);
+            String senderName = userRepository.findById(userId).map(User::getName).orElse("");
+            messageSequenceService.append(message, senderName);
             System.out.println("Message saved: " + message.getContent() + " for session: " + sessionId);
 
-            MessageDto messageDto = convertToMessageDto(message);
+            MessageDto messageDto = convertToMessageDto(message, senderName);
             return ResponseEntity.ok(messageDto);
         } catch (Exception ex) {
             System.err.println("Error sending message: " + ex.getMessage());
@@ -147,7 +230,82 @@ public class ChatController {
         }
     }
     @GetMapping("/sessions/{sessionId}/messages")
-    public ResponseEntity<List<MessageDto>> getSessionMessages(@PathVariable Long sessionId, @RequestHeader("Authorization") String authHeader) {
+    public CompletableFuture<ResponseEntity<List<MessageDto>>> getSessionMessages(@PathVariable Long sessionId, @RequestParam(required = false) Integer limit,
+                                                                                  @RequestHeader("Authorization") String authHeader) {
+        try {
+            Long userId = getUserIdFromToken(authHeader);
+            if (userId == null || (limit != null && limit <= 0)) {
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+            }
+
+            // A live session's transcript usually comes from its recent-message buffer; otherwise the messages are loaded
+            // alongside the session and simply dropped if the caller is not a participant
+            long generation = resourceVersions.sessionGeneration(sessionId);
+            List<RecentMessageService.RecentMessage> buffered = limit != null
+                    ? recentMessageService.page(sessionId, limit) : recentMessageService.history(sessionId);
+            CompletableFuture<Optional<ChatSession>> sessionLookup = readQueryService.submit(() -> chatSessionRepository.findById(sessionId));
+            CompletableFuture<List<Message>> messagesLookup = buffered != null ? null : readQueryService.submit(() -> limit != null
+                    ? messageRepository.findRecentByChatSessionId(sessionId, limit)
+                    : messageRepository.findByChatSessionIdOrderBySentAtAsc(sessionId));
+
+            CompletableFuture<ResponseEntity<List<MessageDto>>> response = sessionLookup.thenCompose(sessionOpt -> {
+                if (sessionOpt.isEmpty()) {
+                    return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+                }
+
+                ChatSession session = sessionOpt.get();
+                if (!session.getUserId().equals(userId) && !session.getExpertId().equals(userId)) {
+                    return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+                }
+
+                if (buffered != null) {
+                    List<MessageDto> messageDtos = buffered.stream().map(this::convertToMessageDto).collect(Collectors.toList());
+                    // Once primed the buffer also knows about older unread messages; otherwise a page marks up to its end anyway
+                    Boolean hasUnread = recentMessageService.hasUnread(sessionId, userId);
+                    markRead(sessionId, userId, hasUnread == null || hasUnread, messageDtos);
+                    return CompletableFuture.completedFuture(ResponseEntity.ok(messageDtos));
+                }
+
+                // Only the two participants can send, so their names are resolved once instead of per message
+                CompletableFuture<Map<Long, String>> names = readQueryService.submit(() -> resolveNames(List.of(session.getUserId(), session.getExpertId())));
+                return messagesLookup.thenCombine(names, (messages, nameMap) -> {
+                    List<MessageDto> messageDtos = messages.stream()
+                            .map(m -> convertToMessageDto(m, nameMap.getOrDefault(m.getSenderId(), "")))
+                            .collect(Collectors.toList());
+
+                    if (limit == null && session.getStatus() == SessionStatus.ACTIVE) {
+                        recentMessageService.prime(sessionId, generation, messages, nameMap);
+                    }
+
+                    // A page cannot tell whether older messages are unread, so it always marks up to its last message
+                    boolean hasUnread = limit != null || messages.stream().anyMatch(m -> !m.getSenderId().equals(userId) && !m.getIsRead());
+                    markRead(sessionId, userId, hasUnread, messageDtos);
+
+                    return ResponseEntity.ok(messageDtos);
+                });
+            });
+
+            return readQueryService.within(ReadQueryService.Endpoint.CHAT_MESSAGES, response).exceptionally(this::readFailed);
+        } catch (Exception ex) {
+            return CompletableFuture.completedFuture(readFailed(ex));
+        }
+    }
+
+    // Whatever the reader was just shown counts as read, in one statement on the session's shard
+    private void markRead(Long sessionId, Long readerId, boolean hasUnread, List<MessageDto> shown) {
+        Long lastSeq = shown.stream().map(MessageDto::getSeq).filter(seq -> seq != null).reduce(Math::max).orElse(null);
+        if (!hasUnread || lastSeq == null) {
+            return;
+        }
+        if (messageRepository.markReadUpTo(sessionId, readerId, lastSeq) > 0) {
+            resourceVersions.sessionChanged(sessionId);
+        }
+        recentMessageService.markReadUpTo(sessionId, readerId, lastSeq);
+    }
+
+    @GetMapping("/sessions/{sessionId}/messages/resume")
+    public ResponseEntity<ResumeResponse> resumeSessionMessages(@PathVariable Long sessionId, @RequestParam(defaultValue = "0") long afterSeq,
+                                                                @RequestHeader("Authorization") String authHeader) {
         try {
             Long userId = getUserIdFromToken(authHeader);
             if (userId == null) {
@@ -164,20 +322,26 @@ public class ChatController {
                 return ResponseEntity.notFound().build();
             }
 
-            List<Message> messages = messageRepository.findByChatSessionIdOrderBySentAtAsc(sessionId);
-            List<MessageDto> messageDtos = messages.stream()
-                    .map(this::convertToMessageDto)
-                    .collect(Collectors.toList());
-
-            // Mark messages as read (simplified - mark all as read)
-            messages.stream()
-                    .filter(m -> !m.getSenderId().equals(userId) && !m.getIsRead())
-                    .forEach(m -> {
-                        m.setIsRead(true);
-                        messageRepository.save(m);
-                    });
+            // Only what the client has not seen yet: from the recent buffer when it covers the gap, otherwise from the table
+            long lastSeq = messageRepository.lastSeq(sessionId);
+            List<MessageDto> messageDtos = List.of();
+            if (afterSeq < lastSeq) {
+                List<RecentMessageService.RecentMessage> recent = recentMessageService.recentAfter(sessionId, Math.max(0, afterSeq), lastSeq);
+                if (recent != null) {
+                    messageDtos = recent.stream().map(this::convertToMessageDto).collect(Collectors.toList());
+                } else {
+                    // Only the two participants can send, so their names are resolved once instead of per message
+                    Map<Long, String> names = new HashMap<>();
+                    userRepository.findById(session.getUserId()).ifPresent(u -> names.put(u.getId(), u.getName()));
+                    userRepository.findById(session.getExpertId()).ifPresent(u -> names.put(u.getId(), u.getName()));
+                    messageDtos = messageRepository.findByChatSessionIdAndSeqGreaterThanOrderBySeqAsc(sessionId, afterSeq).stream()
+                            .filter(m -> m.getSeq() <= lastSeq)
+                            .map(m -> convertToMessageDto(m, names.getOrDefault(m.getSenderId(), "")))
+                            .collect(Collectors.toList());
+                }
+            }
 
-            return ResponseEntity.ok(messageDtos);
+            return ResponseEntity.ok(new ResumeResponse(lastSeq, messageDtos));
         } catch (Exception ex) {
             return ResponseEntity.badRequest().build();
         }
@@ -201,29 +365,26 @@ public class ChatController {
                 return ResponseEntity.notFound().build();
             }
 
-            session.setEndTime(LocalDateTime.now());
-            session.setStatus(SessionStatus.COMPLETED);
-
-            // Calculate duration and total amount
-            long minutes = ChronoUnit.MINUTES.between(session.getStartTime(), session.getEndTime());
-            session.setDurationMinutes((int) Math.max(1, minutes)); // Minimum 1 minute
-
-            Optional<User> expertOpt = userRepository.findById(session.getExpertId());
-            if (expertOpt.isPresent() && expertOpt.get().getHourlyRate() != null) {
-                BigDecimal hourlyRate = expertOpt.get().getHourlyRate();
-                BigDecimal totalAmount = hourlyRate.multiply(BigDecimal.valueOf(session.getDurationMinutes()))
-                        .divide(BigDecimal.valueOf(60), 2, BigDecimal.ROUND_HALF_UP);
-                session.setTotalAmount(totalAmount);
+            // An ended session keeps the totals of its first end; repeating the request just reports them
+            if (session.getStatus() == SessionStatus.ACTIVE) {
+                // Ended concurrently (double click, expiry): the session then reports what that end stored
+                sessionEndService.endByParticipant(session, userId);
             }
 
-            chatSessionRepository.save(session);
-
             return ResponseEntity.ok(new EndSessionResponse(session.getTotalAmount(), session.getDurationMinutes()));
         } catch (Exception ex) {
             return ResponseEntity.badRequest().body(new MessageResponse("Failed to end session: " + ex.getMessage()));
         }
     }
 
+    private String sessionInfoEtag(Long sessionId, Long viewerId, ResourceVersions.SessionSnapshot snapshot) {
+        // Active sessions report a remaining time that changes every minute, so the elapsed minute is part of the version
+        long minute = snapshot.active() && snapshot.startTime() != null
+                ? ChronoUnit.MINUTES.between(snapshot.startTime(), LocalDateTime.now()) : -1;
+        return resourceVersions.etag("session", sessionId, viewerId, snapshot.generation(),
+                resourceVersions.userGeneration(snapshot.userId()), resourceVersions.userGeneration(snapshot.expertId()), minute);
+    }
+
     private Long getUserIdFromToken(String authHeader) {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
@@ -232,7 +393,64 @@ public class ChatController {
         return null;
     }
 
+    // A full queue or a passed deadline asks the client to retry; anything else is reported as before
+    private <T> ResponseEntity<T> readFailed(Throwable ex) {
+        if (ReadQueryService.isUnavailable(ex)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").build();
+        }
+        return ResponseEntity.badRequest().build();
+    }
+
+    private Map<Long, String> resolveNames(Collection<Long> userIds) {
+        Map<Long, String> names = new HashMap<>();
+        if (!userIds.isEmpty()) {
+            userRepository.findNamesByIdIn(userIds).forEach(u -> names.put(u.getId(), u.getName()));
+        }
+        return names;
+    }
+
+    private MessageSummary bufferedSummary(Long sessionId, Long currentUserId) {
+        RecentMessageService.Summary summary = recentMessageService.summary(sessionId, currentUserId);
+        return summary != null ? new MessageSummary(summary.lastMessage(), summary.unreadCount(), null, 0) : null;
+    }
+
+    private MessageSummary summarizeMessages(Long sessionId, Long currentUserId) {
+        // Read before loading, so the load can prime the session's buffer only if nothing changed in between
+        long generation = resourceVersions.sessionGeneration(sessionId);
+
+        // Get last message (simplified)
+        List<Message> messages = messageRepository.findByChatSessionIdOrderBySentAtAsc(sessionId);
+        String lastMessage = messages.isEmpty() ? null : messages.get(messages.size() - 1).getContent();
+
+        // Count unread messages
+        long unreadCount = messages.stream()
+                .filter(m -> !m.getSenderId().equals(currentUserId) && !m.getIsRead())
+                .count();
+        return new MessageSummary(lastMessage, (int) unreadCount, messages, generation);
+    }
+
+    // The next summary or transcript of a live session is then answered from memory
+    private void primeRecentMessages(ChatSession session, MessageSummary summary, Map<Long, String> names) {
+        if (summary.loaded() != null && session.getStatus() == SessionStatus.ACTIVE) {
+            recentMessageService.prime(session.getId(), summary.generation(), summary.loaded(), names);
+        }
+    }
+
     private ChatSessionDto convertToChatSessionDto(ChatSession session, Long currentUserId) {
+        // Set user and expert names by fetching from repository to avoid lazy loading issues
+        Map<Long, String> names = new HashMap<>();
+        userRepository.findById(session.getUserId()).ifPresent(u -> names.put(u.getId(), u.getName()));
+        userRepository.findById(session.getExpertId()).ifPresent(u -> names.put(u.getId(), u.getName()));
+        MessageSummary summary = bufferedSummary(session.getId(), currentUserId);
+        if (summary == null) {
+            summary = summarizeMessages(session.getId(), currentUserId);
+        }
+        ChatSessionDto dto = convertToChatSessionDto(session, currentUserId, names, summary);
+        primeRecentMessages(session, summary, names);
+        return dto;
+    }
+
+    private ChatSessionDto convertToChatSessionDto(ChatSession session, Long currentUserId, Map<Long, String> names, MessageSummary summary) {
         ChatSessionDto dto = new ChatSessionDto();
         dto.setId(session.getId());
         dto.setStartTime(session.getStartTime());
@@ -249,12 +467,10 @@ public class ChatController {
             dto.setRemainingSeconds((int) (remainingMinutes * 60));
             dto.setIsExpired(remainingMinutes <= 0);
             
-            // If expired, mark session as completed
+            // If expired, mark session as completed; only one of several concurrent viewers actually ends it
             if (remainingMinutes <= 0 && session.getStatus() == SessionStatus.ACTIVE) {
-                session.setEndTime(LocalDateTime.now());
-                session.setStatus(SessionStatus.COMPLETED);
-                session.setDurationMinutes((int) Math.max(1, elapsedMinutes));
-                chatSessionRepository.save(session);
+                sessionEndService.endIfActive(session, SessionStatus.COMPLETED, LocalDateTime.now(),
+                        (int) Math.max(1, elapsedMinutes), session.getTotalAmount());
                 dto.setStatus(SessionStatus.COMPLETED.ordinal());
                 dto.setIsExpired(true);
             }
@@ -263,47 +479,42 @@ public class ChatController {
             dto.setIsExpired(true);
         }
         
-        // Set user and expert names by fetching from repository to avoid lazy loading issues
-        Optional<User> userOpt = userRepository.findById(session.getUserId());
-        if (userOpt.isPresent()) {
-            dto.setUserName(userOpt.get().getName());
-        }
-        
-        Optional<User> expertOpt = userRepository.findById(session.getExpertId());
-        if (expertOpt.isPresent()) {
-            dto.setExpertName(expertOpt.get().getName());
-        }
-        
-        // Get last message (simplified)
-        List<Message> messages = messageRepository.findByChatSessionIdOrderBySentAtAsc(session.getId());
-        if (!messages.isEmpty()) {
-            dto.setLastMessage(messages.get(messages.size() - 1).getContent());
-        }
-        
-        // Count unread messages
-        long unreadCount = messages.stream()
-                .filter(m -> !m.getSenderId().equals(currentUserId) && !m.getIsRead())
-                .count();
-        dto.setUnreadCount((int) unreadCount);
+        dto.setUserName(names.get(session.getUserId()));
+        dto.setExpertName(names.get(session.getExpertId()));
+        dto.setLastMessage(summary.lastMessage());
+        dto.setUnreadCount(summary.unreadCount());
         
         return dto;
     }
 
-    private MessageDto convertToMessageDto(Message message) {
+    private MessageDto convertToMessageDto(Message message, String senderName) {
         MessageDto dto = new MessageDto();
         dto.setId(message.getId());
+        dto.setSeq(message.getSeq());
         dto.setContent(message.getContent());
         dto.setSentAt(message.getSentAt());
         dto.setIsRead(message.getIsRead());
         dto.setSenderId(message.getSenderId());
-        
-        // Fetch sender name to avoid lazy loading issues
-        Optional<User> senderOpt = userRepository.findById(message.getSenderId());
-        dto.setSenderName(senderOpt.isPresent() ? senderOpt.get().getName() : "");
-        
+        dto.setSenderName(senderName);
+        return dto;
+    }
+
+    private MessageDto convertToMessageDto(RecentMessageService.RecentMessage message) {
+        MessageDto dto = new MessageDto();
+        dto.setId(message.id());
+        dto.setSeq(message.seq());
+        dto.setContent(message.content());
+        dto.setSentAt(message.sentAt());
+        dto.setIsRead(message.read());
+        dto.setSenderId(message.senderId());
+        dto.setSenderName(message.senderName());
         return dto;
     }
 
+    // loaded is the full message list when the summary was computed from one session's transcript, null otherwise
+    private record MessageSummary(String lastMessage, int unreadCount, List<Message> loaded, long generation) {
+    }
+
     // DTOs
     public static class StartChatDto {
         private Long expertId;
@@ -405,8 +616,25 @@ public class ChatController {
         public void setIsExpired(Boolean isExpired) { this.isExpired = isExpired; }
     }
 
+    public static class ResumeResponse {
+        private Long lastSeq;
+        private List<MessageDto> messages;
+
+        public ResumeResponse(Long lastSeq, List<MessageDto> messages) {
+            this.lastSeq = lastSeq;
+            this.messages = messages;
+        }
+
+        public Long getLastSeq() { return lastSeq; }
+        public void setLastSeq(Long lastSeq) { this.lastSeq = lastSeq; }
+
+        public List<MessageDto> getMessages() { return messages; }
+        public void setMessages(List<MessageDto> messages) { this.messages = messages; }
+    }
+
     public static class MessageDto {
         private Long id;
+        private Long seq;
         private String content;
         private LocalDateTime sentAt;
         private Boolean isRead;
@@ -417,6 +645,9 @@ public class ChatController {
         public Long getId() { return id; }
         public void setId(Long id) { this.id = id; }
 
+        public Long getSeq() { return seq; }
+        public void setSeq(Long seq) { this.seq = seq; }
+
         public String getContent() { return content; }
         public void setContent(String content) { this.content = content; }
 
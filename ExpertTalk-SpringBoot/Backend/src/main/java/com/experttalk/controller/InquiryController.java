@@ -1,10 +1,13 @@
 package com.experttalk.controller;
 
 import com.experttalk.model.Inquiry;
-import com.experttalk.repository.InquiryRepository;
+import com.experttalk.service.InquiryIntakeService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/inquiry")
@@ -12,19 +15,26 @@ import org.springframework.web.bind.annotation.*;
 public class InquiryController {
 
     @Autowired
-    private InquiryRepository inquiryRepository;
+    private InquiryIntakeService inquiryIntakeService;
 
     @PostMapping("/submit")
-    public ResponseEntity<Inquiry> submitInquiry(@RequestBody Inquiry inquiry) {
-        try {
-            System.out.println("[DEBUG] Received inquiry: " + inquiry.getName() + ", " + inquiry.getEmail());
-            Inquiry savedInquiry = inquiryRepository.save(inquiry);
-            System.out.println("[DEBUG] Saved inquiry with ID: " + savedInquiry.getId());
-            return ResponseEntity.ok(savedInquiry);
-        } catch (Exception e) {
-            System.err.println("[ERROR] Failed to save inquiry: " + e.getMessage());
-            e.printStackTrace();
-            return ResponseEntity.badRequest().build();
+    public ResponseEntity<Map<String, String>> submitInquiry(@RequestBody Inquiry inquiry) {
+        if (isBlank(inquiry.getName()) || isBlank(inquiry.getEmail()) || isBlank(inquiry.getSubject()) || isBlank(inquiry.getMessage())) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Name, email, subject and message are required"));
         }
+        
+        // Inquiries are persisted asynchronously in batches, duplicates are acknowledged without being stored again
+        InquiryIntakeService.Result result = inquiryIntakeService.submit(inquiry);
+        if (result == InquiryIntakeService.Result.REJECTED) {
+            System.out.println("[DEBUG] Inquiry queue full, rejecting inquiry from " + inquiry.getEmail());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(Map.of("message", "Too many inquiries right now. Please try again shortly."));
+        }
+        return ResponseEntity.accepted().body(Map.of("message", "Inquiry received"));
+    }
+    
+    private boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
     }
-}
\ No newline at end of file
+}
@@ -1,19 +1,22 @@
 package com.experttalk.controller;
 
 import com.experttalk.model.Message;
-import com.experttalk.repository.MessageRepository;
-import com.experttalk.repository.UserRepository;
 import com.experttalk.repository.ChatSessionRepository;
 import com.experttalk.model.ChatSession;
 import com.experttalk.model.SessionStatus;
+import com.experttalk.security.StompPrincipal;
+import com.experttalk.service.ChatSignalService;
+import com.experttalk.service.MessageSequenceService;
+import com.experttalk.service.SessionEndService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
+import java.security.Principal;
 import java.time.LocalDateTime;
 import java.util.Optional;
-import com.experttalk.model.User;
 
 @Controller
 public class WebSocketChatController {
@@ -22,43 +25,51 @@ public class WebSocketChatController {
     private SimpMessagingTemplate messagingTemplate;
 
     @Autowired
-    private MessageRepository messageRepository;
+    private ChatSessionRepository chatSessionRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private SessionEndService sessionEndService;
 
     @Autowired
-    private ChatSessionRepository chatSessionRepository;
+    private MessageSequenceService messageSequenceService;
+
+    @Autowired
+    private ChatSignalService chatSignalService;
 
+    // The sender is always the connection's authenticated user, never an id from the payload
     @MessageMapping("/sendMessage")
-    public void sendMessage(@Payload ChatMessage chatMessage) {
+    public void sendMessage(@Payload ChatMessage chatMessage, Principal principal) {
         try {
             System.out.println("Received WebSocket message: " + chatMessage.getContent());
+            StompPrincipal sender = (StompPrincipal) principal;
             
-            // Check if session is active before saving
+            // Check if session is active and the sender takes part in it before saving
             Optional<ChatSession> sessionOpt = chatSessionRepository.findById(chatMessage.getSessionId());
             if (sessionOpt.isEmpty() || sessionOpt.get().getStatus() != SessionStatus.ACTIVE) {
                 System.out.println("Session not active, ignoring message");
                 return;
             }
+            if (!isParticipant(sessionOpt.get(), sender)) {
+                System.out.println("User " + sender.userId() + " is not in session " + chatMessage.getSessionId() + ", ignoring message");
+                return;
+            }
             
             // Save message to database
             Message message = new Message();
             message.setChatSessionId(chatMessage.getSessionId());
-            message.setSenderId(chatMessage.getSenderId());
+            message.setSenderId(sender.userId());
             message.setContent(chatMessage.getContent());
             message.setSentAt(LocalDateTime.now());
             message.setIsRead(false);
             
-            Message savedMessage = messageRepository.save(message);
+            String senderName = sender.displayName();
             
-            // Get sender name
-            Optional<User> senderOpt = userRepository.findById(chatMessage.getSenderId());
-            String senderName = senderOpt.isPresent() ? senderOpt.get().getName() : "Unknown";
+            Message savedMessage = messageSequenceService.append(message, senderName);
             
             // Create response message with saved message ID
             ChatMessageResponse response = new ChatMessageResponse();
             response.setId(savedMessage.getId());
+            response.setSeq(savedMessage.getSeq());
             response.setSenderId(savedMessage.getSenderId());
             response.setSenderName(senderName);
             response.setContent(savedMessage.getContent());
@@ -76,13 +87,20 @@ public class WebSocketChatController {
     }
 
     @MessageMapping("/endSession")
-    public void endSession(@Payload EndSessionMessage endSessionMessage) {
+    public void endSession(@Payload EndSessionMessage endSessionMessage, Principal principal) {
         try {
-            System.out.println("Session ended by user: " + endSessionMessage.getEndedBy());
+            StompPrincipal user = (StompPrincipal) principal;
+            Optional<ChatSession> sessionOpt = endSessionMessage.getSessionId() != null
+                    ? chatSessionRepository.findById(endSessionMessage.getSessionId()) : Optional.empty();
+            if (sessionOpt.isEmpty() || !isParticipant(sessionOpt.get(), user)) {
+                System.out.println("User " + user.userId() + " cannot end session " + endSessionMessage.getSessionId() + ", ignoring");
+                return;
+            }
             
-            // Notify all participants in the session
-            messagingTemplate.convertAndSend("/topic/session/" + endSessionMessage.getSessionId() + "/end", endSessionMessage);
-            System.out.println("Session end notification sent to /topic/session/" + endSessionMessage.getSessionId() + "/end");
+            // Only the end that actually moves the session out of ACTIVE queues the participants' notification
+            if (sessionOpt.get().getStatus() == SessionStatus.ACTIVE && sessionEndService.endByParticipant(sessionOpt.get(), user.userId())) {
+                System.out.println("Session ended by user: " + user.userId());
+            }
             
         } catch (Exception e) {
             System.err.println("Error in WebSocket session end: " + e.getMessage());
@@ -90,6 +108,37 @@ public class WebSocketChatController {
         }
     }
 
+    // Typing indicators and read receipts are ephemeral: they update in-memory state only and are never saved as messages
+    @MessageMapping("/session/{sessionId}/typing")
+    public void typing(@DestinationVariable Long sessionId, @Payload TypingSignal signal, Principal principal) {
+        chatSignalService.typing(sessionId, ((StompPrincipal) principal).userId(), Boolean.TRUE.equals(signal.getTyping()));
+    }
+
+    @MessageMapping("/session/{sessionId}/read")
+    public void read(@DestinationVariable Long sessionId, @Payload ReadSignal signal, Principal principal) {
+        if (signal.getSeq() != null) {
+            chatSignalService.read(sessionId, ((StompPrincipal) principal).userId(), signal.getSeq());
+        }
+    }
+
+    private boolean isParticipant(ChatSession session, StompPrincipal user) {
+        return session.getUserId().equals(user.userId()) || session.getExpertId().equals(user.userId());
+    }
+
+    public static class TypingSignal {
+        private Boolean typing;
+
+        public Boolean getTyping() { return typing; }
+        public void setTyping(Boolean typing) { this.typing = typing; }
+    }
+
+    public static class ReadSignal {
+        private Long seq;
+
+        public Long getSeq() { return seq; }
+        public void setSeq(Long seq) { this.seq = seq; }
+    }
+
     public static class EndSessionMessage {
         private Long sessionId;
         private Long endedBy;
@@ -103,21 +152,18 @@ public class WebSocketChatController {
 
     public static class ChatMessage {
         private Long sessionId;
-        private Long senderId;
         private String content;
 
         public Long getSessionId() { return sessionId; }
         public void setSessionId(Long sessionId) { this.sessionId = sessionId; }
 
-        public Long getSenderId() { return senderId; }
-        public void setSenderId(Long senderId) { this.senderId = senderId; }
-
         public String getContent() { return content; }
         public void setContent(String content) { this.content = content; }
     }
 
     public static class ChatMessageResponse {
         private Long id;
+        private Long seq;
         private Long sessionId;
         private Long senderId;
         private String senderName;
@@ -127,6 +173,9 @@ public class WebSocketChatController {
         public Long getId() { return id; }
         public void setId(Long id) { this.id = id; }
 
+        public Long getSeq() { return seq; }
+        public void setSeq(Long seq) { this.seq = seq; }
+
         public Long getSessionId() { return sessionId; }
         public void setSessionId(Long sessionId) { this.sessionId = sessionId; }
 
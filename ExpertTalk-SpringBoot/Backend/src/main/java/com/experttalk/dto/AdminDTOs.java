@@ -0,0 +1,178 @@
+package com.experttalk.dto;
+
+import org.springframework.data.domain.Page;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class AdminDTOs {
+
+    public static class PageResponse<T> {
+        private List<T> content;
+        private Integer page;
+        private Integer size;
+        private Long totalElements;
+        private Integer totalPages;
+
+        // Constructors
+        public PageResponse() {}
+
+        public PageResponse(Page<T> page) {
+            this.content = page.getContent();
+            this.page = page.getNumber();
+            this.size = page.getSize();
+            this.totalElements = page.getTotalElements();
+            this.totalPages = page.getTotalPages();
+        }
+
+        public PageResponse(Page<?> page, List<T> content) {
+            this.content = content;
+            this.page = page.getNumber();
+            this.size = page.getSize();
+            this.totalElements = page.getTotalElements();
+            this.totalPages = page.getTotalPages();
+        }
+
+        // Getters and Setters
+        public List<T> getContent() { return content; }
+        public void setContent(List<T> content) { this.content = content; }
+
+        public Integer getPage() { return page; }
+        public void setPage(Integer page) { this.page = page; }
+
+        public Integer getSize() { return size; }
+        public void setSize(Integer size) { this.size = size; }
+
+        public Long getTotalElements() { return totalElements; }
+        public void setTotalElements(Long totalElements) { this.totalElements = totalElements; }
+
+        public Integer getTotalPages() { return totalPages; }
+        public void setTotalPages(Integer totalPages) { this.totalPages = totalPages; }
+    }
+
+    public static class CacheRegionStats {
+        private String region;
+        private Long hits;
+        private Long misses;
+        private Long puts;
+        private Double hitRatio;
+
+        // Constructors
+        public CacheRegionStats() {}
+
+        public CacheRegionStats(String region, long hits, long misses, long puts) {
+            this.region = region;
+            this.hits = hits;
+            this.misses = misses;
+            this.puts = puts;
+            this.hitRatio = hits + misses > 0 ? (double) hits / (hits + misses) : 0.0;
+        }
+
+        // Getters and Setters
+        public String getRegion() { return region; }
+        public void setRegion(String region) { this.region = region; }
+
+        public Long getHits() { return hits; }
+        public void setHits(Long hits) { this.hits = hits; }
+
+        public Long getMisses() { return misses; }
+        public void setMisses(Long misses) { this.misses = misses; }
+
+        public Long getPuts() { return puts; }
+        public void setPuts(Long puts) { this.puts = puts; }
+
+        public Double getHitRatio() { return hitRatio; }
+        public void setHitRatio(Double hitRatio) { this.hitRatio = hitRatio; }
+    }
+
+    public static class RollupStats {
+        private LocalDateTime bucketStart;
+        private Long dimensionId;
+        private String name;
+        private Long sessionCount;
+        private Long completedCount;
+        private Long totalMinutes;
+        private BigDecimal revenue;
+        private Long messageCount;
+
+        // Constructors
+        public RollupStats() {}
+
+        public RollupStats(LocalDateTime bucketStart, Long dimensionId, String name, Long sessionCount, Long completedCount,
+                           Long totalMinutes, BigDecimal revenue, Long messageCount) {
+            this.bucketStart = bucketStart;
+            this.dimensionId = dimensionId;
+            this.name = name;
+            this.sessionCount = sessionCount;
+            this.completedCount = completedCount;
+            this.totalMinutes = totalMinutes;
+            this.revenue = revenue;
+            this.messageCount = messageCount;
+        }
+
+        // Getters and Setters
+        public LocalDateTime getBucketStart() { return bucketStart; }
+        public void setBucketStart(LocalDateTime bucketStart) { this.bucketStart = bucketStart; }
+
+        public Long getDimensionId() { return dimensionId; }
+        public void setDimensionId(Long dimensionId) { this.dimensionId = dimensionId; }
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public Long getSessionCount() { return sessionCount; }
+        public void setSessionCount(Long sessionCount) { this.sessionCount = sessionCount; }
+
+        public Long getCompletedCount() { return completedCount; }
+        public void setCompletedCount(Long completedCount) { this.completedCount = completedCount; }
+
+        public Long getTotalMinutes() { return totalMinutes; }
+        public void setTotalMinutes(Long totalMinutes) { this.totalMinutes = totalMinutes; }
+
+        public BigDecimal getRevenue() { return revenue; }
+        public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+
+        public Long getMessageCount() { return messageCount; }
+        public void setMessageCount(Long messageCount) { this.messageCount = messageCount; }
+    }
+
+    public static class LeaderboardEntry {
+        private Integer rank;
+        private Long expertId;
+        private String expertName;
+        private BigDecimal revenue;
+        private Long sessions;
+        private Long minutes;
+
+        // Constructors
+        public LeaderboardEntry() {}
+
+        public LeaderboardEntry(int rank, Long expertId, String expertName, BigDecimal revenue, long sessions, long minutes) {
+            this.rank = rank;
+            this.expertId = expertId;
+            this.expertName = expertName;
+            this.revenue = revenue;
+            this.sessions = sessions;
+            this.minutes = minutes;
+        }
+
+        // Getters and Setters
+        public Integer getRank() { return rank; }
+        public void setRank(Integer rank) { this.rank = rank; }
+
+        public Long getExpertId() { return expertId; }
+        public void setExpertId(Long expertId) { this.expertId = expertId; }
+
+        public String getExpertName() { return expertName; }
+        public void setExpertName(String expertName) { this.expertName = expertName; }
+
+        public BigDecimal getRevenue() { return revenue; }
+        public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+
+        public Long getSessions() { return sessions; }
+        public void setSessions(Long sessions) { this.sessions = sessions; }
+
+        public Long getMinutes() { return minutes; }
+        public void setMinutes(Long minutes) { this.minutes = minutes; }
+    }
+}
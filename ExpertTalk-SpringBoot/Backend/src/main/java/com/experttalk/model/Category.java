@@ -1,11 +1,17 @@
 package com.experttalk.model;
 
+import com.experttalk.service.ResourceVersionListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "categories")
+@EntityListeners(ResourceVersionListener.class)
 @Table(name = "categories")
 public class Category {
     @Id
@@ -1,12 +1,20 @@
 package com.experttalk.model;
 
+import com.experttalk.service.ResourceVersionListener;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.List;
 
 @Entity
-@Table(name = "chat_sessions")
+@EntityListeners(ResourceVersionListener.class)
+@Table(name = "chat_sessions", indexes = {
+    @Index(name = "idx_chat_sessions_start", columnList = "start_time"),
+    @Index(name = "idx_chat_sessions_status_start", columnList = "status, start_time"),
+    @Index(name = "idx_chat_sessions_expert_start", columnList = "expert_id, start_time"),
+    @Index(name = "idx_chat_sessions_user_start", columnList = "user_id, start_time"),
+    @Index(name = "idx_chat_sessions_expert_status", columnList = "expert_id, status"),
+    @Index(name = "idx_chat_sessions_rolled_up", columnList = "rolled_up_at")
+})
 public class ChatSession {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -42,8 +50,9 @@ public class ChatSession {
     @Column(name = "total_amount", precision = 10, scale = 2)
     private BigDecimal totalAmount;
 
-    @OneToMany(mappedBy = "chatSession", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-    private List<Message> messages;
+    // Written only by SessionRollupService, so saving a stale entity can never clear it
+    @Column(name = "rolled_up_at", insertable = false, updatable = false)
+    private LocalDateTime rolledUpAt;
 
     @OneToOne(mappedBy = "chatSession", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Payment payment;
@@ -82,8 +91,8 @@ public class ChatSession {
     public BigDecimal getTotalAmount() { return totalAmount; }
     public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
 
-    public List<Message> getMessages() { return messages; }
-    public void setMessages(List<Message> messages) { this.messages = messages; }
+    public LocalDateTime getRolledUpAt() { return rolledUpAt; }
+    public void setRolledUpAt(LocalDateTime rolledUpAt) { this.rolledUpAt = rolledUpAt; }
 
     public Payment getPayment() { return payment; }
     public void setPayment(Payment payment) { this.payment = payment; }
@@ -1,36 +1,22 @@
 package com.experttalk.model;
 
-import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
-@Entity
-@Table(name = "messages")
+// Stored on the message shard of its session by MessageRepository rather than through JPA, see MessageShards
 public class Message {
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "chat_session_id", nullable = false)
     private Long chatSessionId;
 
-    @Column(name = "sender_id", nullable = false)
     private Long senderId;
 
-    @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "chat_session_id", insertable = false, updatable = false)
-    private ChatSession chatSession;
+    // Position within the chat session, assigned by MessageSequenceService
+    private Long seq;
 
-    @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "sender_id", insertable = false, updatable = false)
-    private User sender;
-
-    @Column(nullable = false, columnDefinition = "TEXT")
     private String content;
 
-    @Column(name = "sent_at", nullable = false)
     private LocalDateTime sentAt = LocalDateTime.now();
 
-    @Column(name = "is_read")
     private Boolean isRead = false;
 
     // Constructors
@@ -46,11 +32,8 @@ public class Message {
     public Long getSenderId() { return senderId; }
     public void setSenderId(Long senderId) { this.senderId = senderId; }
 
-    public ChatSession getChatSession() { return chatSession; }
-    public void setChatSession(ChatSession chatSession) { this.chatSession = chatSession; }
-
-    public User getSender() { return sender; }
-    public void setSender(User sender) { this.sender = sender; }
+    public Long getSeq() { return seq; }
+    public void setSeq(Long seq) { this.seq = seq; }
 
     public String getContent() { return content; }
     public void setContent(String content) { this.content = content; }
@@ -60,4 +43,4 @@ public class Message {
 
     public Boolean getIsRead() { return isRead; }
     public void setIsRead(Boolean isRead) { this.isRead = isRead; }
-}
\ No newline at end of file
+}
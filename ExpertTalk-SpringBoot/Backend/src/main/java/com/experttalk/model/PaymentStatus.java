@@ -2,6 +2,8 @@ package com.experttalk.model;
 
 public enum PaymentStatus {
     PENDING,
+    // Claimed by one ledger writer, which is charging it; see PaymentLedgerService
+    PROCESSING,
     COMPLETED,
     FAILED,
     REFUNDED
@@ -0,0 +1,7 @@
+package com.experttalk.model;
+
+public enum RollupDimension {
+    ALL,
+    EXPERT,
+    CATEGORY
+}
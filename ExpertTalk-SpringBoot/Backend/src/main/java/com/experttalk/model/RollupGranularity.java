@@ -0,0 +1,6 @@
+package com.experttalk.model;
+
+public enum RollupGranularity {
+    HOUR,
+    DAY
+}
@@ -1,16 +1,24 @@
 package com.experttalk.model;
 
+import com.experttalk.service.ResourceVersionListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+@EntityListeners(ResourceVersionListener.class)
+@Table(name = "users", indexes = {
+    @Index(name = "idx_users_type_approved", columnList = "user_type, is_approved")
+})
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -63,6 +71,10 @@ public class User {
     @Column(name = "is_approved")
     private Boolean isApproved = false;
 
+    // Simultaneous ACTIVE sessions allowed for an expert; null falls back to chat.expert.max-concurrent-sessions
+    @Column(name = "max_concurrent_sessions")
+    private Integer maxConcurrentSessions;
+
     // Navigation properties
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonIgnore
@@ -122,6 +134,9 @@ public class User {
     public Boolean getIsApproved() { return isApproved; }
     public void setIsApproved(Boolean isApproved) { this.isApproved = isApproved; }
 
+    public Integer getMaxConcurrentSessions() { return maxConcurrentSessions; }
+    public void setMaxConcurrentSessions(Integer maxConcurrentSessions) { this.maxConcurrentSessions = maxConcurrentSessions; }
+
     public List<ChatSession> getUserSessions() { return userSessions; }
     public void setUserSessions(List<ChatSession> userSessions) { this.userSessions = userSessions; }
 
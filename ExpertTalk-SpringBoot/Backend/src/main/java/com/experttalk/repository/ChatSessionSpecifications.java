@@ -0,0 +1,33 @@
+package com.experttalk.repository;
+
+import com.experttalk.model.ChatSession;
+import com.experttalk.model.SessionStatus;
+import org.springframework.data.jpa.domain.Specification;
+import java.time.LocalDateTime;
+
+// Each filter only contributes a predicate when it is set, so MySQL can pick the matching chat_sessions index
+public final class ChatSessionSpecifications {
+
+    private ChatSessionSpecifications() {}
+
+    public static Specification<ChatSession> adminFilter(SessionStatus status, LocalDateTime from, LocalDateTime to,
+                                                         Long expertId, Long userId) {
+        Specification<ChatSession> spec = Specification.where(null);
+        if (status != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("status"), status));
+        }
+        if (from != null) {
+            spec = spec.and((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("startTime"), from));
+        }
+        if (to != null) {
+            spec = spec.and((root, query, cb) -> cb.lessThan(root.get("startTime"), to));
+        }
+        if (expertId != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("expertId"), expertId));
+        }
+        if (userId != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("userId"), userId));
+        }
+        return spec;
+    }
+}
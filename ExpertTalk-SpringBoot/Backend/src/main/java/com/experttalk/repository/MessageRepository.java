@@ -1,12 +1,197 @@
 package com.experttalk.repository;
 
 import com.experttalk.model.Message;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+// Every per-session query goes to the session's shard; only the admin-wide count reads all of them
 @Repository
-public interface MessageRepository extends JpaRepository<Message, Long> {
-    List<Message> findByChatSessionIdOrderBySentAtAsc(Long chatSessionId);
-    Long countByChatSessionId(Long chatSessionId);
-}
\ No newline at end of file
+public class MessageRepository {
+
+    private static final String COLUMNS = "id, chat_session_id, sender_id, seq, content, sent_at, is_read";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO messages (chat_session_id, sender_id, seq, content, sent_at, is_read) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String BY_SESSION_SQL =
+            "SELECT " + COLUMNS + " FROM messages WHERE chat_session_id = ? ORDER BY sent_at, id";
+
+    private static final String AFTER_SEQ_SQL =
+            "SELECT " + COLUMNS + " FROM messages WHERE chat_session_id = ? AND seq > ? ORDER BY seq";
+
+    private static final String RECENT_SQL =
+            "SELECT " + COLUMNS + " FROM messages WHERE chat_session_id = ? ORDER BY seq DESC LIMIT ?";
+
+    private static final String LAST_SEQ_SQL = "SELECT MAX(seq) FROM messages WHERE chat_session_id = ?";
+
+    private static final String MARK_READ_UP_TO_SQL =
+            "UPDATE messages SET is_read = true WHERE chat_session_id = ? AND sender_id <> ? AND seq <= ? AND is_read = false";
+
+    private static final String COUNT_BY_SESSION_SQL =
+            "SELECT chat_session_id, COUNT(*) FROM messages WHERE chat_session_id IN (%s) GROUP BY chat_session_id";
+
+    // The newest message by id and the reader's unread count for each session, in one pass over the shard
+    private static final String SUMMARY_BY_SESSION_SQL =
+            "SELECT s.chat_session_id, s.unread, m.content FROM (" +
+            "SELECT chat_session_id, SUM(CASE WHEN sender_id <> ? AND is_read = false THEN 1 ELSE 0 END) AS unread, MAX(id) AS last_id " +
+            "FROM messages WHERE chat_session_id IN (%s) GROUP BY chat_session_id) s JOIN messages m ON m.id = s.last_id";
+
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM messages";
+
+    private static final String DELETE_BY_SESSION_SQL = "DELETE FROM messages WHERE chat_session_id = ?";
+
+    private static final String DELETE_SEQUENCE_SQL = "DELETE FROM message_sequences WHERE chat_session_id = ?";
+
+    private static final RowMapper<Message> MESSAGE_ROW = (rs, rowNum) -> {
+        Message message = new Message();
+        message.setId(rs.getLong("id"));
+        message.setChatSessionId(rs.getLong("chat_session_id"));
+        message.setSenderId(rs.getLong("sender_id"));
+        long seq = rs.getLong("seq");
+        message.setSeq(rs.wasNull() ? null : seq);
+        message.setContent(rs.getString("content"));
+        message.setSentAt(rs.getTimestamp("sent_at").toLocalDateTime());
+        message.setIsRead(rs.getBoolean("is_read"));
+        return message;
+    };
+
+    public record ReadWatermark(Long sessionId, Long readerId, long seq) {
+    }
+
+    public record SessionSummary(String lastMessage, int unreadCount) {
+    }
+
+    private final MessageShards messageShards;
+
+    @Autowired
+    public MessageRepository(MessageShards messageShards) {
+        this.messageShards = messageShards;
+    }
+
+    /** Inserts the message and sets its id; joins the shard transaction when one is open, see MessageSequenceService. */
+    public Message insert(Message message) {
+        MessageShards.Shard shard = messageShards.forSession(message.getChatSessionId());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        shard.jdbcTemplate().update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_SQL, new String[] {"id"});
+            ps.setLong(1, message.getChatSessionId());
+            ps.setLong(2, message.getSenderId());
+            ps.setObject(3, message.getSeq());
+            ps.setString(4, message.getContent());
+            ps.setTimestamp(5, Timestamp.valueOf(message.getSentAt()));
+            ps.setBoolean(6, Boolean.TRUE.equals(message.getIsRead()));
+            return ps;
+        }, keyHolder);
+        message.setId(keyHolder.getKey().longValue());
+        shard.inserts().increment();
+        return message;
+    }
+
+    public List<Message> findByChatSessionIdOrderBySentAtAsc(Long chatSessionId) {
+        return messageShards.forSession(chatSessionId).jdbcTemplate().query(BY_SESSION_SQL, MESSAGE_ROW, chatSessionId);
+    }
+
+    public List<Message> findByChatSessionIdAndSeqGreaterThanOrderBySeqAsc(Long chatSessionId, long seq) {
+        return messageShards.forSession(chatSessionId).jdbcTemplate().query(AFTER_SEQ_SQL, MESSAGE_ROW, chatSessionId, seq);
+    }
+
+    /** The session's latest limit messages, oldest first. */
+    public List<Message> findRecentByChatSessionId(Long chatSessionId, int limit) {
+        List<Message> recent = new ArrayList<>(messageShards.forSession(chatSessionId).jdbcTemplate()
+                .query(RECENT_SQL, MESSAGE_ROW, chatSessionId, limit));
+        Collections.reverse(recent);
+        return recent;
+    }
+
+    /** Sequence number of the session's latest message, 0 when it has none. */
+    public long lastSeq(Long chatSessionId) {
+        Long seq = messageShards.forSession(chatSessionId).jdbcTemplate().queryForObject(LAST_SEQ_SQL, Long.class, chatSessionId);
+        return seq != null ? seq : 0;
+    }
+
+    /** Marks the other participant's messages up to seq as read; returns how many messages changed. */
+    public int markReadUpTo(Long chatSessionId, Long readerId, long seq) {
+        return messageShards.forSession(chatSessionId).jdbcTemplate().update(MARK_READ_UP_TO_SQL, chatSessionId, readerId, seq);
+    }
+
+    /** Marks the other participant's messages up to each watermark as read, one batch per shard. */
+    public void markReadUpTo(Collection<ReadWatermark> watermarks) {
+        Map<MessageShards.Shard, List<Object[]>> batches = new HashMap<>();
+        for (ReadWatermark w : watermarks) {
+            batches.computeIfAbsent(messageShards.forSession(w.sessionId()), s -> new ArrayList<>())
+                    .add(new Object[] {w.sessionId(), w.readerId(), w.seq()});
+        }
+        messageShards.scatter(batches.keySet(), shard -> shard.jdbcTemplate().batchUpdate(MARK_READ_UP_TO_SQL, batches.get(shard)));
+    }
+
+    /** Removes the session's messages and its sequence counter from its shard; returns how many messages were deleted. */
+    public int deleteByChatSessionId(Long chatSessionId) {
+        MessageShards.Shard shard = messageShards.forSession(chatSessionId);
+        return shard.transactionTemplate().execute(status -> {
+            int deleted = shard.jdbcTemplate().update(DELETE_BY_SESSION_SQL, chatSessionId);
+            shard.jdbcTemplate().update(DELETE_SEQUENCE_SQL, chatSessionId);
+            return deleted;
+        });
+    }
+
+    /** Message count per session; sessions without messages are left out. */
+    public Map<Long, Long> countByChatSessionIdIn(Collection<Long> sessionIds) {
+        Map<MessageShards.Shard, List<Long>> byShard = messageShards.bySession(sessionIds);
+        Map<Long, Long> counts = new HashMap<>();
+        for (Map<Long, Long> shardCounts : messageShards.scatter(byShard.keySet(), shard -> countOnShard(shard, byShard.get(shard)))) {
+            counts.putAll(shardCounts);
+        }
+        return counts;
+    }
+
+    /** Last message and the reader's unread count per session, one grouped query per shard; sessions without messages are left out. */
+    public Map<Long, SessionSummary> summarizeByChatSessionIdIn(Collection<Long> sessionIds, Long readerId) {
+        Map<MessageShards.Shard, List<Long>> byShard = messageShards.bySession(sessionIds);
+        Map<Long, SessionSummary> summaries = new HashMap<>();
+        for (Map<Long, SessionSummary> shardSummaries : messageShards.scatter(byShard.keySet(), shard -> summarizeOnShard(shard, byShard.get(shard), readerId))) {
+            summaries.putAll(shardSummaries);
+        }
+        return summaries;
+    }
+
+    /** All messages on all shards. */
+    public long count() {
+        long total = 0;
+        for (Long shardCount : messageShards.scatter(messageShards.all(), shard -> shard.jdbcTemplate().queryForObject(COUNT_SQL, Long.class))) {
+            total += shardCount;
+        }
+        return total;
+    }
+
+    private Map<Long, Long> countOnShard(MessageShards.Shard shard, List<Long> sessionIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        String sql = String.format(COUNT_BY_SESSION_SQL, String.join(", ", Collections.nCopies(sessionIds.size(), "?")));
+        shard.jdbcTemplate().query(sql, rs -> {
+            counts.put(rs.getLong(1), rs.getLong(2));
+        }, sessionIds.toArray());
+        return counts;
+    }
+
+    private Map<Long, SessionSummary> summarizeOnShard(MessageShards.Shard shard, List<Long> sessionIds, Long readerId) {
+        Map<Long, SessionSummary> summaries = new HashMap<>();
+        String sql = String.format(SUMMARY_BY_SESSION_SQL, String.join(", ", Collections.nCopies(sessionIds.size(), "?")));
+        List<Object> args = new ArrayList<>(sessionIds.size() + 1);
+        args.add(readerId);
+        args.addAll(sessionIds);
+        shard.jdbcTemplate().query(sql, rs -> {
+            summaries.put(rs.getLong(1), new SessionSummary(rs.getString(3), rs.getInt(2)));
+        }, args.toArray());
+        return summaries;
+    }
+}
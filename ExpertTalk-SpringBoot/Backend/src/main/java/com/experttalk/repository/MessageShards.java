@@ -0,0 +1,177 @@
+package com.experttalk.repository;
+
+import com.experttalk.config.MessageShardProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * The databases holding the messages table. A session's messages all live on one shard, picked by hashing the
+ * session id, so every per-session read and write is a single-database statement; only admin-wide counts touch
+ * every shard, in parallel. Without configured shards the application's own datasource is the only shard, and message
+ * writes join its transactions as before.
+ */
+@Component
+@EnableConfigurationProperties(MessageShardProperties.class)
+public class MessageShards {
+
+    // Shards are not managed by Hibernate, so their tables are created here; both statements are no-ops on existing schemas
+    private static final String[] SCHEMA_SQL = {
+            "CREATE TABLE IF NOT EXISTS messages (" +
+            "id BIGINT NOT NULL AUTO_INCREMENT, chat_session_id BIGINT NOT NULL, sender_id BIGINT NOT NULL, seq BIGINT, " +
+            "content TEXT NOT NULL, sent_at DATETIME(6) NOT NULL, is_read BOOLEAN, PRIMARY KEY (id), " +
+            "CONSTRAINT uk_messages_session_seq UNIQUE (chat_session_id, seq))",
+            "CREATE TABLE IF NOT EXISTS message_sequences (" +
+            "chat_session_id BIGINT NOT NULL, last_seq BIGINT NOT NULL, PRIMARY KEY (chat_session_id))"
+    };
+
+    private static final String ADD_SEQ_SQL = "ALTER TABLE messages ADD COLUMN seq BIGINT";
+    private static final String ADD_SEQ_KEY_SQL = "CREATE UNIQUE INDEX uk_messages_session_seq ON messages (chat_session_id, seq)";
+
+    public record Shard(int index, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, Counter inserts) {
+    }
+
+    private final List<Shard> shards = new ArrayList<>();
+    private final List<HikariDataSource> ownedDataSources = new ArrayList<>();
+    private final ThreadPoolExecutor scatterPool;
+
+    @Autowired
+    public MessageShards(MessageShardProperties properties, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                         MeterRegistry meterRegistry) {
+        if (properties.getShards().isEmpty()) {
+            shards.add(new Shard(0, jdbcTemplate, transactionTemplate, meterRegistry.counter("messages.shard.inserts", "shard", "0")));
+        }
+        for (MessageShardProperties.Shard config : properties.getShards()) {
+            int index = shards.size();
+            HikariDataSource dataSource = DataSourceBuilder.create().type(HikariDataSource.class)
+                    .url(config.getUrl()).username(config.getUsername()).password(config.getPassword()).build();
+            dataSource.setMaximumPoolSize(config.getMaxPoolSize());
+            dataSource.setPoolName("message-shard-" + index);
+            ownedDataSources.add(dataSource);
+            shards.add(new Shard(index, new JdbcTemplate(dataSource), new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                    meterRegistry.counter("messages.shard.inserts", "shard", String.valueOf(index))));
+        }
+        for (Shard shard : shards) {
+            for (String ddl : SCHEMA_SQL) {
+                shard.jdbcTemplate().execute(ddl);
+            }
+            upgradeMessagesTable(shard);
+        }
+
+        // A full pool only makes the caller query that shard itself, so a busy pool slows scatter-gather down but never fails it
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.scatterPool = new ThreadPoolExecutor(shards.size(), shards.size(), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(shards.size() * 16), runnable -> {
+                    Thread thread = new Thread(runnable, "message-shard-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        System.out.println("[DEBUG] Messages stored on " + shards.size() + " shard(s)");
+    }
+
+    // A messages table created by Hibernate before messages were numbered has neither seq nor its key, and
+    // CREATE TABLE IF NOT EXISTS leaves it as it is; the numbering backfill fills seq in once the column exists
+    private void upgradeMessagesTable(Shard shard) {
+        boolean[] present = shard.jdbcTemplate().execute((ConnectionCallback<boolean[]>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String table = metaData.storesUpperCaseIdentifiers() ? "MESSAGES" : "messages";
+            boolean hasSeq;
+            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), connection.getSchema(), table, null)) {
+                hasSeq = false;
+                while (columns.next()) {
+                    hasSeq |= "seq".equalsIgnoreCase(columns.getString("COLUMN_NAME"));
+                }
+            }
+            // Matched by columns, since some databases name the index behind a unique constraint differently
+            Map<String, Set<String>> uniqueIndexes = new HashMap<>();
+            try (ResultSet indexes = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), table, true, false)) {
+                while (indexes.next()) {
+                    String column = indexes.getString("COLUMN_NAME");
+                    if (column != null) {
+                        uniqueIndexes.computeIfAbsent(indexes.getString("INDEX_NAME"), name -> new HashSet<>()).add(column.toLowerCase());
+                    }
+                }
+            }
+            return new boolean[] {hasSeq, uniqueIndexes.containsValue(Set.of("chat_session_id", "seq"))};
+        });
+        if (!present[0]) {
+            shard.jdbcTemplate().execute(ADD_SEQ_SQL);
+            System.out.println("[DEBUG] Added messages.seq on message shard " + shard.index());
+        }
+        if (!present[1]) {
+            shard.jdbcTemplate().execute(ADD_SEQ_KEY_SQL);
+            System.out.println("[DEBUG] Added uk_messages_session_seq on message shard " + shard.index());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scatterPool.shutdown();
+        ownedDataSources.forEach(HikariDataSource::close);
+    }
+
+    public Shard forSession(Long sessionId) {
+        return shards.get(Math.floorMod(Long.hashCode(sessionId), shards.size()));
+    }
+
+    public List<Shard> all() {
+        return shards;
+    }
+
+    /** Session ids grouped by the shard holding their messages, skipping shards with none of them. */
+    public Map<Shard, List<Long>> bySession(Collection<Long> sessionIds) {
+        Map<Shard, List<Long>> grouped = new LinkedHashMap<>();
+        for (Long sessionId : sessionIds) {
+            grouped.computeIfAbsent(forSession(sessionId), s -> new ArrayList<>()).add(sessionId);
+        }
+        return grouped;
+    }
+
+    /** Runs the query on each of the given shards in parallel and returns the results in shard order. */
+    public <T> List<T> scatter(Collection<Shard> targets, Function<Shard, T> query) {
+        if (targets.size() == 1) {
+            return Collections.singletonList(query.apply(targets.iterator().next()));
+        }
+        List<CompletableFuture<T>> results = new ArrayList<>(targets.size());
+        for (Shard shard : targets) {
+            results.add(CompletableFuture.supplyAsync(() -> query.apply(shard), scatterPool));
+        }
+        List<T> gathered = new ArrayList<>(results.size());
+        try {
+            for (CompletableFuture<T> result : results) {
+                gathered.add(result.join());
+            }
+        } catch (CompletionException e) {
+            // Callers see the shard's own exception, as they would for a single-database query
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        return gathered;
+    }
+}
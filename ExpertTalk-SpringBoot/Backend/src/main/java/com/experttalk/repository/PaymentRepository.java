@@ -0,0 +1,17 @@
+package com.experttalk.repository;
+
+import com.experttalk.model.Payment;
+import com.experttalk.model.PaymentStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PaymentRepository extends JpaRepository<Payment, Long> {
+    Optional<Payment> findByChatSessionId(Long chatSessionId);
+    List<Payment> findTop100ByStatusOrderByIdAsc(PaymentStatus status);
+    List<Payment> findTop100ByStatusAndClaimedAtBeforeOrderByIdAsc(PaymentStatus status, LocalDateTime claimedBefore);
+    Long countByStatus(PaymentStatus status);
+}
@@ -0,0 +1,39 @@
+package com.experttalk.repository;
+
+import com.experttalk.model.RollupDimension;
+import com.experttalk.model.RollupGranularity;
+import com.experttalk.model.SessionRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SessionRollupRepository extends JpaRepository<SessionRollup, Long> {
+
+    @Query("SELECT r FROM SessionRollup r WHERE r.granularity = :granularity AND r.dimension = :dimension " +
+           "AND (:dimensionId IS NULL OR r.dimensionId = :dimensionId) " +
+           "AND r.bucketStart >= :from AND r.bucketStart < :to ORDER BY r.bucketStart, r.dimensionId")
+    List<SessionRollup> findSeries(@Param("granularity") RollupGranularity granularity, @Param("dimension") RollupDimension dimension,
+                                   @Param("dimensionId") Long dimensionId,
+                                   @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT r.dimensionId AS dimensionId, SUM(r.sessionCount) AS sessionCount, SUM(r.completedCount) AS completedCount, " +
+           "SUM(r.totalMinutes) AS totalMinutes, SUM(r.revenue) AS revenue, SUM(r.messageCount) AS messageCount " +
+           "FROM SessionRollup r WHERE r.granularity = :granularity AND r.dimension = :dimension " +
+           "AND r.bucketStart >= :from AND r.bucketStart < :to GROUP BY r.dimensionId")
+    List<RollupTotals> sumByDimensionId(@Param("granularity") RollupGranularity granularity, @Param("dimension") RollupDimension dimension,
+                                        @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    interface RollupTotals {
+        Long getDimensionId();
+        Long getSessionCount();
+        Long getCompletedCount();
+        Long getTotalMinutes();
+        BigDecimal getRevenue();
+        Long getMessageCount();
+    }
+}
@@ -2,10 +2,16 @@ package com.experttalk.repository;
 
 import com.experttalk.model.User;
 import com.experttalk.model.UserType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,9 +26,43 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     List<User> findByUserTypeAndIsApproved(UserType userType, Boolean isApproved);
     
+    // Expert lists only hold ids in the query cache; the rows come from the "users" entity region
+    @QueryHints({@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+                 @QueryHint(name = "org.hibernate.cacheRegion", value = "query.experts")})
     @Query("SELECT u FROM User u WHERE u.userType = :userType AND u.categoryId = :categoryId AND u.isApproved = true AND u.isAvailable = true")
     List<User> findAvailableExpertsByCategory(@Param("userType") UserType userType, @Param("categoryId") Long categoryId);
     
+    @QueryHints({@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+                 @QueryHint(name = "org.hibernate.cacheRegion", value = "query.experts")})
     @Query("SELECT u FROM User u WHERE u.userType = :userType AND u.isApproved = true AND u.isAvailable = true")
     List<User> findAllAvailableExperts(@Param("userType") UserType userType);
+    
+    @Query(value = "SELECT u.id AS id, u.name AS name, u.email AS email, u.userType AS userType, u.categoryId AS categoryId, " +
+                   "u.isApproved AS isApproved, u.createdAt AS createdAt FROM User u " +
+                   "WHERE (:userType IS NULL OR u.userType = :userType) AND (:isApproved IS NULL OR u.isApproved = :isApproved) " +
+                   "AND (:categoryId IS NULL OR u.categoryId = :categoryId)",
+           countQuery = "SELECT COUNT(u.id) FROM User u " +
+                   "WHERE (:userType IS NULL OR u.userType = :userType) AND (:isApproved IS NULL OR u.isApproved = :isApproved) " +
+                   "AND (:categoryId IS NULL OR u.categoryId = :categoryId)")
+    Page<AdminUserView> findAdminUsers(@Param("userType") UserType userType, @Param("isApproved") Boolean isApproved,
+                                       @Param("categoryId") Long categoryId, Pageable pageable);
+
+    @Query("SELECT u.id AS id, u.name AS name FROM User u WHERE u.id IN :ids")
+    List<UserNameView> findNamesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Narrow projection for admin listings - never loads password hashes or collections
+    interface AdminUserView {
+        Long getId();
+        String getName();
+        String getEmail();
+        UserType getUserType();
+        Long getCategoryId();
+        Boolean getIsApproved();
+        LocalDateTime getCreatedAt();
+    }
+
+    interface UserNameView {
+        Long getId();
+        String getName();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.experttalk.security;
+
+import com.experttalk.config.RateLimitProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Token-bucket rate limiter shared by the REST filter and the STOMP inbound interceptor.
+ * Buckets live in a concurrent map (striped by key) and are refilled and drawn down with a compare-and-set, so no request ever blocks on a lock.
+ */
+@Component
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimiter {
+
+    private final RateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final List<Policy> policies = new ArrayList<>();
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Autowired
+    public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        properties.getPolicies().forEach((name, config) -> policies.add(new Policy(name, config)));
+    }
+
+    /**
+     * Charges one token against every policy matching the HTTP path.
+     * Returns 0 when the request may proceed, otherwise the number of seconds the client should wait.
+     */
+    public long checkRequest(String path, String clientKey) {
+        return check(path, clientKey, "http", true);
+    }
+
+    /** Same as {@link #checkRequest} for a STOMP SEND destination. */
+    public long checkMessage(String destination, String clientKey) {
+        return check(destination, clientKey, "stomp", false);
+    }
+
+    private long check(String target, String clientKey, String channel, boolean http) {
+        if (!properties.isEnabled() || target == null) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        for (Policy policy : policies) {
+            List<String> patterns = http ? policy.config.getPaths() : policy.config.getDestinations();
+            if (!matches(patterns, target)) {
+                continue;
+            }
+            Bucket bucket = buckets.computeIfAbsent(policy.name + "|" + clientKey, k -> new Bucket(policy, now));
+            if (!bucket.tryConsume(now)) {
+                meterRegistry.counter("ratelimit.rejected", "policy", policy.name, "channel", channel).increment();
+                return policy.retryAfterSeconds();
+            }
+        }
+        return 0;
+    }
+
+    private boolean matches(List<String> patterns, String target) {
+        for (String pattern : patterns) {
+            if (pathMatcher.match(pattern, target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A bucket that has been idle long enough to refill completely carries no state worth keeping
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.isFullAt(now));
+    }
+
+    private static class Policy {
+        private final String name;
+        private final RateLimitProperties.Policy config;
+        private final double tokensPerNano;
+
+        Policy(String name, RateLimitProperties.Policy config) {
+            this.name = name;
+            this.config = config;
+            this.tokensPerNano = config.getRefillPerSecond() / TimeUnit.SECONDS.toNanos(1);
+        }
+
+        long retryAfterSeconds() {
+            return Math.max(1, (long) Math.ceil(1.0 / config.getRefillPerSecond()));
+        }
+    }
+
+    private static class Bucket {
+        private final Policy policy;
+        private final AtomicReference<State> state;
+
+        Bucket(Policy policy, long now) {
+            this.policy = policy;
+            this.state = new AtomicReference<>(new State(policy.config.getCapacity(), now));
+        }
+
+        boolean tryConsume(long now) {
+            while (true) {
+                State current = state.get();
+                double available = current.tokensAt(now, policy);
+                if (available < 1) {
+                    return false;
+                }
+                if (state.compareAndSet(current, new State(available - 1, Math.max(now, current.updatedAt)))) {
+                    return true;
+                }
+            }
+        }
+
+        boolean isFullAt(long now) {
+            return state.get().tokensAt(now, policy) >= policy.config.getCapacity();
+        }
+    }
+
+    private record State(double tokens, long updatedAt) {
+        double tokensAt(long now, Policy policy) {
+            double refilled = tokens + Math.max(0, now - updatedAt) * policy.tokensPerNano;
+            return Math.min(policy.config.getCapacity(), refilled);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.experttalk.security;
+
+import com.experttalk.model.ChatSession;
+import com.experttalk.model.User;
+import com.experttalk.repository.ChatSessionRepository;
+import com.experttalk.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Authenticates STOMP connections once, on the CONNECT frame: the JWT in its Authorization header is verified and the
+ * user's id, name and role become the connection's principal, which every later frame carries without another lookup.
+ * The handshake itself stays open (SockJS cannot send headers), so a CONNECT without a valid token is answered with an
+ * ERROR frame, and SEND or SUBSCRIBE on a connection without a principal is refused. SUBSCRIBE is also checked against
+ * its destination: a session's topics are for its participants, the admin topics for admins, and nothing else is
+ * published, so any other destination is refused too.
+ */
+@Component
+public class StompAuthInterceptor implements ChannelInterceptor {
+
+    private static final Pattern SESSION_TOPIC = Pattern.compile("/topic/session/(\\d{1,18})(/end|/signals)?");
+    private static final String ADMIN_TOPICS = "/topic/admin/";
+
+    private final JwtUtil jwtUtil;
+    private final UserRepository userRepository;
+    private final ChatSessionRepository chatSessionRepository;
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter subscribeDenied;
+
+    @Autowired
+    public StompAuthInterceptor(JwtUtil jwtUtil, UserRepository userRepository, ChatSessionRepository chatSessionRepository,
+                                MeterRegistry meterRegistry) {
+        this.jwtUtil = jwtUtil;
+        this.userRepository = userRepository;
+        this.chatSessionRepository = chatSessionRepository;
+        this.accepted = meterRegistry.counter("stomp.connect", "result", "accepted");
+        this.rejected = meterRegistry.counter("stomp.connect", "result", "rejected");
+        this.subscribeDenied = meterRegistry.counter("stomp.subscribe.denied");
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+        switch (accessor.getCommand()) {
+            case CONNECT, STOMP -> {
+                StompPrincipal principal = authenticate(accessor.getFirstNativeHeader("Authorization"));
+                if (principal == null) {
+                    rejected.increment();
+                    throw new MessagingException(message, "Invalid or missing token");
+                }
+                accepted.increment();
+                // Stored on the WebSocket session, so SEND and SUBSCRIBE frames of this connection carry it too
+                accessor.setUser(principal);
+            }
+            case SEND, SUBSCRIBE -> {
+                if (!(accessor.getUser() instanceof StompPrincipal principal)) {
+                    throw new MessagingException(message, "Not authenticated");
+                }
+                if (accessor.getCommand() == StompCommand.SUBSCRIBE && !maySubscribe(principal, accessor.getDestination())) {
+                    subscribeDenied.increment();
+                    throw new MessagingException(message, "Not allowed to subscribe to " + accessor.getDestination());
+                }
+            }
+            default -> {
+            }
+        }
+        return message;
+    }
+
+    private boolean maySubscribe(StompPrincipal principal, String destination) {
+        if (destination == null) {
+            return false;
+        }
+        if (destination.startsWith(ADMIN_TOPICS)) {
+            return "Admin".equals(principal.role());
+        }
+        Matcher session = SESSION_TOPIC.matcher(destination);
+        if (!session.matches()) {
+            return false;
+        }
+        Optional<ChatSession> chatSession = chatSessionRepository.findById(Long.valueOf(session.group(1)));
+        return chatSession.isPresent() && (chatSession.get().getUserId().equals(principal.userId())
+                || chatSession.get().getExpertId().equals(principal.userId()));
+    }
+
+    private StompPrincipal authenticate(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return null;
+        }
+        String token = authHeader.substring(7);
+        if (!jwtUtil.validateToken(token)) {
+            return null;
+        }
+        Claims claims = jwtUtil.extractAllClaims(token);
+        Long userId = Long.valueOf(claims.get("userId").toString());
+        // The current name rather than the one in the token, looked up once for the whole connection
+        Optional<User> user = userRepository.findById(userId);
+        return user.map(u -> new StompPrincipal(userId, u.getName(), String.valueOf(claims.get("role")))).orElse(null);
+    }
+}
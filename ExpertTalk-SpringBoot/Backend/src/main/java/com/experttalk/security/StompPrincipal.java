@@ -0,0 +1,12 @@
+package com.experttalk.security;
+
+import java.security.Principal;
+
+// The user behind a STOMP connection, resolved once on CONNECT; getName() is the user id, like the REST authentication
+public record StompPrincipal(Long userId, String displayName, String role) implements Principal {
+
+    @Override
+    public String getName() {
+        return String.valueOf(userId);
+    }
+}
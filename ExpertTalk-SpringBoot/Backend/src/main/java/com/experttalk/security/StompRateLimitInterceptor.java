@@ -0,0 +1,70 @@
+package com.experttalk.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import java.net.InetSocketAddress;
+import java.util.Map;
+
+/**
+ * Applies the rate limit policies to inbound STOMP SEND frames.
+ * Also captures the client address during the handshake so anonymous connections can be keyed by IP.
+ */
+@Component
+public class StompRateLimitInterceptor implements ChannelInterceptor, HandshakeInterceptor {
+
+    private static final String CLIENT_ADDRESS_ATTRIBUTE = "clientAddress";
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress != null && remoteAddress.getAddress() != null) {
+            attributes.put(CLIENT_ADDRESS_ATTRIBUTE, remoteAddress.getAddress().getHostAddress());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.SEND) {
+            return message;
+        }
+
+        long retryAfter = rateLimiter.checkMessage(accessor.getDestination(), clientKey(accessor));
+        if (retryAfter > 0) {
+            // Dropping the frame keeps the connection open; the client simply does not get its echo
+            System.out.println("[DEBUG] Rate limited STOMP frame to " + accessor.getDestination()
+                    + " from session " + accessor.getSessionId());
+            return null;
+        }
+        return message;
+    }
+
+    private String clientKey(StompHeaderAccessor accessor) {
+        if (accessor.getUser() != null) {
+            return "user:" + accessor.getUser().getName();
+        }
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        Object address = attributes != null ? attributes.get(CLIENT_ADDRESS_ATTRIBUTE) : null;
+        return address != null ? "ip:" + address : "session:" + accessor.getSessionId();
+    }
+}
@@ -0,0 +1,95 @@
+package com.experttalk.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes admin dashboard events to the outbox in the caller's transaction. When the relay drains several
+ * events for one topic they go out as one frame, and repeated events for the same entity collapse into the latest state.
+ */
+@Service
+public class AdminEventPublisher {
+
+    public static final String TOPIC_PREFIX = "/topic/admin/";
+    public static final String USERS_TOPIC = TOPIC_PREFIX + "users";
+    public static final String CATEGORIES_TOPIC = TOPIC_PREFIX + "categories";
+    public static final String SESSIONS_TOPIC = TOPIC_PREFIX + "sessions";
+
+    private final OutboxService outboxService;
+
+    private final Counter eventsPublished;
+    private final Counter eventsCoalesced;
+    private final Counter framesSent;
+    private final Counter framesSaved;
+
+    @Autowired
+    public AdminEventPublisher(OutboxService outboxService, MeterRegistry meterRegistry) {
+        this.outboxService = outboxService;
+        this.eventsPublished = meterRegistry.counter("admin.events.published");
+        this.eventsCoalesced = meterRegistry.counter("admin.events.coalesced");
+        this.framesSent = meterRegistry.counter("admin.events.frames");
+        this.framesSaved = meterRegistry.counter("admin.events.frames.saved");
+    }
+
+    public void publishCreate(String topic, Object id, Object data) {
+        enqueue(topic, id, "create", data);
+    }
+
+    public void publishUpdate(String topic, Object id, Object data) {
+        enqueue(topic, id, "update", data);
+    }
+
+    public void publishDelete(String topic, Object id) {
+        enqueue(topic, id, "delete", null);
+    }
+
+    private void enqueue(String topic, Object id, String action, Object data) {
+        Map<String, Object> frame = new LinkedHashMap<>();
+        frame.put("action", action);
+        frame.put("id", id);
+        if (data != null) {
+            frame.put("data", data);
+        }
+        outboxService.append(topic, id, frame);
+        eventsPublished.increment();
+    }
+
+    public static boolean isAdminTopic(String destination) {
+        return destination.startsWith(TOPIC_PREFIX);
+    }
+
+    /**
+     * Folds the frames drained for one topic, in outbox order, into the single frame that is sent.
+     */
+    public JsonNode coalesce(List<JsonNode> frames) {
+        Map<String, JsonNode> latest = new LinkedHashMap<>();
+        for (JsonNode next : frames) {
+            latest.merge(next.path("id").asText(), next, (previous, current) -> {
+                eventsCoalesced.increment();
+                // A create followed by updates is still a create for clients that never saw the entity
+                if (previous.path("action").asText().equals("create") && current.path("action").asText().equals("update")) {
+                    return ((ObjectNode) current.deepCopy()).put("action", "create");
+                }
+                return current;
+            });
+        }
+
+        framesSent.increment();
+        framesSaved.increment(frames.size() - 1);
+        if (latest.size() == 1) {
+            return latest.values().iterator().next();
+        }
+        ObjectNode batch = JsonNodeFactory.instance.objectNode();
+        batch.put("action", "batch");
+        batch.putArray("events").addAll(latest.values());
+        return batch;
+    }
+}
@@ -0,0 +1,236 @@
+package com.experttalk.service;
+
+import com.experttalk.model.ChatSession;
+import com.experttalk.model.SessionStatus;
+import com.experttalk.repository.ChatSessionRepository;
+import com.experttalk.repository.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Typing indicators and read receipts for live chats. They never touch the messages table on the hot path:
+ * signals only update in-memory state, each session gets at most one frame per publish interval on its signals topic,
+ * and read watermarks are written back to messages.is_read in one batch per shard every flush interval. A read seq is
+ * clamped to the session's last message, looked up in the table only when it is past what the recent buffer holds.
+ */
+@Service
+public class ChatSignalService {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ChatSessionRepository chatSessionRepository;
+    private final MessageRepository messageRepository;
+    private final ResourceVersions resourceVersions;
+    private final RecentMessageService recentMessageService;
+    private final long typingTtlMillis;
+
+    // Live state per active session, dropped when the session ends
+    private final Map<Long, SessionSignals> sessions = new ConcurrentHashMap<>();
+    private final Set<Long> dirtySessions = ConcurrentHashMap.newKeySet();
+
+    // (session, reader) -> highest seq read since the last flush
+    private final Map<ReadKey, Long> pendingReads = new ConcurrentHashMap<>();
+
+    private final Counter typingSignals;
+    private final Counter readSignals;
+    private final Counter rejectedSignals;
+    private final Counter framesSent;
+    private final Counter readsFlushed;
+
+    @Autowired
+    public ChatSignalService(SimpMessagingTemplate messagingTemplate, ChatSessionRepository chatSessionRepository,
+                             MessageRepository messageRepository, ResourceVersions resourceVersions,
+                             RecentMessageService recentMessageService, MeterRegistry meterRegistry,
+                             @Value("${chat.signals.typing-ttl-ms:5000}") long typingTtlMillis) {
+        this.messagingTemplate = messagingTemplate;
+        this.chatSessionRepository = chatSessionRepository;
+        this.messageRepository = messageRepository;
+        this.resourceVersions = resourceVersions;
+        this.recentMessageService = recentMessageService;
+        this.typingTtlMillis = typingTtlMillis;
+        this.typingSignals = meterRegistry.counter("chat.signals.received", "type", "typing");
+        this.readSignals = meterRegistry.counter("chat.signals.received", "type", "read");
+        this.rejectedSignals = meterRegistry.counter("chat.signals.rejected");
+        this.framesSent = meterRegistry.counter("chat.signals.frames");
+        this.readsFlushed = meterRegistry.counter("chat.signals.reads.flushed");
+        meterRegistry.gaugeMapSize("chat.signals.pending.reads", List.of(), pendingReads);
+    }
+
+    public static String topic(Long sessionId) {
+        return "/topic/session/" + sessionId + "/signals";
+    }
+
+    public void typing(Long sessionId, Long participantId, boolean typing) {
+        SessionSignals signals = signalsFor(sessionId, participantId);
+        if (signals == null) {
+            return;
+        }
+        typingSignals.increment();
+        if (signals.setTyping(participantId, typing, System.currentTimeMillis())) {
+            dirtySessions.add(sessionId);
+        }
+    }
+
+    public void read(Long sessionId, Long readerId, long seq) {
+        SessionSignals signals = signalsFor(sessionId, readerId);
+        if (signals == null) {
+            return;
+        }
+        readSignals.increment();
+        // The client's seq is untrusted; marking past the last message would pre-mark messages not sent yet
+        long upTo = seq <= recentMessageService.lastSeq(sessionId) ? seq : Math.min(seq, messageRepository.lastSeq(sessionId));
+        if (upTo <= 0) {
+            return;
+        }
+        if (signals.advanceRead(readerId, upTo)) {
+            pendingReads.merge(new ReadKey(sessionId, readerId), upTo, Math::max);
+            dirtySessions.add(sessionId);
+        }
+    }
+
+    // Participants are checked against a copy loaded once per session, so signals cost no query after the first
+    private SessionSignals signalsFor(Long sessionId, Long participantId) {
+        if (sessionId == null || participantId == null) {
+            rejectedSignals.increment();
+            return null;
+        }
+        SessionSignals signals = sessions.get(sessionId);
+        if (signals == null) {
+            Optional<ChatSession> sessionOpt = chatSessionRepository.findById(sessionId);
+            if (sessionOpt.isEmpty() || sessionOpt.get().getStatus() != SessionStatus.ACTIVE) {
+                rejectedSignals.increment();
+                return null;
+            }
+            ChatSession session = sessionOpt.get();
+            signals = sessions.computeIfAbsent(sessionId, id -> new SessionSignals(session.getUserId(), session.getExpertId()));
+        }
+        if (!signals.isParticipant(participantId)) {
+            rejectedSignals.increment();
+            return null;
+        }
+        return signals;
+    }
+
+    @Scheduled(fixedDelayString = "${chat.signals.publish-interval-ms:300}")
+    public void publish() {
+        long now = System.currentTimeMillis();
+        sessions.forEach((sessionId, signals) -> {
+            if (signals.expireTyping(now - typingTtlMillis)) {
+                dirtySessions.add(sessionId);
+            }
+        });
+
+        for (Long sessionId : List.copyOf(dirtySessions)) {
+            dirtySessions.remove(sessionId);
+            SessionSignals signals = sessions.get(sessionId);
+            if (signals == null) {
+                continue;
+            }
+            try {
+                messagingTemplate.convertAndSend(topic(sessionId), signals.snapshot());
+                framesSent.increment();
+            } catch (Exception e) {
+                System.err.println("[ERROR] Failed to publish chat signals for session " + sessionId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.signals.read-flush-ms:30000}")
+    public void flushReads() {
+        if (pendingReads.isEmpty()) {
+            return;
+        }
+        List<MessageRepository.ReadWatermark> updates = new ArrayList<>(pendingReads.size());
+        for (ReadKey key : List.copyOf(pendingReads.keySet())) {
+            Long seq = pendingReads.remove(key);
+            if (seq != null) {
+                updates.add(new MessageRepository.ReadWatermark(key.sessionId(), key.readerId(), seq));
+            }
+        }
+        try {
+            messageRepository.markReadUpTo(updates);
+            readsFlushed.increment(updates.size());
+            // Unread counts changed, so cached session views and the recent-message buffers follow the table
+            for (MessageRepository.ReadWatermark u : updates) {
+                resourceVersions.sessionChanged(u.sessionId());
+                recentMessageService.markReadUpTo(u.sessionId(), u.readerId(), u.seq());
+            }
+        } catch (Exception e) {
+            // Put the watermarks back so the next flush retries them
+            updates.forEach(u -> pendingReads.merge(new ReadKey(u.sessionId(), u.readerId()), u.seq(), Math::max));
+            System.err.println("[ERROR] Failed to flush " + updates.size() + " read watermarks: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        flushReads();
+    }
+
+    @EventListener
+    public void onSessionEnded(SessionEndedEvent event) {
+        // Pending watermarks stay queued for the next flush
+        sessions.remove(event.getSessionId());
+        dirtySessions.remove(event.getSessionId());
+    }
+
+    private record ReadKey(Long sessionId, Long readerId) {
+    }
+
+    private static class SessionSignals {
+        private final Long userId;
+        private final Long expertId;
+        // Participant id -> when they last said they were typing; absent when not typing
+        private final Map<Long, Long> typingSince = new LinkedHashMap<>();
+        private final Map<Long, Long> readSeq = new LinkedHashMap<>();
+
+        SessionSignals(Long userId, Long expertId) {
+            this.userId = userId;
+            this.expertId = expertId;
+        }
+
+        boolean isParticipant(Long participantId) {
+            return participantId.equals(userId) || participantId.equals(expertId);
+        }
+
+        synchronized boolean setTyping(Long participantId, boolean typing, long now) {
+            if (typing) {
+                return typingSince.put(participantId, now) == null;
+            }
+            return typingSince.remove(participantId) != null;
+        }
+
+        synchronized boolean expireTyping(long cutoff) {
+            return typingSince.values().removeIf(since -> since < cutoff);
+        }
+
+        synchronized boolean advanceRead(Long readerId, long seq) {
+            Long previous = readSeq.get(readerId);
+            if (previous != null && previous >= seq) {
+                return false;
+            }
+            readSeq.put(readerId, seq);
+            return true;
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            Map<String, Object> frame = new LinkedHashMap<>();
+            frame.put("typing", new ArrayList<>(typingSince.keySet()));
+            frame.put("read", new LinkedHashMap<>(readSeq));
+            return frame;
+        }
+    }
+}
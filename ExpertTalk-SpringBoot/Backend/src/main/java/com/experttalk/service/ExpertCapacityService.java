@@ -0,0 +1,163 @@
+package com.experttalk.service;
+
+import com.experttalk.model.SessionStatus;
+import com.experttalk.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits how many ACTIVE sessions an expert can have at once.
+ * A per-expert counter is reserved with compare-and-set, so starts for different experts never contend. A full counter
+ * is recounted from the table before the start is turned away, since it only hears about sessions ended through this
+ * instance. The session row itself is written with a conditional insert that re-checks the count, which keeps the limit
+ * correct across instances and after the counters drift. Sessions past their paid duration are not counted: they stay
+ * ACTIVE until someone loads them, which may be never.
+ */
+@Service
+public class ExpertCapacityService {
+
+    private static final String RESERVE_SQL =
+            "INSERT INTO chat_sessions (user_id, expert_id, start_time, status, duration_minutes) " +
+            "SELECT ?, ?, ?, ?, ? FROM DUAL " +
+            "WHERE (SELECT COUNT(*) FROM chat_sessions WHERE expert_id = ? AND status = ? " +
+            "AND TIMESTAMPADD(MINUTE, COALESCE(duration_minutes, 60), start_time) > ?) < ?";
+
+    private static final String COUNT_ACTIVE_SQL =
+            "SELECT COUNT(*) FROM chat_sessions WHERE expert_id = ? AND status = ? " +
+            "AND TIMESTAMPADD(MINUTE, COALESCE(duration_minutes, 60), start_time) > ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int defaultMaxSessions;
+    private final Map<Long, AtomicInteger> activeByExpert = new ConcurrentHashMap<>();
+
+    private final Counter reserved;
+    private final Counter rejectedBusy;
+    private final Counter rejectedByDatabase;
+
+    @Autowired
+    public ExpertCapacityService(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                                 @Value("${chat.expert.max-concurrent-sessions:1}") int defaultMaxSessions) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.defaultMaxSessions = defaultMaxSessions;
+        this.reserved = meterRegistry.counter("chat.capacity.reservations", "result", "reserved");
+        this.rejectedBusy = meterRegistry.counter("chat.capacity.reservations", "result", "busy");
+        this.rejectedByDatabase = meterRegistry.counter("chat.capacity.reservations", "result", "busy-db");
+    }
+
+    /**
+     * Creates an ACTIVE session for the expert if they have capacity left.
+     * Returns the new session id, or null when the expert is at their limit.
+     */
+    public Long startSession(Long userId, User expert, int durationMinutes) {
+        int limit = maxSessions(expert);
+        AtomicInteger active = activeByExpert.computeIfAbsent(expert.getId(), this::loadActiveCount);
+        boolean reservedInMemory = tryReserve(active, limit);
+        // Expired, deleted or remotely ended sessions may still be counted, so the table decides before a rejection
+        if (!reservedInMemory && countActive(expert.getId()) >= limit) {
+            rejectedBusy.increment();
+            return null;
+        }
+
+        Long sessionId;
+        try {
+            sessionId = insertIfBelowLimit(userId, expert.getId(), durationMinutes, limit);
+        } catch (ConcurrencyFailureException e) {
+            // Two starts for the same expert raced on the same index range; one of them loses
+            sessionId = null;
+        } catch (RuntimeException e) {
+            if (reservedInMemory) {
+                active.decrementAndGet();
+            }
+            throw e;
+        }
+
+        if (sessionId == null) {
+            // Memory said yes but the table says the expert is full: drop the counter so it is reloaded from the table
+            activeByExpert.remove(expert.getId(), active);
+            rejectedByDatabase.increment();
+            return null;
+        }
+        if (!reservedInMemory) {
+            // The counter was stale; replacing it here rather than before the insert keeps in-flight reservations counted
+            activeByExpert.remove(expert.getId(), active);
+        }
+        reserved.increment();
+        return sessionId;
+    }
+
+    @EventListener
+    public void onSessionEnded(SessionEndedEvent event) {
+        AtomicInteger active = activeByExpert.get(event.getExpertId());
+        if (active != null) {
+            active.updateAndGet(count -> Math.max(0, count - 1));
+        }
+    }
+
+    // Counters are only a fast path; dropping them periodically bounds drift from admin edits, deletes and other instances
+    @Scheduled(fixedDelayString = "${chat.expert.capacity-resync-ms:300000}")
+    public void resync() {
+        activeByExpert.clear();
+    }
+
+    private boolean tryReserve(AtomicInteger active, int limit) {
+        while (true) {
+            int current = active.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (active.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private Long insertIfBelowLimit(Long userId, Long expertId, int durationMinutes, int limit) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        int inserted = jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(RESERVE_SQL, Statement.RETURN_GENERATED_KEYS);
+            ps.setLong(1, userId);
+            ps.setLong(2, expertId);
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            ps.setTimestamp(3, now);
+            ps.setString(4, SessionStatus.ACTIVE.name());
+            ps.setInt(5, durationMinutes);
+            ps.setLong(6, expertId);
+            ps.setString(7, SessionStatus.ACTIVE.name());
+            ps.setTimestamp(8, now);
+            ps.setInt(9, limit);
+            return ps;
+        }, keyHolder);
+        return inserted == 1 && keyHolder.getKey() != null ? keyHolder.getKey().longValue() : null;
+    }
+
+    private AtomicInteger loadActiveCount(Long expertId) {
+        return new AtomicInteger(countActive(expertId));
+    }
+
+    private int countActive(Long expertId) {
+        Integer count = jdbcTemplate.queryForObject(COUNT_ACTIVE_SQL, Integer.class, expertId, SessionStatus.ACTIVE.name(),
+                Timestamp.valueOf(LocalDateTime.now()));
+        return count != null ? count : 0;
+    }
+
+    private int maxSessions(User expert) {
+        return expert.getMaxConcurrentSessions() != null && expert.getMaxConcurrentSessions() > 0
+                ? expert.getMaxConcurrentSessions() : defaultMaxSessions;
+    }
+}
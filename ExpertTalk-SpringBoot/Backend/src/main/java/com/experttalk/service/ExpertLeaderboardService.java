@@ -0,0 +1,242 @@
+package com.experttalk.service;
+
+import com.experttalk.dto.AdminDTOs.LeaderboardEntry;
+import com.experttalk.model.SessionStatus;
+import com.experttalk.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps expert rankings by revenue, sessions and minutes for today, this week and all time, updated as sessions complete.
+ * Every window holds one score per expert plus an ordered index per metric, so a completion is a few O(log n) updates
+ * and reading the top K never sorts. Boards are rebuilt from chat_sessions on startup and periodically to absorb admin edits.
+ */
+@Service
+public class ExpertLeaderboardService {
+
+    public enum Window { TODAY, WEEK, ALL_TIME }
+
+    public enum Metric { REVENUE, SESSIONS, MINUTES }
+
+    public static final String TOPIC = "/topic/admin/leaderboards";
+
+    private static final String TOTALS_SQL =
+            "SELECT expert_id, COUNT(*) AS sessions, COALESCE(SUM(duration_minutes), 0) AS minutes, " +
+            "COALESCE(SUM(total_amount), 0) AS revenue FROM chat_sessions WHERE status = ? AND end_time >= ? GROUP BY expert_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRepository userRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final int topicSize;
+    private final Map<Window, Board> boards = new EnumMap<>(Window.class);
+    private final AtomicBoolean changed = new AtomicBoolean();
+
+    @Autowired
+    public ExpertLeaderboardService(JdbcTemplate jdbcTemplate, UserRepository userRepository, SimpMessagingTemplate messagingTemplate,
+                                    @Value("${leaderboards.topic-size:10}") int topicSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userRepository = userRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.topicSize = topicSize;
+        for (Window window : Window.values()) {
+            boards.put(window, new Board(windowStart(window, LocalDateTime.now())));
+        }
+    }
+
+    @EventListener
+    public void onSessionEnded(SessionEndedEvent event) {
+        if (event.getStatus() != SessionStatus.COMPLETED) {
+            return;
+        }
+        LocalDateTime endedAt = event.getEndTime() != null ? event.getEndTime() : LocalDateTime.now();
+        BigDecimal revenue = event.getTotalAmount() != null ? event.getTotalAmount() : BigDecimal.ZERO;
+        int minutes = event.getDurationMinutes() != null ? event.getDurationMinutes() : 0;
+        LocalDateTime now = LocalDateTime.now();
+        for (Window window : Window.values()) {
+            Board board = boards.get(window);
+            synchronized (board) {
+                board.rollOver(windowStart(window, now));
+                if (board.start == null || !endedAt.isBefore(board.start)) {
+                    board.add(event.getExpertId(), revenue, 1, minutes);
+                }
+            }
+        }
+        changed.set(true);
+    }
+
+    public List<LeaderboardEntry> top(Window window, Metric metric, int limit) {
+        Board board = boards.get(window);
+        List<Score> scores = new ArrayList<>(limit);
+        synchronized (board) {
+            board.rollOver(windowStart(window, LocalDateTime.now()));
+            for (Score score : board.rankings.get(metric)) {
+                if (scores.size() == limit) {
+                    break;
+                }
+                scores.add(score);
+            }
+        }
+        Set<Long> expertIds = new HashSet<>();
+        scores.forEach(score -> expertIds.add(score.expertId()));
+        Map<Long, String> names = new HashMap<>();
+        if (!expertIds.isEmpty()) {
+            userRepository.findNamesByIdIn(expertIds).forEach(u -> names.put(u.getId(), u.getName()));
+        }
+        List<LeaderboardEntry> entries = new ArrayList<>(scores.size());
+        for (Score score : scores) {
+            entries.add(new LeaderboardEntry(entries.size() + 1, score.expertId(), names.get(score.expertId()),
+                    score.revenue(), score.sessions(), score.minutes()));
+        }
+        return entries;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    // Corrects drift from admin edits and deletes, which never reach the incremental path
+    @Scheduled(fixedDelayString = "${leaderboards.resync-ms:3600000}", initialDelayString = "${leaderboards.resync-ms:3600000}")
+    public void rebuild() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            for (Window window : Window.values()) {
+                LocalDateTime start = windowStart(window, now);
+                Board rebuilt = new Board(start);
+                jdbcTemplate.query(TOTALS_SQL, rs -> {
+                    rebuilt.add(rs.getLong("expert_id"), rs.getBigDecimal("revenue"), rs.getLong("sessions"), rs.getLong("minutes"));
+                }, SessionStatus.COMPLETED.name(), Timestamp.valueOf(start != null ? start : LocalDateTime.of(1970, 1, 1, 0, 0)));
+                Board board = boards.get(window);
+                synchronized (board) {
+                    board.replaceWith(rebuilt);
+                }
+            }
+            changed.set(true);
+            System.out.println("[DEBUG] Rebuilt expert leaderboards");
+        } catch (Exception e) {
+            System.err.println("[ERROR] Failed to rebuild expert leaderboards: " + e.getMessage());
+        }
+    }
+
+    // Completions are folded into at most one snapshot per interval on the live topic
+    @Scheduled(fixedDelayString = "${leaderboards.publish-interval-ms:1000}")
+    public void publish() {
+        LocalDateTime now = LocalDateTime.now();
+        for (Window window : Window.values()) {
+            Board board = boards.get(window);
+            synchronized (board) {
+                if (board.rollOver(windowStart(window, now))) {
+                    changed.set(true);
+                }
+            }
+        }
+        if (!changed.getAndSet(false)) {
+            return;
+        }
+        try {
+            Map<Window, Map<Metric, List<LeaderboardEntry>>> snapshot = new LinkedHashMap<>();
+            for (Window window : Window.values()) {
+                Map<Metric, List<LeaderboardEntry>> byMetric = new LinkedHashMap<>();
+                for (Metric metric : Metric.values()) {
+                    byMetric.put(metric, top(window, metric, topicSize));
+                }
+                snapshot.put(window, byMetric);
+            }
+            messagingTemplate.convertAndSend(TOPIC, snapshot);
+        } catch (Exception e) {
+            System.err.println("[ERROR] Failed to publish expert leaderboards: " + e.getMessage());
+        }
+    }
+
+    private static LocalDateTime windowStart(Window window, LocalDateTime now) {
+        LocalDate today = now.toLocalDate();
+        return switch (window) {
+            case TODAY -> today.atStartOfDay();
+            case WEEK -> today.with(DayOfWeek.MONDAY).atStartOfDay();
+            case ALL_TIME -> null;
+        };
+    }
+
+    private static Comparator<Score> ranking(Metric metric) {
+        Comparator<Score> byMetric = switch (metric) {
+            case REVENUE -> Comparator.comparing(Score::revenue);
+            case SESSIONS -> Comparator.comparingLong(Score::sessions);
+            case MINUTES -> Comparator.comparingLong(Score::minutes);
+        };
+        // Expert id breaks ties so the ordered set never treats two experts as the same entry
+        return byMetric.reversed().thenComparingLong(Score::expertId);
+    }
+
+    private record Score(long expertId, BigDecimal revenue, long sessions, long minutes) {}
+
+    // Guarded by its own monitor
+    private static final class Board {
+        private LocalDateTime start;
+        private final Map<Long, Score> scores = new HashMap<>();
+        private final Map<Metric, TreeSet<Score>> rankings = new EnumMap<>(Metric.class);
+
+        Board(LocalDateTime start) {
+            this.start = start;
+            for (Metric metric : Metric.values()) {
+                rankings.put(metric, new TreeSet<>(ranking(metric)));
+            }
+        }
+
+        void add(long expertId, BigDecimal revenue, long sessions, long minutes) {
+            Score previous = scores.get(expertId);
+            Score next = previous == null
+                    ? new Score(expertId, revenue, sessions, minutes)
+                    : new Score(expertId, previous.revenue().add(revenue), previous.sessions() + sessions, previous.minutes() + minutes);
+            scores.put(expertId, next);
+            for (TreeSet<Score> ranking : rankings.values()) {
+                if (previous != null) {
+                    ranking.remove(previous);
+                }
+                ranking.add(next);
+            }
+        }
+
+        // A new day or week starts empty
+        boolean rollOver(LocalDateTime currentStart) {
+            if (start == null || start.equals(currentStart)) {
+                return false;
+            }
+            start = currentStart;
+            scores.clear();
+            rankings.values().forEach(TreeSet::clear);
+            return true;
+        }
+
+        void replaceWith(Board other) {
+            start = other.start;
+            scores.clear();
+            scores.putAll(other.scores);
+            rankings.forEach((metric, ranking) -> {
+                ranking.clear();
+                ranking.addAll(other.rankings.get(metric));
+            });
+        }
+    }
+}
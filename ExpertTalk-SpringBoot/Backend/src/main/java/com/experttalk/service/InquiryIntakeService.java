@@ -0,0 +1,231 @@
+package com.experttalk.service;
+
+import com.experttalk.model.Inquiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accepts public inquiries into a bounded queue and persists them in batches from a single background writer,
+ * so bursts of submissions never turn into one synchronous insert per request. Identical content is dropped for the
+ * duplicate window: in memory per submission, and in the table per window-sized time bucket, so the same inquiry can
+ * be sent again once the window has passed. A batch that fails to insert is retried with backoff, which the idempotent
+ * insert makes safe, and only counted as dropped once its attempts run out.
+ */
+@Service
+public class InquiryIntakeService {
+
+    public enum Result { ACCEPTED, DUPLICATE, REJECTED }
+
+    private static final String INSERT_SQL =
+            "INSERT IGNORE INTO inquiries (name, email, phone, subject, message, category, is_read, created_at, content_hash) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<Inquiry> queue;
+    private final int batchSize;
+    private final long duplicateWindowMillis;
+    private final int maxTrackedHashes;
+    private final int maxAttempts;
+    private final long retryBaseMillis;
+    private final long retryMaxMillis;
+
+    // Content hash -> time it was accepted, used to drop resubmissions before they reach the queue
+    private final Map<String, Long> recentHashes = new ConcurrentHashMap<>();
+
+    private final Counter accepted;
+    private final Counter duplicates;
+    private final Counter rejected;
+    private final Counter persisted;
+    private final Counter dropped;
+
+    private Thread writer;
+    private volatile boolean running = true;
+    private long lastEviction = System.currentTimeMillis();
+
+    @Autowired
+    public InquiryIntakeService(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                                @Value("${inquiry.intake.queue-capacity:1000}") int queueCapacity,
+                                @Value("${inquiry.intake.batch-size:100}") int batchSize,
+                                @Value("${inquiry.intake.duplicate-window-minutes:60}") long duplicateWindowMinutes,
+                                @Value("${inquiry.intake.max-attempts:5}") int maxAttempts,
+                                @Value("${inquiry.intake.retry-base-ms:1000}") long retryBaseMillis,
+                                @Value("${inquiry.intake.retry-max-ms:30000}") long retryMaxMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.duplicateWindowMillis = Math.max(1, TimeUnit.MINUTES.toMillis(duplicateWindowMinutes));
+        this.maxTrackedHashes = queueCapacity * 10;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBaseMillis = retryBaseMillis;
+        this.retryMaxMillis = retryMaxMillis;
+        this.accepted = meterRegistry.counter("inquiry.intake", "result", "accepted");
+        this.duplicates = meterRegistry.counter("inquiry.intake", "result", "duplicate");
+        this.rejected = meterRegistry.counter("inquiry.intake", "result", "rejected");
+        this.persisted = meterRegistry.counter("inquiry.intake.persisted");
+        this.dropped = meterRegistry.counter("inquiry.intake.dropped");
+        meterRegistry.gauge("inquiry.intake.queue.depth", queue, BlockingQueue::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        writer = new Thread(this::drainLoop, "inquiry-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // The writer notices within one poll interval and flushes whatever is still queued
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public Result submit(Inquiry inquiry) {
+        String hash = contentHash(inquiry);
+        long now = System.currentTimeMillis();
+        Long previous = recentHashes.putIfAbsent(hash, now);
+        if (previous != null) {
+            if (now - previous < duplicateWindowMillis) {
+                duplicates.increment();
+                return Result.DUPLICATE;
+            }
+            recentHashes.put(hash, now);
+        }
+
+        inquiry.setId(null);
+        inquiry.setIsRead(false);
+        inquiry.setCreatedAt(LocalDateTime.now());
+        // Stored with its time bucket, so the unique index only holds duplicates back for about one window
+        inquiry.setContentHash(sha256(hash + "\u0000" + now / duplicateWindowMillis));
+        if (!queue.offer(inquiry)) {
+            // Let the client retry the same content once there is room again
+            recentHashes.remove(hash, now);
+            rejected.increment();
+            return Result.REJECTED;
+        }
+        accepted.increment();
+        return Result.ACCEPTED;
+    }
+
+    private void drainLoop() {
+        List<Inquiry> batch = new ArrayList<>(batchSize);
+        int failures = 0;
+        while (running || !queue.isEmpty() || !batch.isEmpty()) {
+            try {
+                // A failed batch is kept and tried again after its delay instead of taking new submissions
+                if (failures > 0) {
+                    Thread.sleep(retryDelay(failures));
+                } else {
+                    Inquiry first = queue.poll(1, TimeUnit.SECONDS);
+                    evictExpiredHashes();
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+                persist(batch);
+                batch.clear();
+                failures = 0;
+            } catch (InterruptedException e) {
+                drop(batch, "the writer was interrupted");
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                failures++;
+                // While stopping there is no time left to wait out a retry delay
+                if (failures >= maxAttempts || !running) {
+                    drop(batch, failures + " attempts failed, last: " + e.getMessage());
+                    failures = 0;
+                } else {
+                    System.err.println("[ERROR] Failed to persist " + batch.size() + " inquiries, retrying in "
+                            + retryDelay(failures) + " ms: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private long retryDelay(int failures) {
+        return Math.min(retryMaxMillis, retryBaseMillis << Math.min(failures - 1, 16));
+    }
+
+    private void drop(List<Inquiry> batch, String reason) {
+        if (!batch.isEmpty()) {
+            dropped.increment(batch.size());
+            System.err.println("[ERROR] Dropped " + batch.size() + " inquiries: " + reason);
+            batch.clear();
+        }
+    }
+
+    private void persist(List<Inquiry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // INSERT IGNORE with the unique bucketed hash keeps the write idempotent if a duplicate slips past the in-memory window
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, inquiry) -> {
+            ps.setString(1, inquiry.getName());
+            ps.setString(2, inquiry.getEmail());
+            ps.setString(3, inquiry.getPhone());
+            ps.setString(4, inquiry.getSubject());
+            ps.setString(5, inquiry.getMessage());
+            ps.setString(6, inquiry.getCategory());
+            ps.setBoolean(7, inquiry.getIsRead());
+            ps.setTimestamp(8, Timestamp.valueOf(inquiry.getCreatedAt()));
+            ps.setString(9, inquiry.getContentHash());
+        });
+        persisted.increment(batch.size());
+        System.out.println("[DEBUG] Persisted batch of " + batch.size() + " inquiries");
+    }
+
+    private void evictExpiredHashes() {
+        long now = System.currentTimeMillis();
+        if (now - lastEviction < TimeUnit.SECONDS.toMillis(30) && recentHashes.size() <= maxTrackedHashes) {
+            return;
+        }
+        lastEviction = now;
+        long cutoff = now - duplicateWindowMillis;
+        recentHashes.values().removeIf(acceptedAt -> acceptedAt < cutoff);
+        if (recentHashes.size() > maxTrackedHashes) {
+            recentHashes.clear();
+        }
+    }
+
+    private String contentHash(Inquiry inquiry) {
+        String normalized = String.join("\u0000",
+                normalize(inquiry.getEmail()), normalize(inquiry.getName()),
+                normalize(inquiry.getSubject()), normalize(inquiry.getMessage()));
+        return sha256(normalized);
+    }
+
+    private String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private String normalize(String value) {
+        return value == null ? "" : value.trim().replaceAll("\\s+", " ").toLowerCase();
+    }
+}
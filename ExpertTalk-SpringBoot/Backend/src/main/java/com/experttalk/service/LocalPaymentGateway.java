@@ -0,0 +1,30 @@
+package com.experttalk.service;
+
+import com.experttalk.model.Payment;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Stand-in gateway for development: accepts every positive amount and issues a local transaction id.
+ */
+@Component
+@ConditionalOnProperty(name = "payments.gateway", havingValue = "local", matchIfMissing = true)
+public class LocalPaymentGateway implements PaymentGateway {
+
+    @Override
+    public String getName() {
+        return "local";
+    }
+
+    @Override
+    public Result charge(Payment payment, String idempotencyKey) {
+        if (payment.getAmount() == null || payment.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            return Result.failure("Invalid amount");
+        }
+        // Derived from the key, so a retried charge answers with the transaction of the first one
+        return Result.success("local_" + UUID.nameUUIDFromBytes(idempotencyKey.getBytes(StandardCharsets.UTF_8)));
+    }
+}
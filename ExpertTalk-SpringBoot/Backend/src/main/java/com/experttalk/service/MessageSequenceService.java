@@ -0,0 +1,133 @@
+package com.experttalk.service;
+
+import com.experttalk.model.Message;
+import com.experttalk.repository.MessageRepository;
+import com.experttalk.repository.MessageShards;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gives every chat message a monotonic per-session sequence number, so a reconnecting client can ask for just what it
+ * missed. The counter lives in message_sequences on the session's message shard and is bumped in the same transaction
+ * as the insert; the row lock makes sequence order equal commit order. Saved messages are handed to RecentMessageService.
+ */
+@Service
+public class MessageSequenceService {
+
+    private static final String NEXT_SEQ_SQL =
+            "UPDATE message_sequences SET last_seq = last_seq + 1 WHERE chat_session_id = ?";
+
+    // A session's counter row is created on its first message and starts from whatever the shard already holds
+    private static final String SEED_SEQ_SQL =
+            "INSERT INTO message_sequences (chat_session_id, last_seq) " +
+            "SELECT ?, COALESCE(MAX(seq), 0) FROM messages WHERE chat_session_id = ?";
+
+    private static final String CURRENT_SEQ_SQL = "SELECT last_seq FROM message_sequences WHERE chat_session_id = ?";
+
+    private static final String UNSEQUENCED_SESSIONS_SQL =
+            "SELECT DISTINCT chat_session_id FROM messages WHERE seq IS NULL LIMIT ?";
+
+    private static final String LOCK_SESSION_SQL =
+            "SELECT last_seq FROM message_sequences WHERE chat_session_id = ? FOR UPDATE";
+
+    private static final String UNSEQUENCED_MESSAGES_SQL =
+            "SELECT id FROM messages WHERE chat_session_id = ? AND seq IS NULL ORDER BY sent_at, id";
+
+    private static final int BACKFILL_SESSIONS_PER_PASS = 500;
+
+    // Only two participants can race for a session's first counter row, so one retry settles it
+    private static final int APPEND_ATTEMPTS = 2;
+
+    private final MessageShards messageShards;
+    private final MessageRepository messageRepository;
+    private final ResourceVersions resourceVersions;
+    private final RecentMessageService recentMessageService;
+
+    @Autowired
+    public MessageSequenceService(MessageShards messageShards, MessageRepository messageRepository,
+                                  ResourceVersions resourceVersions, RecentMessageService recentMessageService) {
+        this.messageShards = messageShards;
+        this.messageRepository = messageRepository;
+        this.resourceVersions = resourceVersions;
+        this.recentMessageService = recentMessageService;
+    }
+
+    /**
+     * Assigns the next sequence number of the message's session, saves the message on the session's shard and
+     * remembers it as recent.
+     */
+    public Message append(Message message, String senderName) {
+        MessageShards.Shard shard = messageShards.forSession(message.getChatSessionId());
+        Message saved = null;
+        for (int attempt = 1; saved == null; attempt++) {
+            try {
+                saved = shard.transactionTemplate().execute(status -> {
+                    JdbcTemplate jdbc = shard.jdbcTemplate();
+                    if (jdbc.update(NEXT_SEQ_SQL, message.getChatSessionId()) == 0) {
+                        jdbc.update(SEED_SEQ_SQL, message.getChatSessionId(), message.getChatSessionId());
+                        jdbc.update(NEXT_SEQ_SQL, message.getChatSessionId());
+                    }
+                    message.setSeq(jdbc.queryForObject(CURRENT_SEQ_SQL, Long.class, message.getChatSessionId()));
+                    // Stamped under the row lock so sent_at never disagrees with the sequence order
+                    message.setSentAt(LocalDateTime.now());
+                    return messageRepository.insert(message);
+                });
+            } catch (DuplicateKeyException | PessimisticLockingFailureException e) {
+                if (attempt >= APPEND_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+        resourceVersions.sessionChanged(saved.getChatSessionId());
+        recentMessageService.add(saved.getChatSessionId(), new RecentMessageService.RecentMessage(saved.getSeq(), saved.getId(),
+                saved.getSenderId(), senderName, saved.getContent(), saved.getSentAt(), false));
+        return saved;
+    }
+
+    // Messages written before sequence numbers existed are numbered once, in the order they were sent
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillSequences() {
+        for (MessageShards.Shard shard : messageShards.all()) {
+            try {
+                int total = 0;
+                List<Long> sessionIds;
+                do {
+                    sessionIds = shard.jdbcTemplate().queryForList(UNSEQUENCED_SESSIONS_SQL, Long.class, BACKFILL_SESSIONS_PER_PASS);
+                    for (Long sessionId : sessionIds) {
+                        total += shard.transactionTemplate().execute(status -> backfillSession(shard.jdbcTemplate(), sessionId));
+                    }
+                } while (!sessionIds.isEmpty());
+                if (total > 0) {
+                    System.out.println("[DEBUG] Assigned sequence numbers to " + total + " existing messages on shard " + shard.index());
+                }
+            } catch (Exception e) {
+                System.err.println("[ERROR] Message sequence backfill failed on shard " + shard.index() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private int backfillSession(JdbcTemplate jdbc, Long sessionId) {
+        List<Long> locked = jdbc.queryForList(LOCK_SESSION_SQL, Long.class, sessionId);
+        if (locked.isEmpty()) {
+            jdbc.update(SEED_SEQ_SQL, sessionId, sessionId);
+            locked = jdbc.queryForList(LOCK_SESSION_SQL, Long.class, sessionId);
+        }
+        long seq = locked.get(0);
+        List<Long> messageIds = jdbc.queryForList(UNSEQUENCED_MESSAGES_SQL, Long.class, sessionId);
+        List<Object[]> updates = new ArrayList<>(messageIds.size());
+        for (Long messageId : messageIds) {
+            updates.add(new Object[] {++seq, messageId});
+        }
+        jdbc.batchUpdate("UPDATE messages SET seq = ? WHERE id = ?", updates);
+        jdbc.update("UPDATE message_sequences SET last_seq = ? WHERE chat_session_id = ?", seq, sessionId);
+        return messageIds.size();
+    }
+}
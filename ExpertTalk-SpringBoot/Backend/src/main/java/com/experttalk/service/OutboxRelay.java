@@ -0,0 +1,196 @@
+package com.experttalk.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the outbox to the message broker in id order. Delivery is at-least-once: rows are deleted only after
+ * the send, and a failed send delays every pending event of the same aggregate so none overtakes it. Each batch is
+ * claimed with row locks held until its rows are deleted, so relays on several instances never send the same event,
+ * and an aggregate whose earlier events another relay holds is left for a later run rather than sent out of order.
+ */
+@Service
+public class OutboxRelay {
+
+    // An event is skipped while an earlier event of its aggregate is still waiting out a retry delay
+    private static final String SELECT_SQL =
+            "SELECT o.id, o.aggregate_key, o.destination, o.payload, o.attempts, o.created_at FROM outbox_events o " +
+            "WHERE o.available_at <= ? AND NOT EXISTS (SELECT 1 FROM outbox_events p " +
+            "WHERE p.aggregate_key = o.aggregate_key AND p.id < o.id AND p.available_at > ?) " +
+            "ORDER BY o.id LIMIT ? FOR UPDATE SKIP LOCKED";
+    // Rows locked by another relay are still visible here, so a smaller id means that relay holds earlier events
+    private static final String FIRST_IDS_SQL =
+            "SELECT aggregate_key, MIN(id) FROM outbox_events WHERE aggregate_key IN (%s) GROUP BY aggregate_key";
+    private static final String DELETE_SQL = "DELETE FROM outbox_events WHERE id = ?";
+    private static final String RETRY_SQL =
+            "UPDATE outbox_events SET attempts = attempts + 1, available_at = ? WHERE aggregate_key = ?";
+    private static final String BACKLOG_SQL = "SELECT COUNT(*), MIN(created_at) FROM outbox_events";
+
+    private static final int MAX_BATCHES_PER_RUN = 20;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final AdminEventPublisher adminEventPublisher;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final long retryBaseMillis;
+    private final long retryMaxMillis;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final Counter relayed;
+    private final Counter failed;
+    private final Timer deliveryLag;
+
+    @Autowired
+    public OutboxRelay(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, SimpMessagingTemplate messagingTemplate,
+                       AdminEventPublisher adminEventPublisher, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                       @Value("${outbox.relay.batch-size:200}") int batchSize,
+                       @Value("${outbox.relay.retry-base-ms:1000}") long retryBaseMillis,
+                       @Value("${outbox.relay.retry-max-ms:60000}") long retryMaxMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.messagingTemplate = messagingTemplate;
+        this.adminEventPublisher = adminEventPublisher;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.retryBaseMillis = retryBaseMillis;
+        this.retryMaxMillis = retryMaxMillis;
+        this.relayed = meterRegistry.counter("outbox.relayed");
+        this.failed = meterRegistry.counter("outbox.failed");
+        this.deliveryLag = meterRegistry.timer("outbox.delivery.lag");
+        meterRegistry.gauge("outbox.pending", pending);
+        meterRegistry.gauge("outbox.lag.seconds", lagSeconds);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:250}")
+    public void relay() {
+        try {
+            for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+                Integer relayedInBatch = transactionTemplate.execute(status -> relayBatch());
+                if (relayedInBatch == null || relayedInBatch < batchSize) {
+                    break;
+                }
+            }
+            refreshBacklog();
+        } catch (Exception e) {
+            System.err.println("[ERROR] Outbox relay run failed: " + e.getMessage());
+        }
+    }
+
+    private int relayBatch() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<PendingEvent> batch = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> new PendingEvent(
+                rs.getLong("id"), rs.getString("aggregate_key"), rs.getString("destination"),
+                rs.getString("payload"), rs.getInt("attempts"), rs.getTimestamp("created_at").toLocalDateTime()),
+                now, now, batchSize);
+        batch = withoutOvertaking(batch);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, List<PendingEvent>> byDestination = new LinkedHashMap<>();
+        batch.forEach(event -> byDestination.computeIfAbsent(event.destination, d -> new ArrayList<>()).add(event));
+
+        List<PendingEvent> sent = new ArrayList<>(batch.size());
+        Map<String, Integer> failedAggregates = new LinkedHashMap<>();
+        byDestination.forEach((destination, events) -> {
+            try {
+                send(destination, events);
+                sent.addAll(events);
+            } catch (Exception e) {
+                System.err.println("[ERROR] Failed to relay " + events.size() + " outbox events to " + destination + ": " + e.getMessage());
+                failed.increment(events.size());
+                events.forEach(event -> failedAggregates.putIfAbsent(event.aggregateKey, event.attempts));
+            }
+        });
+
+        if (!sent.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_SQL, sent, sent.size(), (ps, event) -> ps.setLong(1, event.id));
+            LocalDateTime sentAt = LocalDateTime.now();
+            sent.forEach(event -> deliveryLag.record(Duration.between(event.createdAt, sentAt)));
+            relayed.increment(sent.size());
+        }
+        if (!failedAggregates.isEmpty()) {
+            List<Map.Entry<String, Integer>> retries = new ArrayList<>(failedAggregates.entrySet());
+            jdbcTemplate.batchUpdate(RETRY_SQL, retries, retries.size(), (ps, retry) -> {
+                ps.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now().plus(Duration.ofMillis(retryDelay(retry.getValue())))));
+                ps.setString(2, retry.getKey());
+            });
+        }
+        return batch.size();
+    }
+
+    // Drops the events of aggregates whose first pending event is not in this batch, i.e. locked by another relay
+    private List<PendingEvent> withoutOvertaking(List<PendingEvent> batch) {
+        if (batch.isEmpty()) {
+            return batch;
+        }
+        Map<String, Long> firstInBatch = new LinkedHashMap<>();
+        batch.forEach(event -> firstInBatch.putIfAbsent(event.aggregateKey, event.id));
+        Map<String, Long> firstPending = new HashMap<>();
+        jdbcTemplate.query(String.format(FIRST_IDS_SQL, String.join(",", Collections.nCopies(firstInBatch.size(), "?"))),
+                rs -> {
+                    firstPending.put(rs.getString(1), rs.getLong(2));
+                }, firstInBatch.keySet().toArray());
+        List<PendingEvent> ordered = new ArrayList<>(batch.size());
+        for (PendingEvent event : batch) {
+            Long first = firstPending.get(event.aggregateKey);
+            if (first == null || first >= firstInBatch.get(event.aggregateKey)) {
+                ordered.add(event);
+            }
+        }
+        return ordered;
+    }
+
+    private void send(String destination, List<PendingEvent> events) throws Exception {
+        if (AdminEventPublisher.isAdminTopic(destination)) {
+            List<JsonNode> frames = new ArrayList<>(events.size());
+            for (PendingEvent event : events) {
+                frames.add(objectMapper.readTree(event.payload));
+            }
+            messagingTemplate.convertAndSend(destination, adminEventPublisher.coalesce(frames));
+            return;
+        }
+        for (PendingEvent event : events) {
+            messagingTemplate.convertAndSend(destination, objectMapper.readTree(event.payload));
+        }
+    }
+
+    private long retryDelay(int attempts) {
+        return Math.min(retryMaxMillis, retryBaseMillis << Math.min(attempts, 16));
+    }
+
+    private void refreshBacklog() {
+        jdbcTemplate.query(BACKLOG_SQL, rs -> {
+            pending.set(rs.getLong(1));
+            Timestamp oldest = rs.getTimestamp(2);
+            lagSeconds.set(oldest != null ? Math.max(0, Duration.between(oldest.toLocalDateTime(), LocalDateTime.now()).toSeconds()) : 0);
+        });
+    }
+
+    private record PendingEvent(long id, String aggregateKey, String destination, String payload,
+                                int attempts, LocalDateTime createdAt) {
+    }
+}
@@ -0,0 +1,25 @@
+package com.experttalk.service;
+
+import com.experttalk.model.Payment;
+
+/**
+ * Charges a ledger entry with an external provider. Implementations are called from the ledger writer thread only.
+ * A charge that is retried after a crash or timeout carries the same idempotency key, and must not charge again.
+ */
+public interface PaymentGateway {
+
+    String getName();
+
+    Result charge(Payment payment, String idempotencyKey);
+
+    record Result(boolean success, String transactionId, String failureReason) {
+
+        public static Result success(String transactionId) {
+            return new Result(true, transactionId, null);
+        }
+
+        public static Result failure(String failureReason) {
+            return new Result(false, null, failureReason);
+        }
+    }
+}
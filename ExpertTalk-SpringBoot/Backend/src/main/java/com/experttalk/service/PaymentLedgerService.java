@@ -0,0 +1,274 @@
+package com.experttalk.service;
+
+import com.experttalk.model.Payment;
+import com.experttalk.model.PaymentStatus;
+import com.experttalk.model.SessionStatus;
+import com.experttalk.repository.PaymentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns completed chat sessions into payment ledger entries off the request path.
+ * Ended sessions are queued, inserted in batches as PENDING and then charged through the configured {@link PaymentGateway}.
+ * The unique session id on payments makes every step safe to repeat, so a periodic sweep can re-enqueue anything that was missed.
+ * A payment is claimed (PENDING to PROCESSING) before it is charged, so only one writer charges it; a claim left behind
+ * by a crash is taken over after the processing timeout and charged again with the same idempotency key.
+ * The sweep only bills sessions that ended after bill-since, so history from before the ledger existed is never charged.
+ */
+@Service
+public class PaymentLedgerService {
+
+    private static final String INSERT_SQL =
+            "INSERT IGNORE INTO payments (user_id, expert_id, chat_session_id, amount, status, payment_method, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String CLAIM_SQL =
+            "UPDATE payments SET status = ?, claimed_at = ? WHERE id = ? AND status = ?";
+
+    private static final String RECLAIM_SQL =
+            "UPDATE payments SET claimed_at = ? WHERE id = ? AND status = ? AND claimed_at < ?";
+
+    private static final String SETTLE_SQL =
+            "UPDATE payments SET status = ?, transaction_id = ?, paid_at = ? WHERE id = ? AND status = ?";
+
+    private static final String STATUS_COLUMN_SQL =
+            "SELECT COLUMN_TYPE FROM information_schema.COLUMNS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'payments' AND COLUMN_NAME = 'status'";
+
+    private static final String UNBILLED_SESSIONS_SQL =
+            "SELECT cs.id, cs.user_id, cs.expert_id, cs.total_amount FROM chat_sessions cs " +
+            "LEFT JOIN payments p ON p.chat_session_id = cs.id " +
+            "WHERE cs.status = ? AND cs.total_amount > 0 AND cs.end_time >= ? AND p.id IS NULL " +
+            "ORDER BY cs.id LIMIT ?";
+
+    private static final String FIRST_PAYMENT_SQL = "SELECT MIN(created_at) FROM payments";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PaymentRepository paymentRepository;
+    private final PaymentGateway paymentGateway;
+    private final BlockingQueue<LedgerEntry> queue;
+    private final int batchSize;
+    private final long processingTimeoutMs;
+    private final String configuredBillSince;
+    private volatile LocalDateTime billSince;
+
+    private final Counter enqueued;
+    private final Counter dropped;
+    private final Counter recorded;
+    private final Counter settled;
+    private final Counter failed;
+
+    private Thread writer;
+    private volatile boolean running = true;
+    private long lastSettle = 0;
+
+    @Autowired
+    public PaymentLedgerService(JdbcTemplate jdbcTemplate, PaymentRepository paymentRepository,
+                                PaymentGateway paymentGateway, MeterRegistry meterRegistry,
+                                @Value("${payments.ledger.queue-capacity:10000}") int queueCapacity,
+                                @Value("${payments.ledger.batch-size:100}") int batchSize,
+                                @Value("${payments.ledger.processing-timeout-ms:600000}") long processingTimeoutMs,
+                                @Value("${payments.ledger.bill-since:}") String billSince) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.paymentRepository = paymentRepository;
+        this.paymentGateway = paymentGateway;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.processingTimeoutMs = processingTimeoutMs;
+        this.configuredBillSince = billSince;
+        this.enqueued = meterRegistry.counter("payments.ledger.enqueued");
+        this.dropped = meterRegistry.counter("payments.ledger.dropped");
+        this.recorded = meterRegistry.counter("payments.ledger.recorded");
+        this.settled = meterRegistry.counter("payments.ledger.settled", "result", "completed");
+        this.failed = meterRegistry.counter("payments.ledger.settled", "result", "failed");
+        meterRegistry.gauge("payments.ledger.queue.depth", queue, BlockingQueue::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        addMissingStatuses();
+        billSince = resolveBillSince();
+        writer = new Thread(this::drainLoop, "payment-ledger");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    // Only a queue offer happens on the thread that ended the session
+    @EventListener
+    public void onSessionEnded(SessionEndedEvent event) {
+        if (event.getStatus() != SessionStatus.COMPLETED || event.getTotalAmount() == null
+                || event.getTotalAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            return;
+        }
+        enqueue(new LedgerEntry(event.getSessionId(), event.getUserId(), event.getExpertId(), event.getTotalAmount()));
+    }
+
+    // Picks up sessions whose event was lost to a full queue, a restart or an expiry that nobody observed
+    @Scheduled(fixedDelayString = "${payments.ledger.sweep-interval-ms:600000}", initialDelayString = "${payments.ledger.sweep-interval-ms:600000}")
+    public void sweepUnbilledSessions() {
+        try {
+            jdbcTemplate.query(UNBILLED_SESSIONS_SQL, rs -> {
+                enqueue(new LedgerEntry(rs.getLong("id"), rs.getLong("user_id"), rs.getLong("expert_id"), rs.getBigDecimal("total_amount")));
+            }, SessionStatus.COMPLETED.name(), Timestamp.valueOf(billSince), queue.remainingCapacity());
+        } catch (Exception e) {
+            System.err.println("[ERROR] Payment ledger sweep failed: " + e.getMessage());
+        }
+    }
+
+    private void enqueue(LedgerEntry entry) {
+        if (queue.offer(entry)) {
+            enqueued.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    private void drainLoop() {
+        List<LedgerEntry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                LedgerEntry first = queue.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    record(batch);
+                }
+                // Settle right after new entries, otherwise only occasionally to retry what is still pending
+                if (first != null || System.currentTimeMillis() - lastSettle > TimeUnit.SECONDS.toMillis(30)) {
+                    lastSettle = System.currentTimeMillis();
+                    settlePending();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("[ERROR] Payment ledger batch failed: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void record(List<LedgerEntry> batch) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, entry) -> {
+            ps.setLong(1, entry.userId());
+            ps.setLong(2, entry.expertId());
+            ps.setLong(3, entry.sessionId());
+            ps.setBigDecimal(4, entry.amount());
+            ps.setString(5, PaymentStatus.PENDING.name());
+            ps.setString(6, paymentGateway.getName());
+            ps.setTimestamp(7, now);
+        });
+        int inserted = 0;
+        for (int[] chunk : counts) {
+            for (int count : chunk) {
+                // Drivers that rewrite batches report SUCCESS_NO_INFO (-2) rather than a row count
+                inserted += count == -2 ? 1 : Math.max(0, count);
+            }
+        }
+        recorded.increment(inserted);
+        System.out.println("[DEBUG] Recorded " + inserted + " of " + batch.size() + " ledger entries");
+    }
+
+    private void settlePending() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minusNanos(TimeUnit.MILLISECONDS.toNanos(processingTimeoutMs));
+        List<Payment> candidates = new ArrayList<>(paymentRepository.findTop100ByStatusOrderByIdAsc(PaymentStatus.PENDING));
+        candidates.addAll(paymentRepository.findTop100ByStatusAndClaimedAtBeforeOrderByIdAsc(PaymentStatus.PROCESSING, staleBefore));
+        if (candidates.isEmpty()) {
+            return;
+        }
+        List<Object[]> updates = new ArrayList<>(candidates.size());
+        for (Payment payment : candidates) {
+            // Only the writer whose claim changed the row charges it; another instance may have claimed it first
+            if (!claim(payment, now, staleBefore)) {
+                continue;
+            }
+            PaymentGateway.Result result;
+            try {
+                result = paymentGateway.charge(payment, "session-" + payment.getChatSessionId());
+            } catch (Exception e) {
+                // Outcome unknown: the payment stays PROCESSING and is retried with the same key once its claim is stale
+                System.err.println("[ERROR] Payment " + payment.getId() + " charge did not complete: " + e.getMessage());
+                continue;
+            }
+            if (result.success()) {
+                settled.increment();
+                updates.add(new Object[] {PaymentStatus.COMPLETED.name(), result.transactionId(),
+                        Timestamp.valueOf(LocalDateTime.now()), payment.getId(), PaymentStatus.PROCESSING.name()});
+            } else {
+                failed.increment();
+                System.err.println("[ERROR] Payment " + payment.getId() + " failed: " + result.failureReason());
+                updates.add(new Object[] {PaymentStatus.FAILED.name(), null, null, payment.getId(), PaymentStatus.PROCESSING.name()});
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(SETTLE_SQL, updates);
+        }
+    }
+
+    private boolean claim(Payment payment, LocalDateTime now, LocalDateTime staleBefore) {
+        Timestamp claimedAt = Timestamp.valueOf(now);
+        if (payment.getStatus() == PaymentStatus.PENDING) {
+            return jdbcTemplate.update(CLAIM_SQL, PaymentStatus.PROCESSING.name(), claimedAt, payment.getId(), PaymentStatus.PENDING.name()) == 1;
+        }
+        return jdbcTemplate.update(RECLAIM_SQL, claimedAt, payment.getId(), PaymentStatus.PROCESSING.name(), Timestamp.valueOf(staleBefore)) == 1;
+    }
+
+    // Without a configured cutoff the ledger counts from its first payment, or from now on a database that has none yet
+    private LocalDateTime resolveBillSince() {
+        if (!configuredBillSince.isBlank()) {
+            return LocalDateTime.parse(configuredBillSince.trim());
+        }
+        Timestamp firstPayment = jdbcTemplate.queryForObject(FIRST_PAYMENT_SQL, Timestamp.class);
+        LocalDateTime since = firstPayment != null ? firstPayment.toLocalDateTime() : LocalDateTime.now();
+        System.out.println("[DEBUG] Payment ledger sweep bills sessions ended since " + since);
+        return since;
+    }
+
+    // Hibernate maps the status to a MySQL ENUM column and never alters it, so tables created before PROCESSING lack it
+    private void addMissingStatuses() {
+        try {
+            List<String> columnType = jdbcTemplate.queryForList(STATUS_COLUMN_SQL, String.class);
+            if (columnType.isEmpty() || !columnType.get(0).toLowerCase().startsWith("enum(")
+                    || columnType.get(0).contains("'" + PaymentStatus.PROCESSING.name() + "'")) {
+                return;
+            }
+            StringJoiner values = new StringJoiner(",", "ENUM(", ")");
+            for (PaymentStatus status : PaymentStatus.values()) {
+                values.add("'" + status.name() + "'");
+            }
+            jdbcTemplate.execute("ALTER TABLE payments MODIFY COLUMN status " + values + " NOT NULL");
+            System.out.println("[DEBUG] Added missing payment statuses to payments.status");
+        } catch (Exception e) {
+            // Not MySQL (no such information_schema columns), or the column is already a plain string
+            System.out.println("[DEBUG] Payment status column left as is: " + e.getMessage());
+        }
+    }
+
+    private record LedgerEntry(Long sessionId, Long userId, Long expertId, BigDecimal amount) {}
+}
@@ -0,0 +1,122 @@
+package com.experttalk.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the queries behind the slow read endpoints on a dedicated bounded pool, so request threads are released while
+ * they wait and independent lookups of one request can run side by side. Each endpoint has its own deadline; past it
+ * the response fails with a timeout while the query finishes in the background and its result is dropped. The auth
+ * endpoints also run their account reads and writes here once a password hash is ready, keeping the hashing pool to BCrypt.
+ */
+@Service
+public class ReadQueryService {
+
+    public enum Endpoint {
+        CHAT_SESSIONS("chat.sessions"),
+        CHAT_MESSAGES("chat.messages"),
+        ADMIN_STATS("admin.stats"),
+        ADMIN_SESSIONS("admin.sessions");
+
+        private final String tag;
+
+        Endpoint(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final ThreadPoolExecutor queryPool;
+    private final Map<Endpoint, Long> timeoutMillis = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, Counter> timeouts = new EnumMap<>(Endpoint.class);
+    private final Counter rejected;
+
+    @Autowired
+    public ReadQueryService(MeterRegistry meterRegistry,
+                            @Value("${api.reads.threads:8}") int threads,
+                            @Value("${api.reads.queue-capacity:256}") int queueCapacity,
+                            @Value("${api.reads.timeout.chat-sessions-ms:5000}") long chatSessionsTimeout,
+                            @Value("${api.reads.timeout.chat-messages-ms:5000}") long chatMessagesTimeout,
+                            @Value("${api.reads.timeout.admin-stats-ms:10000}") long adminStatsTimeout,
+                            @Value("${api.reads.timeout.admin-sessions-ms:10000}") long adminSessionsTimeout) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.queryPool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "read-query-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        timeoutMillis.put(Endpoint.CHAT_SESSIONS, chatSessionsTimeout);
+        timeoutMillis.put(Endpoint.CHAT_MESSAGES, chatMessagesTimeout);
+        timeoutMillis.put(Endpoint.ADMIN_STATS, adminStatsTimeout);
+        timeoutMillis.put(Endpoint.ADMIN_SESSIONS, adminSessionsTimeout);
+        for (Endpoint endpoint : Endpoint.values()) {
+            timeouts.put(endpoint, meterRegistry.counter("api.reads.timeouts", "endpoint", endpoint.tag));
+        }
+        this.rejected = meterRegistry.counter("api.reads.rejected");
+        meterRegistry.gauge("api.reads.queue.depth", queryPool, pool -> pool.getQueue().size());
+        meterRegistry.gauge("api.reads.active", queryPool, ThreadPoolExecutor::getActiveCount);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        queryPool.shutdown();
+    }
+
+    /**
+     * Queues one lookup. Tasks must not wait on other tasks of this pool; combine the returned futures instead.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, queryPool);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new BusyException();
+        }
+    }
+
+    /** The endpoint's result, failed with a {@link TimeoutException} if it is not ready within the endpoint's deadline. */
+    public <T> CompletableFuture<T> within(Endpoint endpoint, CompletableFuture<T> result) {
+        return result.orTimeout(timeoutMillis.get(endpoint), TimeUnit.MILLISECONDS).whenComplete((value, ex) -> {
+            if (unwrap(ex) instanceof TimeoutException) {
+                timeouts.get(endpoint).increment();
+            }
+        });
+    }
+
+    /** True when a failure means "try again shortly" (pool full or deadline passed) rather than a bad request. */
+    public static boolean isUnavailable(Throwable ex) {
+        Throwable cause = unwrap(ex);
+        return cause instanceof TimeoutException || cause instanceof BusyException;
+    }
+
+    public static Throwable unwrap(Throwable ex) {
+        while ((ex instanceof CompletionException || ex instanceof ExecutionException) && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        return ex;
+    }
+
+    public static class BusyException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public BusyException() {
+            super("Read query capacity exhausted");
+        }
+    }
+}
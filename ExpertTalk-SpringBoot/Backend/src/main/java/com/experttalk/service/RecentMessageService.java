@@ -0,0 +1,383 @@
+package com.experttalk.service;
+
+import com.experttalk.model.Message;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The most recent messages of each live chat session, with their read state, so the transcript, the session list and
+ * reconnect resume of an active chat are answered from memory instead of the messages table. Every message saved
+ * through MessageSequenceService lands here; a buffer that has also been primed from a full load (or that started
+ * with the session's first message) knows about everything older than it holds too. Buffers are dropped when their
+ * session ends or goes idle, and least recently used first when together they pass the memory budget.
+ * <p>
+ * Each change reaches the table first, then bumps the session's generation in ResourceVersions, then the buffer; a
+ * prime is only applied if the generation it read before loading is still current, so it never overwrites a newer
+ * change. Only writes through this instance are seen, like the in-memory broker.
+ */
+@Service
+public class RecentMessageService {
+
+    public record RecentMessage(long seq, Long id, Long senderId, String senderName, String content, LocalDateTime sentAt,
+                                boolean read) {
+
+        RecentMessage markedRead() {
+            return new RecentMessage(seq, id, senderId, senderName, content, sentAt, true);
+        }
+    }
+
+    public record Summary(String lastMessage, int unreadCount) {
+    }
+
+    // Rough heap cost of one buffered message besides its strings: the record, its boxed fields and the tree entry
+    private static final long ENTRY_OVERHEAD_BYTES = 200;
+
+    private final ResourceVersions resourceVersions;
+    private final int bufferSize;
+    private final long idleNanos;
+    private final long budgetBytes;
+
+    // Session id -> its most recent messages by sequence number; each buffer is guarded by its own monitor
+    private final Map<Long, SessionBuffer> buffers = new ConcurrentHashMap<>();
+    private final AtomicLong bufferedBytes = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final Counter resumeFromBuffer;
+    private final Counter resumeFromDatabase;
+    private final Counter historyFromBuffer;
+    private final Counter historyFromDatabase;
+    private final Counter summaryFromBuffer;
+    private final Counter summaryFromDatabase;
+    private final Counter idleEvictions;
+    private final Counter budgetEvictions;
+
+    @Autowired
+    public RecentMessageService(ResourceVersions resourceVersions, MeterRegistry meterRegistry,
+                                @Value("${chat.resume.buffer-size:100}") int bufferSize,
+                                @Value("${chat.resume.buffer-idle-minutes:30}") long idleMinutes,
+                                @Value("${chat.resume.buffer-budget-mb:64}") long budgetMegabytes) {
+        this.resourceVersions = resourceVersions;
+        this.bufferSize = bufferSize;
+        this.idleNanos = TimeUnit.MINUTES.toNanos(idleMinutes);
+        this.budgetBytes = budgetMegabytes * 1024 * 1024;
+        this.resumeFromBuffer = meterRegistry.counter("chat.resume", "source", "buffer");
+        this.resumeFromDatabase = meterRegistry.counter("chat.resume", "source", "database");
+        this.historyFromBuffer = meterRegistry.counter("chat.recent.reads", "kind", "history", "source", "buffer");
+        this.historyFromDatabase = meterRegistry.counter("chat.recent.reads", "kind", "history", "source", "database");
+        this.summaryFromBuffer = meterRegistry.counter("chat.recent.reads", "kind", "summary", "source", "buffer");
+        this.summaryFromDatabase = meterRegistry.counter("chat.recent.reads", "kind", "summary", "source", "database");
+        this.idleEvictions = meterRegistry.counter("chat.recent.evictions", "reason", "idle");
+        this.budgetEvictions = meterRegistry.counter("chat.recent.evictions", "reason", "budget");
+        meterRegistry.gaugeMapSize("chat.resume.buffered.sessions", List.of(), buffers);
+        meterRegistry.gauge("chat.recent.buffered.bytes", bufferedBytes);
+    }
+
+    /** Remembers a message MessageSequenceService has just saved. */
+    public void add(Long sessionId, RecentMessage message) {
+        SessionBuffer buffer = buffers.computeIfAbsent(sessionId, id -> new SessionBuffer());
+        bufferedBytes.addAndGet(buffer.add(message));
+        evictOverBudget();
+    }
+
+    /**
+     * Fills the session's buffer from a full load of its messages, unless the session changed after generation was
+     * read, since the load may then be missing something the buffer has already been told about.
+     */
+    public void prime(Long sessionId, long generation, List<Message> messages, Map<Long, String> senderNames) {
+        List<RecentMessage> loaded = new ArrayList<>(messages.size());
+        for (Message m : messages) {
+            // Not numbered yet, the startup backfill is still running
+            if (m.getSeq() == null) {
+                return;
+            }
+            loaded.add(new RecentMessage(m.getSeq(), m.getId(), m.getSenderId(), senderNames.getOrDefault(m.getSenderId(), ""),
+                    m.getContent(), m.getSentAt(), Boolean.TRUE.equals(m.getIsRead())));
+        }
+        SessionBuffer buffer = buffers.computeIfAbsent(sessionId, id -> new SessionBuffer());
+        bufferedBytes.addAndGet(buffer.prime(sessionId, generation, loaded));
+        evictOverBudget();
+    }
+
+    /** The whole transcript, or null unless the buffer holds every message of the session. */
+    public List<RecentMessage> history(Long sessionId) {
+        SessionBuffer buffer = buffers.get(sessionId);
+        List<RecentMessage> history = buffer != null ? buffer.history() : null;
+        (history != null ? historyFromBuffer : historyFromDatabase).increment();
+        return history;
+    }
+
+    /** The session's latest limit messages, or null when the buffer does not hold them all. */
+    public List<RecentMessage> page(Long sessionId, int limit) {
+        SessionBuffer buffer = buffers.get(sessionId);
+        List<RecentMessage> page = buffer != null ? buffer.page(limit) : null;
+        (page != null ? historyFromBuffer : historyFromDatabase).increment();
+        return page;
+    }
+
+    /** Last message and the viewer's unread count, or null when the buffer does not know about older messages. */
+    public Summary summary(Long sessionId, Long viewerId) {
+        SessionBuffer buffer = buffers.get(sessionId);
+        Summary summary = buffer != null ? buffer.summary(viewerId) : null;
+        (summary != null ? summaryFromBuffer : summaryFromDatabase).increment();
+        return summary;
+    }
+
+    /** Whether the reader has anything unread in the session, or null when the buffer cannot tell. */
+    public Boolean hasUnread(Long sessionId, Long readerId) {
+        SessionBuffer buffer = buffers.get(sessionId);
+        Summary summary = buffer != null ? buffer.summary(readerId) : null;
+        return summary != null ? summary.unreadCount() > 0 : null;
+    }
+
+    /**
+     * Messages with afterSeq < seq <= lastSeq, or null when the buffer does not hold all of them (the session was
+     * evicted, the client is too far behind, or some were written through another instance).
+     */
+    public List<RecentMessage> recentAfter(Long sessionId, long afterSeq, long lastSeq) {
+        SessionBuffer buffer = buffers.get(sessionId);
+        List<RecentMessage> recent = buffer != null ? buffer.range(afterSeq, lastSeq) : null;
+        (recent != null ? resumeFromBuffer : resumeFromDatabase).increment();
+        return recent;
+    }
+
+    /** Sequence number of the latest message this instance has buffered for the session, 0 when it holds none. */
+    public long lastSeq(Long sessionId) {
+        SessionBuffer buffer = buffers.get(sessionId);
+        return buffer != null ? buffer.lastSeq() : 0;
+    }
+
+    /** Applies a read watermark that has already been written to the table. */
+    public void markReadUpTo(Long sessionId, Long readerId, long seq) {
+        SessionBuffer buffer = buffers.get(sessionId);
+        if (buffer != null) {
+            buffer.markReadUpTo(readerId, seq);
+        }
+    }
+
+    @EventListener
+    public void onSessionEnded(SessionEndedEvent event) {
+        SessionBuffer buffer = buffers.get(event.getSessionId());
+        if (buffer != null) {
+            drop(event.getSessionId(), buffer);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.resume.eviction-interval-ms:60000}")
+    public void evictIdleBuffers() {
+        long now = System.nanoTime();
+        buffers.forEach((sessionId, buffer) -> {
+            if (now - buffer.lastTouched > idleNanos && drop(sessionId, buffer)) {
+                idleEvictions.increment();
+            }
+        });
+    }
+
+    // One thread at a time drops the least recently used buffers until a tenth of the budget is free again
+    private void evictOverBudget() {
+        if (bufferedBytes.get() <= budgetBytes || !evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<Map.Entry<Long, SessionBuffer>> byAge = new ArrayList<>(buffers.entrySet());
+            byAge.sort(Comparator.comparingLong(e -> e.getValue().lastTouched));
+            long target = budgetBytes - budgetBytes / 10;
+            for (Map.Entry<Long, SessionBuffer> entry : byAge) {
+                if (bufferedBytes.get() <= target) {
+                    break;
+                }
+                if (drop(entry.getKey(), entry.getValue())) {
+                    budgetEvictions.increment();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private boolean drop(Long sessionId, SessionBuffer buffer) {
+        if (!buffers.remove(sessionId, buffer)) {
+            return false;
+        }
+        bufferedBytes.addAndGet(-buffer.release());
+        return true;
+    }
+
+    private static long sizeOf(RecentMessage message) {
+        int chars = (message.content() != null ? message.content().length() : 0)
+                + (message.senderName() != null ? message.senderName().length() : 0);
+        return ENTRY_OVERHEAD_BYTES + 2L * chars;
+    }
+
+    private class SessionBuffer {
+        private final NavigableMap<Long, RecentMessage> messages = new TreeMap<>();
+        // Sender id -> unread messages older than the buffer; only known once primed
+        private final Map<Long, Long> olderUnread = new HashMap<>();
+        // Reader id -> highest seq marked read, applied to messages that reach the buffer after the mark
+        private final Map<Long, Long> readUpTo = new HashMap<>();
+        private boolean primed;
+        private boolean released;
+        private long bytes;
+        private volatile long lastTouched = System.nanoTime();
+
+        // Commits are ordered by the counter row lock, but two writers can still reach the buffer in either order
+        synchronized long add(RecentMessage message) {
+            if (released) {
+                return 0;
+            }
+            if (messages.isEmpty() && !primed && message.seq() == 1) {
+                primed = true;
+            }
+            for (Map.Entry<Long, Long> watermark : readUpTo.entrySet()) {
+                if (!watermark.getKey().equals(message.senderId()) && message.seq() <= watermark.getValue()) {
+                    message = message.markedRead();
+                }
+            }
+            long before = bytes;
+            RecentMessage replaced = messages.put(message.seq(), message);
+            bytes += sizeOf(message) - (replaced != null ? sizeOf(replaced) : 0);
+            trim();
+            lastTouched = System.nanoTime();
+            return bytes - before;
+        }
+
+        synchronized long prime(Long sessionId, long generation, List<RecentMessage> loaded) {
+            if (released || resourceVersions.sessionGeneration(sessionId) != generation) {
+                return 0;
+            }
+            long before = bytes;
+            messages.clear();
+            olderUnread.clear();
+            bytes = 0;
+            for (RecentMessage message : loaded) {
+                messages.put(message.seq(), message);
+                bytes += sizeOf(message);
+            }
+            primed = true;
+            trim();
+            lastTouched = System.nanoTime();
+            return bytes - before;
+        }
+
+        private void trim() {
+            while (messages.size() > bufferSize) {
+                RecentMessage oldest = messages.pollFirstEntry().getValue();
+                bytes -= sizeOf(oldest);
+                if (primed && !oldest.read()) {
+                    olderUnread.merge(oldest.senderId(), 1L, Long::sum);
+                }
+            }
+        }
+
+        synchronized long lastSeq() {
+            return messages.isEmpty() ? 0 : messages.lastKey();
+        }
+
+        synchronized void markReadUpTo(Long readerId, long requestedSeq) {
+            // A reader can only have been shown what the buffer already holds, so a larger seq must not pre-mark later messages
+            long seq = Math.min(requestedSeq, lastSeq());
+            readUpTo.merge(readerId, seq, Math::max);
+            messages.replaceAll((s, m) -> !m.read() && s <= seq && !m.senderId().equals(readerId) ? m.markedRead() : m);
+            if (!primed) {
+                return;
+            }
+            if (messages.isEmpty() || seq >= messages.firstKey() - 1) {
+                olderUnread.keySet().removeIf(senderId -> !senderId.equals(readerId));
+            } else {
+                // Some of the older unread messages may be past the watermark, so the counts are no longer known
+                primed = false;
+                olderUnread.clear();
+            }
+        }
+
+        synchronized List<RecentMessage> history() {
+            lastTouched = System.nanoTime();
+            if (!primed || (!messages.isEmpty() && messages.firstKey() != 1)) {
+                return null;
+            }
+            return contiguous(messages.values());
+        }
+
+        synchronized List<RecentMessage> page(int limit) {
+            lastTouched = System.nanoTime();
+            if (messages.size() < limit) {
+                return history();
+            }
+            List<RecentMessage> page = new ArrayList<>(limit);
+            for (RecentMessage message : messages.descendingMap().values()) {
+                if (page.size() == limit) {
+                    break;
+                }
+                page.add(0, message);
+            }
+            return contiguous(page);
+        }
+
+        synchronized Summary summary(Long viewerId) {
+            lastTouched = System.nanoTime();
+            if (!primed) {
+                return null;
+            }
+            long unread = 0;
+            for (Map.Entry<Long, Long> older : olderUnread.entrySet()) {
+                if (!older.getKey().equals(viewerId)) {
+                    unread += older.getValue();
+                }
+            }
+            for (RecentMessage message : messages.values()) {
+                if (!message.read() && !message.senderId().equals(viewerId)) {
+                    unread++;
+                }
+            }
+            return new Summary(messages.isEmpty() ? null : messages.lastEntry().getValue().content(), (int) unread);
+        }
+
+        synchronized List<RecentMessage> range(long afterSeq, long lastSeq) {
+            lastTouched = System.nanoTime();
+            NavigableMap<Long, RecentMessage> range = messages.subMap(afterSeq, false, lastSeq, true);
+            if (range.size() != lastSeq - afterSeq) {
+                return null;
+            }
+            return new ArrayList<>(range.values());
+        }
+
+        synchronized long release() {
+            released = true;
+            messages.clear();
+            olderUnread.clear();
+            long freed = bytes;
+            bytes = 0;
+            return freed;
+        }
+
+        // A message still on its way to the buffer leaves a gap for a moment; the table answers until it arrives
+        private List<RecentMessage> contiguous(Iterable<RecentMessage> candidates) {
+            List<RecentMessage> result = new ArrayList<>();
+            long expected = -1;
+            for (RecentMessage message : candidates) {
+                if (expected != -1 && message.seq() != expected) {
+                    return null;
+                }
+                expected = message.seq() + 1;
+                result.add(message);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.experttalk.service;
+
+import com.experttalk.model.Category;
+import com.experttalk.model.ChatSession;
+import com.experttalk.model.User;
+import com.experttalk.model.UserType;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA entity listener feeding {@link ResourceVersions}; Hibernate obtains it from the Spring context so it can be autowired.
+ * Constructor injection keeps that working in the AOT-processed fast-start build, where field injection is not applied
+ * to instances the context creates on Hibernate's behalf.
+ */
+public class ResourceVersionListener {
+
+    private final ResourceVersions resourceVersions;
+
+    @Autowired
+    public ResourceVersionListener(ResourceVersions resourceVersions) {
+        this.resourceVersions = resourceVersions;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (entity instanceof User user) {
+            Long userId = user.getId();
+            // Also covers an expert being demoted, since the category assignment is kept
+            boolean expert = user.getUserType() == UserType.EXPERT || user.getCategoryId() != null;
+            afterCommit(() -> {
+                resourceVersions.userChanged(userId);
+                if (expert) {
+                    resourceVersions.catalogChanged();
+                }
+            });
+        } else if (entity instanceof Category) {
+            afterCommit(resourceVersions::catalogChanged);
+        } else if (entity instanceof ChatSession session) {
+            Long sessionId = session.getId();
+            afterCommit(() -> resourceVersions.sessionChanged(sessionId));
+        }
+    }
+
+    // Bumping only once the write is visible means a reader can never pair old data with a new generation
+    private void afterCommit(Runnable bump) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump.run();
+                }
+            });
+        } else {
+            bump.run();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.experttalk.service;
+
+import org.springframework.stereotype.Component;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory generation numbers for the resources the frontend polls, used to build ETags without touching the database.
+ * Generations are bumped by {@link ResourceVersionListener} after a write commits and only ever move forward.
+ */
+@Component
+public class ResourceVersions {
+
+    // Per-id generations are striped: two ids sharing a slot only cause an extra full response, never a stale 304
+    private static final int STRIPES = 4096;
+    private static final int MAX_SESSION_SNAPSHOTS = 10_000;
+
+    // Distinguishes ETags issued before a restart, when all counters start again from zero
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong catalogGeneration = new AtomicLong();
+    private final AtomicLongArray userGenerations = new AtomicLongArray(STRIPES);
+    private final AtomicLongArray sessionGenerations = new AtomicLongArray(STRIPES);
+    private final Map<Long, SessionSnapshot> sessionSnapshots = new ConcurrentHashMap<>();
+
+    public long catalogGeneration() {
+        return catalogGeneration.get();
+    }
+
+    public long userGeneration(Long userId) {
+        return userGenerations.get(stripe(userId));
+    }
+
+    public long sessionGeneration(Long sessionId) {
+        return sessionGenerations.get(stripe(sessionId));
+    }
+
+    // Categories, expert lists and names shown next to them
+    public void catalogChanged() {
+        catalogGeneration.incrementAndGet();
+    }
+
+    public void userChanged(Long userId) {
+        userGenerations.incrementAndGet(stripe(userId));
+    }
+
+    public void sessionChanged(Long sessionId) {
+        sessionGenerations.incrementAndGet(stripe(sessionId));
+        sessionSnapshots.remove(sessionId);
+    }
+
+    public String etag(String resource, Object... parts) {
+        StringBuilder tag = new StringBuilder("W/\"").append(resource).append('-').append(epoch);
+        for (Object part : parts) {
+            tag.append('-').append(part);
+        }
+        return tag.append('"').toString();
+    }
+
+    public SessionSnapshot sessionSnapshot(Long sessionId) {
+        return sessionSnapshots.get(sessionId);
+    }
+
+    /** Remembers what is needed to authorize and version a session without loading it again. */
+    public void rememberSession(Long sessionId, SessionSnapshot snapshot) {
+        if (sessionSnapshots.size() >= MAX_SESSION_SNAPSHOTS) {
+            sessionSnapshots.clear();
+        }
+        sessionSnapshots.put(sessionId, snapshot);
+    }
+
+    private int stripe(Long id) {
+        return id == null ? 0 : (int) ((id ^ (id >>> 32)) & (STRIPES - 1));
+    }
+
+    public record SessionSnapshot(Long userId, Long expertId, boolean active, LocalDateTime startTime, long generation) {}
+}
@@ -0,0 +1,117 @@
+package com.experttalk.service;
+
+import com.experttalk.model.ChatSession;
+import com.experttalk.model.SessionStatus;
+import com.experttalk.model.User;
+import com.experttalk.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+/**
+ * Moves a session out of ACTIVE exactly once. The change is a conditional update, so of an end, an expiry and an admin
+ * edit racing on the same session only one succeeds, and only that one publishes {@link SessionEndedEvent}; the
+ * listeners (capacity, ledger, rollups, leaderboards) can then count every event. The participants' end notification
+ * is written to the outbox in the same transaction as the update, so it is sent exactly when the session really ended.
+ */
+@Service
+public class SessionEndService {
+
+    private static final String END_IF_ACTIVE_SQL =
+            "UPDATE chat_sessions SET status = ?, end_time = ?, duration_minutes = ?, total_amount = ? " +
+            "WHERE id = ? AND status = ?";
+
+    private static final String ENDED_SQL =
+            "SELECT status, end_time, duration_minutes, total_amount FROM chat_sessions WHERE id = ?";
+
+    /** Body of the /topic/session/{id}/end notification; endedBy is null for expiries and admin edits. */
+    public record EndNotice(Long sessionId, Long endedBy) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxService outboxService;
+    private final UserRepository userRepository;
+    private final ResourceVersions resourceVersions;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public SessionEndService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, OutboxService outboxService,
+                             UserRepository userRepository, ResourceVersions resourceVersions, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.outboxService = outboxService;
+        this.userRepository = userRepository;
+        this.resourceVersions = resourceVersions;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Ends the session now on behalf of a participant, billing the elapsed minutes (at least one) at the expert's hourly rate.
+     * Returns false when something else ended it first; the entity then carries what that end stored.
+     */
+    public boolean endByParticipant(ChatSession session, Long endedBy) {
+        LocalDateTime endTime = LocalDateTime.now();
+        int durationMinutes = (int) Math.max(1, ChronoUnit.MINUTES.between(session.getStartTime(), endTime));
+
+        BigDecimal totalAmount = session.getTotalAmount();
+        Optional<User> expertOpt = userRepository.findById(session.getExpertId());
+        if (expertOpt.isPresent() && expertOpt.get().getHourlyRate() != null) {
+            totalAmount = expertOpt.get().getHourlyRate().multiply(BigDecimal.valueOf(durationMinutes))
+                    .divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP);
+        }
+        return endIfActive(session, endedBy, SessionStatus.COMPLETED, endTime, durationMinutes, totalAmount);
+    }
+
+    /**
+     * Ends the session with the given values if it is still ACTIVE, and copies them onto the entity.
+     * Returns false when something else ended it first; the entity then carries what that end stored.
+     */
+    public boolean endIfActive(ChatSession session, SessionStatus status, LocalDateTime endTime,
+                               Integer durationMinutes, BigDecimal totalAmount) {
+        return endIfActive(session, null, status, endTime, durationMinutes, totalAmount);
+    }
+
+    private boolean endIfActive(ChatSession session, Long endedBy, SessionStatus status, LocalDateTime endTime,
+                                Integer durationMinutes, BigDecimal totalAmount) {
+        // Plain JDBC rather than the entity, which an open EntityManager would flush without the status condition
+        boolean changed = Boolean.TRUE.equals(transactionTemplate.execute(tx -> {
+            int updated = jdbcTemplate.update(END_IF_ACTIVE_SQL, status.name(), endTime != null ? Timestamp.valueOf(endTime) : null,
+                    durationMinutes, totalAmount, session.getId(), SessionStatus.ACTIVE.name());
+            if (updated == 1) {
+                outboxService.append("/topic/session/" + session.getId() + "/end", session.getId(), new EndNotice(session.getId(), endedBy));
+            }
+            return updated == 1;
+        }));
+        if (!changed) {
+            // Read with JDBC too, since the EntityManager would hand back its cached copy of the entity
+            jdbcTemplate.query(ENDED_SQL, rs -> {
+                Timestamp ended = rs.getTimestamp("end_time");
+                int minutes = rs.getInt("duration_minutes");
+                Integer storedMinutes = rs.wasNull() ? null : minutes;
+                copy(session, SessionStatus.valueOf(rs.getString("status")), ended != null ? ended.toLocalDateTime() : null,
+                        storedMinutes, rs.getBigDecimal("total_amount"));
+            }, session.getId());
+            return false;
+        }
+        copy(session, status, endTime, durationMinutes, totalAmount);
+        resourceVersions.sessionChanged(session.getId());
+        eventPublisher.publishEvent(new SessionEndedEvent(session));
+        return true;
+    }
+
+    private void copy(ChatSession session, SessionStatus status, LocalDateTime endTime, Integer durationMinutes, BigDecimal totalAmount) {
+        session.setStatus(status);
+        session.setEndTime(endTime);
+        session.setDurationMinutes(durationMinutes);
+        session.setTotalAmount(totalAmount);
+    }
+}
@@ -0,0 +1,38 @@
+package com.experttalk.service;
+
+import com.experttalk.model.ChatSession;
+import com.experttalk.model.SessionStatus;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Published once when a chat session leaves the ACTIVE state, after the change has been saved; see {@link SessionEndService}.
+ */
+public class SessionEndedEvent {
+
+    private final Long sessionId;
+    private final Long userId;
+    private final Long expertId;
+    private final SessionStatus status;
+    private final Integer durationMinutes;
+    private final BigDecimal totalAmount;
+    private final LocalDateTime endTime;
+
+    public SessionEndedEvent(ChatSession session) {
+        this.sessionId = session.getId();
+        this.userId = session.getUserId();
+        this.expertId = session.getExpertId();
+        this.status = session.getStatus();
+        this.durationMinutes = session.getDurationMinutes();
+        this.totalAmount = session.getTotalAmount();
+        this.endTime = session.getEndTime();
+    }
+
+    public Long getSessionId() { return sessionId; }
+    public Long getUserId() { return userId; }
+    public Long getExpertId() { return expertId; }
+    public SessionStatus getStatus() { return status; }
+    public Integer getDurationMinutes() { return durationMinutes; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public LocalDateTime getEndTime() { return endTime; }
+}
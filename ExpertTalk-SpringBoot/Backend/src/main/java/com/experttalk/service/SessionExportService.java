@@ -0,0 +1,188 @@
+package com.experttalk.service;
+
+import com.experttalk.repository.MessageRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Only used by the admin export endpoints, so it is created on the first export rather than at startup
+@Service
+@Lazy
+public class SessionExportService {
+
+    // Names are resolved in SQL so each row is written exactly once; message counts live on the message shards and are
+    // looked up per chunk of rows instead
+    private static final String EXPORT_SQL =
+            "SELECT cs.id, cs.user_id, u.name AS user_name, cs.expert_id, e.name AS expert_name, " +
+            "cs.start_time, cs.end_time, cs.status, cs.duration_minutes, cs.total_amount " +
+            "FROM chat_sessions cs " +
+            "LEFT JOIN users u ON u.id = cs.user_id " +
+            "LEFT JOIN users e ON e.id = cs.expert_id";
+
+    private static final String[] COLUMNS = {
+            "id", "userId", "userName", "expertId", "expertName", "startTime", "endTime",
+            "status", "durationMinutes", "totalAmount", "messageCount"
+    };
+
+    private static final int FLUSH_EVERY_ROWS = 500;
+
+    private record ExportRow(long id, long userId, String userName, long expertId, String expertName, Timestamp startTime,
+                             Timestamp endTime, String status, Integer durationMinutes, BigDecimal totalAmount) {
+    }
+
+    private interface RowWriter {
+        void write(ExportRow row, long messageCount) throws IOException;
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MessageRepository messageRepository;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Autowired
+    public SessionExportService(DataSource dataSource, MessageRepository messageRepository,
+                                @Value("${export.fetch-size:-2147483648}") int fetchSize) {
+        // MySQL Connector/J only streams rows one at a time (instead of buffering the whole result) when fetch size is Integer.MIN_VALUE
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.messageRepository = messageRepository;
+    }
+
+    public void writeNdjson(OutputStream out, LocalDateTime from, LocalDateTime to) throws IOException {
+        JsonGenerator json = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+        json.setRootValueSeparator(null);
+        query(from, to, (row, messageCount) -> {
+            json.writeStartObject();
+            json.writeNumberField("id", row.id());
+            json.writeNumberField("userId", row.userId());
+            json.writeStringField("userName", row.userName());
+            json.writeNumberField("expertId", row.expertId());
+            json.writeStringField("expertName", row.expertName());
+            json.writeStringField("startTime", formatTimestamp(row.startTime()));
+            json.writeStringField("endTime", formatTimestamp(row.endTime()));
+            json.writeStringField("status", row.status());
+            if (row.durationMinutes() != null) {
+                json.writeNumberField("durationMinutes", row.durationMinutes());
+            } else {
+                json.writeNullField("durationMinutes");
+            }
+            if (row.totalAmount() != null) {
+                json.writeNumberField("totalAmount", row.totalAmount());
+            } else {
+                json.writeNullField("totalAmount");
+            }
+            json.writeNumberField("messageCount", messageCount);
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }, json);
+        json.flush();
+    }
+
+    public void writeCsv(OutputStream out, LocalDateTime from, LocalDateTime to) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(String.join(",", COLUMNS));
+        writer.write('\n');
+        query(from, to, (row, messageCount) -> {
+            writer.write(row.id() + "," + row.userId() + "," + csv(row.userName()) + ","
+                    + row.expertId() + "," + csv(row.expertName()) + ","
+                    + csv(formatTimestamp(row.startTime())) + ","
+                    + csv(formatTimestamp(row.endTime())) + ","
+                    + csv(row.status()) + ","
+                    + csv(row.durationMinutes() != null ? String.valueOf(row.durationMinutes()) : null) + ","
+                    + csv(row.totalAmount() != null ? row.totalAmount().toPlainString() : null) + ","
+                    + messageCount);
+            writer.write('\n');
+        }, writer);
+        writer.flush();
+    }
+
+    // Rows are still streamed; only one chunk is held at a time, while its message counts are fetched in one query per shard
+    private void query(LocalDateTime from, LocalDateTime to, RowWriter rowWriter, Flushable out) throws IOException {
+        StringBuilder sql = new StringBuilder(EXPORT_SQL);
+        List<Object> args = new ArrayList<>();
+        if (from != null) {
+            sql.append(args.isEmpty() ? " WHERE" : " AND").append(" cs.start_time >= ?");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(args.isEmpty() ? " WHERE" : " AND").append(" cs.start_time < ?");
+            args.add(Timestamp.valueOf(to));
+        }
+        sql.append(" ORDER BY cs.id");
+        List<ExportRow> chunk = new ArrayList<>(FLUSH_EVERY_ROWS);
+        try {
+            jdbcTemplate.query(sql.toString(), rs -> {
+                chunk.add(toRow(rs));
+                if (chunk.size() == FLUSH_EVERY_ROWS) {
+                    try {
+                        writeChunk(chunk, rowWriter);
+                        out.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }, args.toArray());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writeChunk(chunk, rowWriter);
+    }
+
+    private void writeChunk(List<ExportRow> chunk, RowWriter rowWriter) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<Long> sessionIds = new ArrayList<>(chunk.size());
+        for (ExportRow row : chunk) {
+            sessionIds.add(row.id());
+        }
+        Map<Long, Long> messageCounts = messageRepository.countByChatSessionIdIn(sessionIds);
+        for (ExportRow row : chunk) {
+            rowWriter.write(row, messageCounts.getOrDefault(row.id(), 0L));
+        }
+        chunk.clear();
+    }
+
+    private ExportRow toRow(ResultSet rs) throws SQLException {
+        int durationMinutes = rs.getInt("duration_minutes");
+        Integer duration = rs.wasNull() ? null : durationMinutes;
+        return new ExportRow(rs.getLong("id"), rs.getLong("user_id"), rs.getString("user_name"), rs.getLong("expert_id"),
+                rs.getString("expert_name"), rs.getTimestamp("start_time"), rs.getTimestamp("end_time"), rs.getString("status"),
+                duration, rs.getBigDecimal("total_amount"));
+    }
+
+    private String formatTimestamp(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime().toString() : null;
+    }
+
+    private String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
@@ -0,0 +1,221 @@
+package com.experttalk.service;
+
+import com.experttalk.model.RollupDimension;
+import com.experttalk.model.RollupGranularity;
+import com.experttalk.model.SessionStatus;
+import com.experttalk.repository.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains hourly and daily session rollups (overall, per expert and per category) as sessions end.
+ * Each session is added exactly once: it is locked, counted and stamped with rolled_up_at in one transaction,
+ * and a periodic sweep picks up sessions that ended without an event, which also backfills older history.
+ */
+@Service
+public class SessionRollupService {
+
+    private static final String ENDED_SESSIONS_SQL =
+            "SELECT id, expert_id, status, start_time, end_time, duration_minutes, total_amount FROM chat_sessions " +
+            "WHERE id IN (%s) AND status <> ? AND rolled_up_at IS NULL FOR UPDATE";
+
+    private static final String EXPERT_CATEGORIES_SQL = "SELECT id, category_id FROM users WHERE id IN (%s)";
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO session_rollups (granularity, dimension, dimension_id, bucket_start, " +
+            "session_count, completed_count, total_minutes, revenue, message_count) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE session_count = session_count + VALUES(session_count), " +
+            "completed_count = completed_count + VALUES(completed_count), total_minutes = total_minutes + VALUES(total_minutes), " +
+            "revenue = revenue + VALUES(revenue), message_count = message_count + VALUES(message_count)";
+
+    private static final String MARK_SQL = "UPDATE chat_sessions SET rolled_up_at = ? WHERE id = ?";
+
+    private static final String UNROLLED_SESSIONS_SQL =
+            "SELECT id FROM chat_sessions WHERE rolled_up_at IS NULL AND status <> ? ORDER BY id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MessageRepository messageRepository;
+    private final BlockingQueue<Long> queue;
+    private final int batchSize;
+
+    private final Counter dropped;
+    private final Counter rolledUp;
+
+    private Thread writer;
+    private volatile boolean running = true;
+
+    @Autowired
+    public SessionRollupService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                MessageRepository messageRepository, MeterRegistry meterRegistry,
+                                @Value("${rollups.queue-capacity:10000}") int queueCapacity,
+                                @Value("${rollups.batch-size:200}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.messageRepository = messageRepository;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.dropped = meterRegistry.counter("rollups.dropped");
+        this.rolledUp = meterRegistry.counter("rollups.sessions");
+        meterRegistry.gauge("rollups.queue.depth", queue, BlockingQueue::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        writer = new Thread(this::drainLoop, "session-rollups");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    @EventListener
+    public void onSessionEnded(SessionEndedEvent event) {
+        enqueue(event.getSessionId());
+    }
+
+    // Sessions missed by a full queue or a restart, and everything that ended before rollups existed
+    @Scheduled(fixedDelayString = "${rollups.sweep-interval-ms:300000}", initialDelayString = "${rollups.sweep-interval-ms:300000}")
+    public void sweepUnrolledSessions() {
+        try {
+            jdbcTemplate.query(UNROLLED_SESSIONS_SQL, rs -> {
+                enqueue(rs.getLong("id"));
+            }, SessionStatus.ACTIVE.name(), queue.remainingCapacity());
+        } catch (Exception e) {
+            System.err.println("[ERROR] Session rollup sweep failed: " + e.getMessage());
+        }
+    }
+
+    private void enqueue(Long sessionId) {
+        if (!queue.offer(sessionId)) {
+            dropped.increment();
+        }
+    }
+
+    private void drainLoop() {
+        List<Long> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Long first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                Integer count = transactionTemplate.execute(status -> rollUp(batch));
+                rolledUp.increment(count != null ? count : 0);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("[ERROR] Session rollup batch of " + batch.size() + " failed: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private int rollUp(List<Long> sessionIds) {
+        String placeholders = String.join(", ", Collections.nCopies(sessionIds.size(), "?"));
+        List<Object> args = new ArrayList<>(sessionIds);
+        args.add(SessionStatus.ACTIVE.name());
+        // The row locks keep a second instance from counting the same session in parallel
+        List<EndedSession> sessions = jdbcTemplate.query(String.format(ENDED_SESSIONS_SQL, placeholders), (rs, rowNum) -> {
+            Timestamp endTime = rs.getTimestamp("end_time");
+            return new EndedSession(rs.getLong("id"), rs.getLong("expert_id"), SessionStatus.valueOf(rs.getString("status")),
+                    (endTime != null ? endTime : rs.getTimestamp("start_time")).toLocalDateTime(),
+                    rs.getInt("duration_minutes"), rs.getBigDecimal("total_amount"));
+        }, args.toArray());
+        if (sessions.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = sessions.stream().map(EndedSession::id).toList();
+        List<Long> expertIds = sessions.stream().map(EndedSession::expertId).distinct().toList();
+        Map<Long, Long> categories = new HashMap<>();
+        jdbcTemplate.query(String.format(EXPERT_CATEGORIES_SQL, String.join(", ", Collections.nCopies(expertIds.size(), "?"))), rs -> {
+            long categoryId = rs.getLong("category_id");
+            if (!rs.wasNull()) {
+                categories.put(rs.getLong("id"), categoryId);
+            }
+        }, expertIds.toArray());
+        // Counted on the message shards, outside this transaction; ended sessions take no new messages
+        Map<Long, Long> messageCounts = messageRepository.countByChatSessionIdIn(ids);
+
+        Map<BucketKey, Totals> buckets = new LinkedHashMap<>();
+        for (EndedSession session : sessions) {
+            boolean completed = session.status() == SessionStatus.COMPLETED;
+            Totals delta = new Totals(1, completed ? 1 : 0, session.durationMinutes(),
+                    completed && session.totalAmount() != null ? session.totalAmount() : BigDecimal.ZERO,
+                    messageCounts.getOrDefault(session.id(), 0L));
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                LocalDateTime bucket = session.bucketTime().truncatedTo(granularity == RollupGranularity.HOUR ? ChronoUnit.HOURS : ChronoUnit.DAYS);
+                buckets.merge(new BucketKey(granularity, RollupDimension.ALL, 0L, bucket), delta, Totals::plus);
+                buckets.merge(new BucketKey(granularity, RollupDimension.EXPERT, session.expertId(), bucket), delta, Totals::plus);
+                Long categoryId = categories.get(session.expertId());
+                if (categoryId != null) {
+                    buckets.merge(new BucketKey(granularity, RollupDimension.CATEGORY, categoryId, bucket), delta, Totals::plus);
+                }
+            }
+        }
+
+        List<Map.Entry<BucketKey, Totals>> upserts = new ArrayList<>(buckets.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, upserts, upserts.size(), (ps, entry) -> {
+            BucketKey key = entry.getKey();
+            Totals totals = entry.getValue();
+            ps.setString(1, key.granularity().name());
+            ps.setString(2, key.dimension().name());
+            ps.setLong(3, key.dimensionId());
+            ps.setTimestamp(4, Timestamp.valueOf(key.bucketStart()));
+            ps.setLong(5, totals.sessions());
+            ps.setLong(6, totals.completed());
+            ps.setLong(7, totals.minutes());
+            ps.setBigDecimal(8, totals.revenue());
+            ps.setLong(9, totals.messages());
+        });
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(MARK_SQL, ids, ids.size(), (ps, id) -> {
+            ps.setTimestamp(1, now);
+            ps.setLong(2, id);
+        });
+        return sessions.size();
+    }
+
+    private record EndedSession(long id, long expertId, SessionStatus status, LocalDateTime bucketTime,
+                                int durationMinutes, BigDecimal totalAmount) {}
+
+    private record BucketKey(RollupGranularity granularity, RollupDimension dimension, long dimensionId, LocalDateTime bucketStart) {}
+
+    private record Totals(long sessions, long completed, long minutes, BigDecimal revenue, long messages) {
+        Totals plus(Totals other) {
+            return new Totals(sessions + other.sessions, completed + other.completed, minutes + other.minutes,
+                    revenue.add(other.revenue), messages + other.messages);
+        }
+    }
+}
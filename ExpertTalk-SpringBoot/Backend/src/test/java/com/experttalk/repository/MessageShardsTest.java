@@ -0,0 +1,166 @@
+package com.experttalk.repository;
+
+import com.experttalk.config.MessageShardProperties;
+import com.experttalk.model.Message;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Routing and scatter-gather over three embedded H2 databases in MySQL mode, standing in for the MySQL shards.
+ */
+class MessageShardsTest {
+
+    private static final int SHARD_COUNT = 3;
+
+    // The messages table as Hibernate created it before messages were numbered or sharded
+    private static final String[] BASELINE_SCHEMA_SQL = {
+            "CREATE TABLE chat_sessions (id BIGINT NOT NULL AUTO_INCREMENT, PRIMARY KEY (id))",
+            "CREATE TABLE messages (id BIGINT NOT NULL AUTO_INCREMENT, chat_session_id BIGINT NOT NULL, content TEXT NOT NULL, " +
+            "is_read BIT, sender_id BIGINT NOT NULL, sent_at DATETIME(6) NOT NULL, PRIMARY KEY (id))",
+            "ALTER TABLE messages ADD CONSTRAINT fk_messages_chat_session FOREIGN KEY (chat_session_id) REFERENCES chat_sessions (id)"
+    };
+
+    private final String run = UUID.randomUUID().toString();
+    private MessageShards messageShards;
+    private MessageRepository messageRepository;
+
+    @BeforeEach
+    void setUp() {
+        open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        messageShards.shutdown();
+    }
+
+    private void open() {
+        MessageShardProperties properties = new MessageShardProperties();
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            MessageShardProperties.Shard shard = new MessageShardProperties.Shard();
+            shard.setUrl(url(i));
+            shard.setUsername("sa");
+            shard.setPassword("");
+            shard.setMaxPoolSize(2);
+            properties.getShards().add(shard);
+        }
+        // The application's datasource is only used when no shards are configured
+        messageShards = new MessageShards(properties, null, null, new SimpleMeterRegistry());
+        messageRepository = new MessageRepository(messageShards);
+    }
+
+    private String url(int shard) {
+        return "jdbc:h2:mem:shard" + shard + "-" + run + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    }
+
+    @Test
+    void sessionMessagesLiveOnlyOnTheirShard() {
+        for (long sessionId = 1; sessionId <= 6; sessionId++) {
+            for (int i = 0; i < sessionId; i++) {
+                insert(sessionId, i + 1);
+            }
+        }
+
+        for (long sessionId = 1; sessionId <= 6; sessionId++) {
+            MessageShards.Shard home = messageShards.forSession(sessionId);
+            for (MessageShards.Shard shard : messageShards.all()) {
+                long stored = shard.jdbcTemplate().queryForObject(
+                        "SELECT COUNT(*) FROM messages WHERE chat_session_id = ?", Long.class, sessionId);
+                assertEquals(shard == home ? sessionId : 0, stored, "session " + sessionId + " on shard " + shard.index());
+            }
+            assertEquals(sessionId, messageRepository.findByChatSessionIdOrderBySentAtAsc(sessionId).size());
+            assertEquals(sessionId, messageRepository.lastSeq(sessionId));
+        }
+        assertNotSame(messageShards.forSession(1L), messageShards.forSession(2L));
+    }
+
+    @Test
+    void countsAreGatheredFromEveryShard() {
+        for (long sessionId = 1; sessionId <= 6; sessionId++) {
+            for (int i = 0; i < sessionId; i++) {
+                insert(sessionId, i + 1);
+            }
+        }
+
+        assertEquals(21, messageRepository.count());
+        Map<Long, Long> counts = messageRepository.countByChatSessionIdIn(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L));
+        assertEquals(Map.of(1L, 1L, 2L, 2L, 3L, 3L, 4L, 4L, 5L, 5L, 6L, 6L), counts);
+        assertTrue(messageShards.bySession(List.of(1L, 2L, 3L)).size() > 1);
+    }
+
+    @Test
+    void deletingASessionRemovesItsMessagesAndSequence() {
+        insert(4L, 1);
+        insert(4L, 2);
+        insert(5L, 1);
+        MessageShards.Shard home = messageShards.forSession(4L);
+        home.jdbcTemplate().update("INSERT INTO message_sequences (chat_session_id, last_seq) VALUES (?, ?)", 4L, 2L);
+
+        assertEquals(2, messageRepository.deleteByChatSessionId(4L));
+
+        assertEquals(0, messageRepository.findByChatSessionIdOrderBySentAtAsc(4L).size());
+        assertEquals(0L, home.jdbcTemplate().queryForObject(
+                "SELECT COUNT(*) FROM message_sequences WHERE chat_session_id = ?", Long.class, 4L));
+        assertEquals(1, messageRepository.count());
+    }
+
+    @Test
+    void baselineMessagesTableIsUpgradedInPlace() {
+        messageShards.shutdown();
+        JdbcTemplate baseline = new JdbcTemplate(new DriverManagerDataSource(url(0).replace("shard0-", "baseline-"), "sa", ""));
+        for (String ddl : BASELINE_SCHEMA_SQL) {
+            baseline.execute(ddl);
+        }
+        baseline.update("INSERT INTO chat_sessions (id) VALUES (3)");
+        baseline.update("INSERT INTO messages (chat_session_id, content, is_read, sender_id, sent_at) VALUES (3, 'old', false, 100, NOW())");
+
+        MessageShardProperties properties = new MessageShardProperties();
+        MessageShardProperties.Shard shard = new MessageShardProperties.Shard();
+        shard.setUrl(url(0).replace("shard0-", "baseline-"));
+        shard.setUsername("sa");
+        shard.setPassword("");
+        properties.getShards().add(shard);
+        messageShards = new MessageShards(properties, null, null, new SimpleMeterRegistry());
+        messageRepository = new MessageRepository(messageShards);
+
+        // The existing row keeps an empty seq until the backfill numbers it; new rows are numbered and keyed
+        assertEquals(1, messageRepository.findByChatSessionIdOrderBySentAtAsc(3L).size());
+        insert(3L, 1);
+        assertThrows(DataIntegrityViolationException.class, () -> insert(3L, 1));
+        assertEquals(1, messageRepository.lastSeq(3L));
+
+        // Messages first, then the session, as AdminController.deleteSession does while the old foreign key remains
+        assertThrows(DataIntegrityViolationException.class, () -> baseline.update("DELETE FROM chat_sessions WHERE id = 3"));
+        assertEquals(2, messageRepository.deleteByChatSessionId(3L));
+        assertEquals(1, baseline.update("DELETE FROM chat_sessions WHERE id = 3"));
+
+        // A second start finds everything in place
+        messageShards.shutdown();
+        messageShards = new MessageShards(properties, null, null, new SimpleMeterRegistry());
+    }
+
+    private void insert(long sessionId, long seq) {
+        Message message = new Message();
+        message.setChatSessionId(sessionId);
+        message.setSenderId(100L);
+        message.setSeq(seq);
+        message.setContent("message " + seq);
+        message.setSentAt(LocalDateTime.now());
+        message.setIsRead(false);
+        messageRepository.insert(message);
+    }
+}
@@ -31,7 +31,11 @@ const PaymentModal = ({ expert, isOpen, onClose }) => {
           setShowSuccessModal(true);
           setLoading(false);
         } catch (error) {
-          alert('Payment successful but failed to start session.');
+          if (error.response?.status === 409) {
+            alert(error.response.data?.message || 'This expert is busy right now. Please try again shortly.');
+          } else {
+            alert('Payment successful but failed to start session.');
+          }
           setLoading(false);
         }
       },
@@ -6,12 +6,20 @@ import ConfirmModal from '../components/ConfirmModal';
 import SockJS from 'sockjs-client';
 import { Stomp } from '@stomp/stompjs';
 
+const USERS_PAGE_SIZE = 20;
+const SESSIONS_PAGE_SIZE = 20;
+
 const AdminDashboard = () => {
   const { user } = useAuth();
   const [stats, setStats] = useState({});
   const [users, setUsers] = useState([]);
+  const [userPage, setUserPage] = useState(0);
+  const [userTotalPages, setUserTotalPages] = useState(0);
   const [categories, setCategories] = useState([]);
   const [sessions, setSessions] = useState([]);
+  const [sessionPage, setSessionPage] = useState(0);
+  const [sessionTotalPages, setSessionTotalPages] = useState(0);
+  const [sessionStatusFilter, setSessionStatusFilter] = useState('');
   const [inquiries, setInquiries] = useState([]);
   const [loading, setLoading] = useState(true);
   const [activeTab, setActiveTab] = useState('overview');
@@ -41,14 +49,15 @@ const AdminDashboard = () => {
         window.stompClient.disconnect();
       }
     };
-  }, [activeTab]);
+  }, [activeTab, userPage, sessionPage, sessionStatusFilter]);
   
   const setupWebSocket = () => {
     try {
       const socket = new SockJS('http://localhost:5045/ws');
       const stompClient = Stomp.over(socket);
       
-      stompClient.connect({}, () => {
+      // The server only accepts STOMP connections that present a valid token on CONNECT
+      stompClient.connect({ Authorization: `Bearer ${localStorage.getItem('token')}` }, () => {
         console.log('[DEBUG] WebSocket connected');
         stompClient.subscribe('/topic/admin/users', (message) => {
           const data = JSON.parse(message.body);
@@ -75,6 +84,16 @@ const AdminDashboard = () => {
   };
   
   const handleRealtimeUpdate = (type, data) => {
+    // The server coalesces bursts of admin events into a single batch frame
+    if (data.action === 'batch') {
+      data.events.forEach(event => applyRealtimeUpdate(type, event));
+    } else {
+      applyRealtimeUpdate(type, data);
+    }
+    fetchData();
+  };
+  
+  const applyRealtimeUpdate = (type, data) => {
     switch (type) {
       case 'users':
         if (data.action === 'create') {
@@ -104,7 +123,6 @@ const AdminDashboard = () => {
         }
         break;
     }
-    fetchData();
   };
 
   const fetchData = async () => {
@@ -117,17 +135,17 @@ const AdminDashboard = () => {
           console.error('Failed to fetch stats:', err);
           return { totalUsers: 0, totalExperts: 0, totalSessions: 0, activeSessions: 0, totalRevenue: 0, totalCategories: 0, completedSessions: 0, pendingExperts: 0 };
         }),
-        adminAPI.getUsers().catch(err => {
+        adminAPI.getUsers({ page: userPage, size: USERS_PAGE_SIZE }).catch(err => {
           console.error('Failed to fetch users:', err);
-          return [];
+          return { content: [], totalPages: 0 };
         }),
         adminAPI.getCategories().catch(err => {
           console.error('Failed to fetch categories:', err);
           return [];
         }),
-        adminAPI.getSessions().catch(err => {
+        adminAPI.getSessions({ page: sessionPage, size: SESSIONS_PAGE_SIZE, status: sessionStatusFilter || undefined }).catch(err => {
           console.error('Failed to fetch sessions:', err);
-          return [];
+          return { content: [], totalPages: 0 };
         }),
         adminAPI.getInquiries().catch(err => {
           console.error('Failed to fetch inquiries:', err);
@@ -136,15 +154,17 @@ const AdminDashboard = () => {
       ]);
       
       console.log('[DEBUG] Stats data:', statsData);
-      console.log('[DEBUG] Users data:', usersData.length, 'users');
+      console.log('[DEBUG] Users data:', usersData.totalElements, 'users');
       console.log('[DEBUG] Categories data:', categoriesData.length, 'categories');
-      console.log('[DEBUG] Sessions data:', sessionsData.length, 'sessions');
+      console.log('[DEBUG] Sessions data:', sessionsData.totalElements, 'sessions');
       console.log('[DEBUG] Inquiries data:', inquiriesData.length, 'inquiries');
       
       setStats(statsData || {});
-      setUsers(usersData || []);
+      setUsers(usersData?.content || []);
+      setUserTotalPages(usersData?.totalPages || 0);
       setCategories(categoriesData || []);
-      setSessions(sessionsData || []);
+      setSessions(sessionsData?.content || []);
+      setSessionTotalPages(sessionsData?.totalPages || 0);
       setInquiries(inquiriesData || []);
     } catch (error) {
       console.error('Failed to fetch admin data:', error);
@@ -550,6 +570,26 @@ const AdminDashboard = () => {
                 </tbody>
               </table>
             </div>
+            
+            {userTotalPages > 1 && (
+              <div className="flex justify-between items-center mt-4 text-sm">
+                <button
+                  onClick={() => setUserPage(p => Math.max(0, p - 1))}
+                  disabled={userPage === 0}
+                  className="px-3 py-1 border rounded disabled:opacity-50"
+                >
+                  Previous
+                </button>
+                <span>Page {userPage + 1} of {userTotalPages}</span>
+                <button
+                  onClick={() => setUserPage(p => Math.min(userTotalPages - 1, p + 1))}
+                  disabled={userPage >= userTotalPages - 1}
+                  className="px-3 py-1 border rounded disabled:opacity-50"
+                >
+                  Next
+                </button>
+              </div>
+            )}
           </div>
         )}
 
@@ -596,7 +636,20 @@ const AdminDashboard = () => {
 
         {activeTab === 'sessions' && (
           <div className="bg-white rounded-xl shadow-sm p-4 sm:p-6">
-            <h2 className="text-lg sm:text-xl font-bold mb-4 sm:mb-6">Session Management</h2>
+            <div className="flex flex-col sm:flex-row sm:justify-between sm:items-center mb-4 sm:mb-6 gap-3">
+              <h2 className="text-lg sm:text-xl font-bold">Session Management</h2>
+              <select
+                value={sessionStatusFilter}
+                onChange={(e) => { setSessionStatusFilter(e.target.value); setSessionPage(0); }}
+                className="border rounded-lg px-3 py-2 text-sm"
+              >
+                <option value="">All statuses</option>
+                <option value="ACTIVE">Active</option>
+                <option value="COMPLETED">Completed</option>
+                <option value="CANCELLED">Cancelled</option>
+                <option value="TIMEOUT">Timeout</option>
+              </select>
+            </div>
             
             <div className="overflow-x-auto">
               <table className="w-full text-sm">
@@ -643,6 +696,26 @@ const AdminDashboard = () => {
                 </tbody>
               </table>
             </div>
+            
+            {sessionTotalPages > 1 && (
+              <div className="flex justify-between items-center mt-4 text-sm">
+                <button
+                  onClick={() => setSessionPage(p => Math.max(0, p - 1))}
+                  disabled={sessionPage === 0}
+                  className="px-3 py-1 border rounded disabled:opacity-50"
+                >
+                  Previous
+                </button>
+                <span>Page {sessionPage + 1} of {sessionTotalPages}</span>
+                <button
+                  onClick={() => setSessionPage(p => Math.min(sessionTotalPages - 1, p + 1))}
+                  disabled={sessionPage >= sessionTotalPages - 1}
+                  className="px-3 py-1 border rounded disabled:opacity-50"
+                >
+                  Next
+                </button>
+              </div>
+            )}
           </div>
         )}
 
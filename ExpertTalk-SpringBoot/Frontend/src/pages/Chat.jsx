@@ -22,6 +22,14 @@ const Chat = () => {
   const [sessionExpired, setSessionExpired] = useState(false);
   const [showEndSessionModal, setShowEndSessionModal] = useState(false);
   const messagesEndRef = useRef(null);
+  // Highest per-session sequence number we hold; a jump on the topic or a reconnect asks only for what came after it
+  const lastSeqRef = useRef(0);
+  const connectedOnceRef = useRef(false);
+  // Typing and read signals go over their own ephemeral channel; these refs keep us from sending one per keystroke
+  const typingSentAtRef = useRef(0);
+  const typingStopRef = useRef(null);
+  const readSentSeqRef = useRef(0);
+  const [peerReadSeq, setPeerReadSeq] = useState(0);
 
   useEffect(() => {
     if (!sessionId || !token) return;
@@ -40,28 +48,43 @@ const Chat = () => {
         onConnect: () => {
           console.log('Connected to WebSocket');
           setConnectionStatus('Connected');
+
+          // Messages sent while we were disconnected
+          if (connectedOnceRef.current) {
+            resumeMessages();
+          }
+          connectedOnceRef.current = true;
           
           // Subscribe to session messages
           client.subscribe(`/topic/session/${sessionId}`, (message) => {
             const receivedMessage = JSON.parse(message.body);
             console.log('Received WebSocket message:', receivedMessage);
-            setMessages(prev => {
-              // Check if message already exists to prevent duplicates
-              const exists = prev.some(msg => msg.id === receivedMessage.id);
-              if (exists) {
-                console.log('Message already exists, skipping:', receivedMessage.id);
-                return prev;
-              }
-              return [...prev, {
-                id: receivedMessage.id,
-                content: receivedMessage.content,
-                senderId: receivedMessage.senderId,
-                senderName: receivedMessage.senderName,
-                sentAt: receivedMessage.sentAt
-              }];
-            });
+            if (receivedMessage.seq > lastSeqRef.current + 1) {
+              console.log('Missed messages after seq', lastSeqRef.current, '- resuming');
+              resumeMessages();
+            }
+            mergeMessages([{
+              id: receivedMessage.id,
+              seq: receivedMessage.seq,
+              content: receivedMessage.content,
+              senderId: receivedMessage.senderId,
+              senderName: receivedMessage.senderName,
+              sentAt: receivedMessage.sentAt
+            }]);
           });
           
+          // Typing indicators and read receipts, coalesced by the server
+          client.subscribe(`/topic/session/${sessionId}/signals`, (message) => {
+            const signals = JSON.parse(message.body);
+            setIsTyping(signals.typing.some(id => id !== user.id));
+            const peerRead = Object.entries(signals.read)
+              .filter(([readerId]) => parseInt(readerId) !== user.id)
+              .map(([, seq]) => seq);
+            if (peerRead.length > 0) {
+              setPeerReadSeq(Math.max(...peerRead));
+            }
+          });
+
           // Subscribe to session end notifications
           client.subscribe(`/topic/session/${sessionId}/end`, (message) => {
             const data = JSON.parse(message.body);
@@ -157,6 +180,14 @@ const Chat = () => {
     scrollToBottom();
   }, [messages]);
 
+  // Tell the other participant how far we have read
+  useEffect(() => {
+    const lastIncoming = [...messages].reverse().find(msg => msg.senderId !== user?.id && msg.seq);
+    if (lastIncoming && lastIncoming.seq > readSentSeqRef.current && publishSignal('read', { seq: lastIncoming.seq })) {
+      readSentSeqRef.current = lastIncoming.seq;
+    }
+  }, [messages, stompClient, connectionStatus]);
+
   // Countdown timer effect - only runs if not expired
   useEffect(() => {
     if (!sessionActive || sessionExpired || timeRemaining <= 0) return;
@@ -196,11 +227,37 @@ const Chat = () => {
     try {
       const data = await chatAPI.getMessages(parseInt(sessionId));
       setMessages(data);
+      lastSeqRef.current = Math.max(lastSeqRef.current, ...data.map(msg => msg.seq || 0));
     } catch (error) {
       console.error('Failed to fetch messages');
     }
   };
 
+  const resumeMessages = async () => {
+    if (!sessionId) return;
+
+    try {
+      const data = await chatAPI.resumeMessages(parseInt(sessionId), lastSeqRef.current);
+      mergeMessages(data.messages);
+    } catch (error) {
+      console.error('Failed to resume messages');
+    }
+  };
+
+  // Adds messages we do not have yet, keeping the list in sequence order
+  const mergeMessages = (incoming) => {
+    if (incoming.length === 0) return;
+    lastSeqRef.current = Math.max(lastSeqRef.current, ...incoming.map(msg => msg.seq || 0));
+    setMessages(prev => {
+      const known = new Set(prev.map(msg => msg.id));
+      const added = incoming.filter(msg => !known.has(msg.id));
+      if (added.length === 0) {
+        return prev;
+      }
+      return [...prev, ...added].sort((a, b) => (a.seq || 0) - (b.seq || 0));
+    });
+  };
+
   const sendMessage = async () => {
     if (!newMessage.trim() || !stompClient || !sessionId || !sessionActive) return;
 
@@ -210,16 +267,44 @@ const Chat = () => {
         destination: '/app/sendMessage',
         body: JSON.stringify({
           sessionId: parseInt(sessionId),
-          senderId: user.id,
           content: newMessage
         })
       });
       setNewMessage('');
+      stopTyping();
     } catch (error) {
       console.error('Failed to send message:', error);
     }
   };
 
+  const publishSignal = (type, body) => {
+    if (!stompClient || !stompClient.connected || !sessionActive) return false;
+    stompClient.publish({
+      destination: `/app/session/${sessionId}/${type}`,
+      body: JSON.stringify(body)
+    });
+    return true;
+  };
+
+  // At most one "typing" signal every two seconds; the server expires it if we go quiet
+  const handleInputChange = (e) => {
+    setNewMessage(e.target.value);
+    const now = Date.now();
+    if (now - typingSentAtRef.current > 2000 && publishSignal('typing', { typing: true })) {
+      typingSentAtRef.current = now;
+    }
+    clearTimeout(typingStopRef.current);
+    typingStopRef.current = setTimeout(stopTyping, 3000);
+  };
+
+  const stopTyping = () => {
+    clearTimeout(typingStopRef.current);
+    if (typingSentAtRef.current > 0) {
+      publishSignal('typing', { typing: false });
+      typingSentAtRef.current = 0;
+    }
+  };
+
   const endSession = async () => {
     if (!sessionId) return;
 
@@ -240,8 +325,7 @@ const Chat = () => {
         stompClient.publish({
           destination: '/app/endSession',
           body: JSON.stringify({
-            sessionId: parseInt(sessionId),
-            endedBy: user.id
+            sessionId: parseInt(sessionId)
           })
         });
         stompClient.deactivate();
@@ -434,6 +518,7 @@ const Chat = () => {
                       message.senderId === user?.id ? 'text-purple-100' : 'text-gray-500'
                     }`}>
                       {new Date(message.sentAt).toLocaleTimeString('en-IN', { timeZone: 'Asia/Kolkata', hour: '2-digit', minute: '2-digit' })}
+                      {message.senderId === user?.id && message.seq && message.seq <= peerReadSeq && ' • Seen'}
                     </p>
                   </div>
                 </div>
@@ -474,7 +559,7 @@ const Chat = () => {
               <div className="flex-1">
                 <textarea
                   value={newMessage}
-                  onChange={(e) => setNewMessage(e.target.value)}
+                  onChange={handleInputChange}
                   onKeyPress={handleKeyPress}
                   placeholder="Type your message... (Press Enter to send)"
                   className="w-full px-3 sm:px-4 py-2 sm:py-3 border border-gray-300 rounded-xl focus:ring-2 focus:ring-purple-500 focus:border-transparent transition-all duration-200 resize-none text-sm sm:text-base"
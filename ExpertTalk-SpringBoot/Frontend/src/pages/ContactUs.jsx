@@ -111,7 +111,11 @@ const ContactUs = () => {
       setValidationErrors({});
     } catch (error) {
       console.error('Failed to submit inquiry:', error);
-      alert('Failed to submit inquiry. Please try again.');
+      if (error.response?.status === 429) {
+        alert('We are receiving a lot of inquiries right now. Please try again in a few seconds.');
+      } else {
+        alert('Failed to submit inquiry. Please try again.');
+      }
     } finally {
       setIsSubmitting(false);
     }
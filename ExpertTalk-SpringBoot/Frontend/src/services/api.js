@@ -46,6 +46,9 @@ export const chatAPI = {
   
   getMessages: (sessionId) =>
     api.get(`/chat/sessions/${sessionId}/messages`).then(res => res.data),
+
+  resumeMessages: (sessionId, afterSeq) =>
+    api.get(`/chat/sessions/${sessionId}/messages/resume`, { params: { afterSeq } }).then(res => res.data),
   
   endSession: (sessionId) =>
     api.post(`/chat/sessions/${sessionId}/end`).then(res => res.data),
@@ -73,8 +76,8 @@ export const adminAPI = {
     api.get('/admin/stats').then(res => res.data),
   
   // User Management
-  getUsers: () =>
-    api.get('/admin/users').then(res => res.data),
+  getUsers: (params) =>
+    api.get('/admin/users', { params }).then(res => res.data),
   
   createUser: (data) =>
     api.post('/admin/users', data).then(res => res.data),
@@ -99,8 +102,8 @@ export const adminAPI = {
     api.delete(`/admin/categories/${id}`).then(res => res.data),
   
   // Session Monitoring
-  getSessions: () =>
-    api.get('/admin/sessions').then(res => res.data),
+  getSessions: (params) =>
+    api.get('/admin/sessions', { params }).then(res => res.data),
   
   updateSession: (id, data) =>
     api.put(`/admin/sessions/${id}`, data).then(res => res.data),